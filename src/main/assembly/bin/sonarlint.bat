@@ -6,6 +6,9 @@
 @REM Optional ENV vars:
 @REM   SONARLINT_HOME - location of SonarLint's installed home dir
 @REM   SONARLINT_OPTS - parameters passed to the Java VM when running SonarLint
+@REM
+@REM 'sonarlint --warmup' creates lib\sonarlint.jsa, a class data sharing archive that following executions start with
+@REM (Java 13 or later).
 
 @echo off
 
@@ -75,7 +78,19 @@ echo %SONARLINT_HOME%
 set PROJECT_HOME=%CD%
 if not "%SONARLINT_OPTS%"=="" set SONARLINT_OPTS="%SONARLINT_OPTS%"
 
-%JAVA_EXEC% -Djava.awt.headless=true %SONARLINT_OPTS% -cp "%SONARLINT_HOME%\lib\sonarlint-cli-${project.version}.jar" "-Dsonarlint.home=%SONARLINT_HOME%" "-Dproject.home=%PROJECT_HOME%" -Dorg.freemarker.loggerLibrary=none org.sonarlint.cli.Main %*
+@REM options not supported by older Java versions are ignored
+set CDS_ARCHIVE=%SONARLINT_HOME%\lib\sonarlint.jsa
+set CDS_OPTS=
+for %%a in (%*) do if "%%~a"=="--warmup" goto warmup
+if not exist "%CDS_ARCHIVE%" goto runJava
+set CDS_OPTS=-XX:+IgnoreUnrecognizedVMOptions "-XX:SharedArchiveFile=%CDS_ARCHIVE%"
+goto runJava
+
+:warmup
+set CDS_OPTS=-XX:+IgnoreUnrecognizedVMOptions "-XX:ArchiveClassesAtExit=%CDS_ARCHIVE%"
+
+:runJava
+%JAVA_EXEC% -Djava.awt.headless=true %SONARLINT_OPTS% %CDS_OPTS% -cp "%SONARLINT_HOME%\lib\sonarlint-cli-${project.version}.jar" "-Dsonarlint.home=%SONARLINT_HOME%" "-Dproject.home=%PROJECT_HOME%" -Dorg.freemarker.loggerLibrary=none org.sonarlint.cli.Main %*
 if ERRORLEVEL 1 goto error
 goto end
 
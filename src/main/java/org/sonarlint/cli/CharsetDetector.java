@@ -0,0 +1,242 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import org.sonarlint.cli.util.Logger;
+import org.sonarlint.cli.util.SourceFileCache;
+
+/**
+ * Detects the charset of each source file, for projects mixing encodings.
+ * <p>
+ * A byte order mark identifies UTF-8 and UTF-16 files. Otherwise a file that is valid UTF-8 and not only ASCII is
+ * considered UTF-8, and any other file gets the fallback charset. Results are kept in the project's
+ * <code>.sonarlint</code> directory, keyed by path, size and modification time, so that a file is only read again when
+ * it changes.
+ */
+public class CharsetDetector {
+  public static final String AUTO = "auto";
+
+  private static final Logger LOGGER = Logger.get();
+  private static final int FORMAT_VERSION = 1;
+  private static final int DECODE_BUFFER_SIZE = 8192;
+
+  private final Path cacheFile;
+  private final Charset fallback;
+  private final Map<String, Entry> previousEntries;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private volatile boolean modified = false;
+
+  CharsetDetector(Path cacheFile, Charset fallback, Map<String, Entry> previousEntries) {
+    this.cacheFile = cacheFile;
+    this.fallback = fallback;
+    this.previousEntries = previousEntries;
+  }
+
+  /**
+   * The platform charset is the fallback, unless it's UTF-8: the fallback is then ISO-8859-1, which accepts any content.
+   */
+  public static Charset defaultFallback() {
+    Charset platform = Charset.defaultCharset();
+    return StandardCharsets.UTF_8.equals(platform) ? StandardCharsets.ISO_8859_1 : platform;
+  }
+
+  /**
+   * Loads the results of previous detections. A missing or unreadable cache results in an empty cache.
+   */
+  public static CharsetDetector load(Path cacheFile, Charset fallback) {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+      if (in.readInt() != FORMAT_VERSION || !fallback.name().equals(in.readUTF())) {
+        LOGGER.debug("Ignoring charset cache with a different format or fallback: " + cacheFile);
+        return new CharsetDetector(cacheFile, fallback, Collections.emptyMap());
+      }
+      int count = in.readInt();
+      Map<String, Entry> entries = new HashMap<>(count * 2);
+      for (int i = 0; i < count; i++) {
+        String path = in.readUTF();
+        long size = in.readLong();
+        long mtime = in.readLong();
+        String charsetName = in.readUTF();
+        try {
+          entries.put(path, new Entry(size, mtime, Charset.forName(charsetName)));
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+          // detected again
+        }
+      }
+      return new CharsetDetector(cacheFile, fallback, entries);
+    } catch (NoSuchFileException e) {
+      return new CharsetDetector(cacheFile, fallback, Collections.emptyMap());
+    } catch (IOException e) {
+      LOGGER.debug("Unable to read charset cache, it will be rebuilt: " + cacheFile, e);
+      return new CharsetDetector(cacheFile, fallback, Collections.emptyMap());
+    }
+  }
+
+  /**
+   * Writes the results of the files detected since the cache was loaded, if any of them changed.
+   */
+  public void save() {
+    if (!modified && entries.size() == previousEntries.size()) {
+      return;
+    }
+    Path tmpFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(cacheFile.getParent());
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(fallback.name());
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+          out.writeUTF(e.getKey());
+          out.writeLong(e.getValue().size);
+          out.writeLong(e.getValue().mtime);
+          out.writeUTF(e.getValue().charset.name());
+        }
+      }
+      Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+      modified = false;
+    } catch (IOException e) {
+      LOGGER.warn("Unable to save charset cache to " + cacheFile + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * @param sourceCache if not null, the content is read through it, to be shared with the analysis
+   */
+  public Charset detect(Path file, @Nullable SourceFileCache sourceCache) {
+    String key = file.toString();
+    try {
+      BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+      long size = attrs.size();
+      long mtime = attrs.lastModifiedTime().toMillis();
+      Entry entry = entries.get(key);
+      if (entry == null || !entry.isValid(size, mtime)) {
+        entry = previousEntries.get(key);
+      }
+      if (entry == null || !entry.isValid(size, mtime)) {
+        Charset charset = sourceCache != null ? sourceCache.read(file, this::detect) : detect(ByteBuffer.wrap(Files.readAllBytes(file)));
+        entry = new Entry(size, mtime, charset);
+        modified = true;
+        LOGGER.debug("Detected charset " + entry.charset + " for " + file);
+      }
+      entries.put(key, entry);
+      return entry.charset;
+    } catch (IOException e) {
+      LOGGER.debug("Unable to detect charset of " + file + ": " + e.getMessage());
+      return fallback;
+    }
+  }
+
+  Charset detect(ByteBuffer content) {
+    Charset bomCharset = charsetOfBom(content);
+    if (bomCharset != null) {
+      return bomCharset;
+    }
+    if (isAscii(content)) {
+      // decoded the same way by any usual charset
+      return fallback;
+    }
+    return isValidUtf8(content) ? StandardCharsets.UTF_8 : fallback;
+  }
+
+  private static Charset charsetOfBom(ByteBuffer content) {
+    int b0 = content.remaining() > 0 ? content.get(content.position()) & 0xff : -1;
+    int b1 = content.remaining() > 1 ? content.get(content.position() + 1) & 0xff : -1;
+    int b2 = content.remaining() > 2 ? content.get(content.position() + 2) & 0xff : -1;
+    if (b0 == 0xef && b1 == 0xbb && b2 == 0xbf) {
+      return StandardCharsets.UTF_8;
+    }
+    if (b0 == 0xfe && b1 == 0xff) {
+      return StandardCharsets.UTF_16BE;
+    }
+    if (b0 == 0xff && b1 == 0xfe) {
+      return StandardCharsets.UTF_16LE;
+    }
+    return null;
+  }
+
+  private static boolean isAscii(ByteBuffer content) {
+    for (int i = content.position(); i < content.limit(); i++) {
+      if (content.get(i) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isValidUtf8(ByteBuffer content) {
+    CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPORT)
+      .onUnmappableCharacter(CodingErrorAction.REPORT);
+    ByteBuffer in = content.duplicate();
+    // decoded in chunks, the decoded text is not needed
+    CharBuffer out = CharBuffer.allocate(DECODE_BUFFER_SIZE);
+    while (true) {
+      CoderResult result = decoder.decode(in, out, true);
+      if (result.isError()) {
+        return false;
+      }
+      if (result.isUnderflow()) {
+        return !decoder.flush(out).isError();
+      }
+      out.clear();
+    }
+  }
+
+  static class Entry {
+    private final long size;
+    private final long mtime;
+    private final Charset charset;
+
+    Entry(long size, long mtime, Charset charset) {
+      this.size = size;
+      this.mtime = mtime;
+      this.charset = charset;
+    }
+
+    private boolean isValid(long size, long mtime) {
+      return this.size == size && this.mtime == mtime;
+    }
+  }
+}
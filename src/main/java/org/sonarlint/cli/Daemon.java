@@ -0,0 +1,263 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.text.ParseException;
+import java.util.Properties;
+import org.sonarlint.cli.analysis.SharedSonarLintFactory;
+import org.sonarlint.cli.util.Logger;
+import org.sonarlint.cli.util.System2;
+import org.sonarlint.cli.util.Util;
+
+import static org.sonarlint.cli.SonarProperties.PROJECT_HOME;
+
+/**
+ * Long-lived process serving analyses requested by {@link DaemonClient}, so that the JVM startup, the loading of the plugins
+ * and the creation of the engines are paid only once.
+ * <p>
+ * The daemon listens on the loopback interface. Its port and a random token, that clients must send with each request,
+ * are written to a state file only readable by the current user. Requests are processed one at a time, the output of
+ * each execution being streamed back to its client.
+ */
+public class Daemon {
+  public static final String TASK = "daemon";
+
+  static final String PORT_PROPERTY = "port";
+  static final String TOKEN_PROPERTY = "token";
+
+  static final int STDOUT = 1;
+  static final int STDERR = 2;
+  static final int EXIT = 3;
+
+  private static final Logger LOGGER = Logger.get();
+  private static final int REQUEST_TIMEOUT_MILLIS = 10_000;
+
+  private final SharedSonarLintFactory sonarLintFactory;
+  private final Path stateFile;
+  private volatile ServerSocket serverSocket;
+
+  public Daemon(SharedSonarLintFactory sonarLintFactory, Path stateFile) {
+    this.sonarLintFactory = sonarLintFactory;
+    this.stateFile = stateFile;
+  }
+
+  public static Path defaultStateFile() {
+    return Paths.get(System.getProperty("user.home")).resolve(".sonarlint").resolve("daemon.properties");
+  }
+
+  /**
+   * Serves requests until the daemon is stopped.
+   */
+  public int run() {
+    try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      serverSocket = server;
+      String token = newToken();
+      writeStateFile(server.getLocalPort(), token);
+      Thread shutdownHook = new Thread(this::cleanUp);
+      Runtime.getRuntime().addShutdownHook(shutdownHook);
+      LOGGER.info("SonarLint daemon listening on port " + server.getLocalPort());
+
+      while (!server.isClosed()) {
+        try (Socket socket = server.accept()) {
+          handle(socket, token);
+        } catch (SocketException e) {
+          if (!server.isClosed()) {
+            LOGGER.warn("Error serving request: " + e.getMessage());
+          }
+        } catch (IOException | RuntimeException e) {
+          LOGGER.warn("Error serving request: " + e.getMessage());
+        }
+      }
+      Runtime.getRuntime().removeShutdownHook(shutdownHook);
+      cleanUp();
+      return Main.SUCCESS;
+    } catch (IOException e) {
+      LOGGER.error("Unable to start SonarLint daemon", e);
+      return Main.ERROR;
+    }
+  }
+
+  public void stop() throws IOException {
+    ServerSocket server = serverSocket;
+    if (server != null) {
+      server.close();
+    }
+  }
+
+  private void cleanUp() {
+    sonarLintFactory.stopAll();
+    try {
+      Files.deleteIfExists(stateFile);
+    } catch (IOException e) {
+      // ignore
+    }
+  }
+
+  private void handle(Socket socket, String token) throws IOException {
+    socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+    DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    // constant time comparison, the token being a shared secret
+    if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), in.readUTF().getBytes(StandardCharsets.UTF_8))) {
+      LOGGER.warn("Rejected request with invalid token");
+      return;
+    }
+    Path projectHome = Paths.get(in.readUTF());
+    String[] args = new String[in.readInt()];
+    for (int i = 0; i < args.length; i++) {
+      args[i] = in.readUTF();
+    }
+    socket.setSoTimeout(0);
+
+    PrintStream stdOut = new PrintStream(new FrameOutputStream(out, STDOUT), true, StandardCharsets.UTF_8.name());
+    PrintStream stdErr = new PrintStream(new FrameOutputStream(out, STDERR), true, StandardCharsets.UTF_8.name());
+    RequestSystem system = new RequestSystem(projectHome);
+    Logger.set(stdOut, stdErr);
+    try {
+      if (isSupported(args)) {
+        Main.execute(args, system, sonarLintFactory);
+      }
+    } catch (Throwable e) {
+      // even errors must not stop the daemon, which would leave its state file behind
+      LOGGER.error("Error executing SonarLint", e);
+      system.exitCode = Main.ERROR;
+    } finally {
+      Logger.set(System.out, System.err);
+    }
+    stdOut.flush();
+    stdErr.flush();
+    synchronized (out) {
+      out.writeByte(EXIT);
+      out.writeInt(system.exitCode);
+      out.flush();
+    }
+  }
+
+  private static boolean isSupported(String[] args) {
+    Options opts;
+    try {
+      opts = Options.parse(args);
+    } catch (ParseException e) {
+      // reported by Main
+      return true;
+    }
+    if (TASK.equals(opts.task()) || opts.isInteractive() || opts.isWatch()) {
+      LOGGER.error("Not supported by the SonarLint daemon: " + String.join(" ", args));
+      return false;
+    }
+    return true;
+  }
+
+  private void writeStateFile(int port, String token) throws IOException {
+    Files.createDirectories(stateFile.getParent());
+    Files.deleteIfExists(stateFile);
+    try {
+      // readable by the owner only from the start, as it holds the token
+      Files.createFile(stateFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    } catch (UnsupportedOperationException e) {
+      // not a POSIX file system
+      Files.createFile(stateFile);
+    }
+    Properties props = new Properties();
+    props.setProperty(PORT_PROPERTY, Integer.toString(port));
+    props.setProperty(TOKEN_PROPERTY, token);
+    try (Writer writer = Files.newBufferedWriter(stateFile, StandardCharsets.UTF_8)) {
+      props.store(writer, "SonarLint daemon");
+    }
+  }
+
+  private static String newToken() {
+    byte[] bytes = new byte[16];
+    new SecureRandom().nextBytes(bytes);
+    return Util.toHex(bytes);
+  }
+
+  /**
+   * Writes each chunk of output as a frame: channel, length and bytes.
+   */
+  private static class FrameOutputStream extends OutputStream {
+    private final DataOutputStream out;
+    private final int channel;
+
+    private FrameOutputStream(DataOutputStream out, int channel) {
+      this.out = out;
+      this.channel = channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      synchronized (out) {
+        out.writeByte(channel);
+        out.writeInt(len);
+        out.write(b, off, len);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      synchronized (out) {
+        out.flush();
+      }
+    }
+  }
+
+  private static class RequestSystem extends System2 {
+    private final Path projectHome;
+    private int exitCode = Main.ERROR;
+
+    private RequestSystem(Path projectHome) {
+      this.projectHome = projectHome;
+    }
+
+    @Override
+    public String getProperty(String key) {
+      return PROJECT_HOME.equals(key) ? projectHome.toString() : super.getProperty(key);
+    }
+
+    @Override
+    public void exit(int code) {
+      exitCode = code;
+    }
+  }
+}
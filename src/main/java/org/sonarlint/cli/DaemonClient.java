@@ -0,0 +1,161 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import javax.annotation.CheckForNull;
+import org.sonarlint.cli.util.Logger;
+
+/**
+ * Forwards an execution to a running {@link Daemon} and replays its output.
+ */
+public class DaemonClient {
+  private static final Logger LOGGER = Logger.get();
+  private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+  private DaemonClient() {
+    // only statics
+  }
+
+  /**
+   * @return the exit code of the execution, or null if no daemon could be reached, in which case nothing was output
+   */
+  @CheckForNull
+  public static Integer forward(Path stateFile, Path projectHome, String[] args) {
+    return forward(stateFile, projectHome, args, System.out, System.err);
+  }
+
+  @CheckForNull
+  static Integer forward(Path stateFile, Path projectHome, String[] args, PrintStream stdOut, PrintStream stdErr) {
+    Properties state = new Properties();
+    try (Reader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+      state.load(reader);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      LOGGER.debug("Unable to read daemon state: " + stateFile, e);
+      return null;
+    }
+
+    int port;
+    try {
+      port = Integer.parseInt(state.getProperty(Daemon.PORT_PROPERTY, ""));
+    } catch (NumberFormatException e) {
+      LOGGER.debug("Invalid daemon state: " + stateFile);
+      return null;
+    }
+
+    Socket socket = new Socket();
+    try {
+      DataInputStream in;
+      try {
+        in = sendRequest(socket, port, state.getProperty(Daemon.TOKEN_PROPERTY, ""), projectHome, args);
+      } catch (IOException e) {
+        LOGGER.debug("Unable to reach SonarLint daemon on port " + port, e);
+        return null;
+      }
+      return replay(in, stdOut, stdErr);
+    } finally {
+      close(socket);
+    }
+  }
+
+  private static void close(Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      LOGGER.debug("Error closing connection to SonarLint daemon", e);
+    }
+  }
+
+  private static DataInputStream sendRequest(Socket socket, int port, String token, Path projectHome, String[] args) throws IOException {
+    socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT_MILLIS);
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    out.writeUTF(token);
+    out.writeUTF(projectHome.toAbsolutePath().toString());
+    List<String> forwardedArgs = new ArrayList<>();
+    for (String arg : args) {
+      if (!Options.USE_DAEMON.equals(arg)) {
+        forwardedArgs.add(arg);
+      }
+    }
+    out.writeInt(forwardedArgs.size());
+    for (String arg : forwardedArgs) {
+      out.writeUTF(arg);
+    }
+    out.flush();
+    return new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+  }
+
+  /**
+   * Once some output was replayed, the execution can't be run again in this process, so a broken connection is an error.
+   * A connection closed before any output, as when the token is rejected, means that no daemon could be reached.
+   */
+  @CheckForNull
+  private static Integer replay(DataInputStream in, PrintStream stdOut, PrintStream stdErr) {
+    byte[] buffer = new byte[8192];
+    boolean replaying = false;
+    try {
+      while (true) {
+        int channel = in.read();
+        if (channel == -1) {
+          throw new IOException("Connection closed by the daemon");
+        }
+        replaying = true;
+        if (channel == Daemon.EXIT) {
+          stdOut.flush();
+          stdErr.flush();
+          return in.readInt();
+        }
+        int len = in.readInt();
+        if (buffer.length < len) {
+          buffer = new byte[len];
+        }
+        in.readFully(buffer, 0, len);
+        (channel == Daemon.STDERR ? stdErr : stdOut).write(buffer, 0, len);
+      }
+    } catch (IOException e) {
+      if (!replaying) {
+        LOGGER.debug("Connection closed by SonarLint daemon before any output", e);
+        return null;
+      }
+      stdOut.flush();
+      stdErr.flush();
+      LOGGER.error("Connection to SonarLint daemon lost: " + e.getMessage());
+      return Main.ERROR;
+    }
+  }
+}
@@ -0,0 +1,322 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonarlint.cli.util.Logger;
+import org.sonarlint.cli.util.SourceFileCache;
+import org.sonarlint.cli.util.Util;
+
+/**
+ * Persistent index of the project files, stored in the project's <code>.sonarlint</code> directory.
+ * <p>
+ * For each directory, the index keeps its modification time and its children, so that an unchanged directory is
+ * confirmed with a single stat instead of being listed again. For each input file, it keeps size, modification time
+ * and content hash, so that the hash of an unchanged file is not computed again.
+ * <p>
+ * Like git does for its index, entries modified too close to the scan that recorded them are considered "racy"
+ * and are never trusted, since a second modification within the file system timestamp granularity would go unnoticed.
+ */
+public class FileIndex {
+  private static final Logger LOGGER = Logger.get();
+  private static final int FORMAT_VERSION = 1;
+  private static final long RACY_MILLIS = 2000;
+
+  private final Path indexFile;
+
+  private long previousScanStart;
+  private Map<String, DirectoryEntry> previousDirectories;
+  private Map<String, FileEntry> previousFiles;
+
+  private long scanStart;
+  private Map<String, DirectoryEntry> directories = new ConcurrentHashMap<>();
+  private Map<String, FileEntry> files = new ConcurrentHashMap<>();
+  private SourceFileCache sourceCache = null;
+
+  FileIndex(Path indexFile, long previousScanStart, Map<String, DirectoryEntry> previousDirectories, Map<String, FileEntry> previousFiles) {
+    this.indexFile = indexFile;
+    this.previousScanStart = previousScanStart;
+    this.previousDirectories = previousDirectories;
+    this.previousFiles = previousFiles;
+  }
+
+  /**
+   * Loads the index from disk. A missing or unreadable index results in an empty index.
+   */
+  public static FileIndex load(Path indexFile) {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+      if (in.readInt() != FORMAT_VERSION) {
+        LOGGER.debug("Ignoring file index with unsupported format: " + indexFile);
+        return empty(indexFile);
+      }
+      long scanStart = in.readLong();
+      int dirCount = in.readInt();
+      Map<String, DirectoryEntry> dirs = new HashMap<>(dirCount * 2);
+      for (int i = 0; i < dirCount; i++) {
+        String path = in.readUTF();
+        long mtime = in.readLong();
+        int childCount = in.readInt();
+        List<Child> children = new ArrayList<>(childCount);
+        for (int j = 0; j < childCount; j++) {
+          children.add(new Child(in.readUTF(), in.readBoolean()));
+        }
+        dirs.put(path, new DirectoryEntry(mtime, children));
+      }
+      int fileCount = in.readInt();
+      Map<String, FileEntry> indexedFiles = new HashMap<>(fileCount * 2);
+      for (int i = 0; i < fileCount; i++) {
+        String path = in.readUTF();
+        long size = in.readLong();
+        long mtime = in.readLong();
+        String hash = in.readBoolean() ? in.readUTF() : null;
+        indexedFiles.put(path, new FileEntry(size, mtime, hash));
+      }
+      LOGGER.debug(String.format("Loaded file index with %d directories and %d files", dirCount, fileCount));
+      return new FileIndex(indexFile, scanStart, dirs, indexedFiles);
+    } catch (NoSuchFileException e) {
+      return empty(indexFile);
+    } catch (IOException e) {
+      LOGGER.debug("Unable to read file index, it will be rebuilt: " + indexFile, e);
+      return empty(indexFile);
+    }
+  }
+
+  private static FileIndex empty(Path indexFile) {
+    return new FileIndex(indexFile, 0, Collections.emptyMap(), Collections.emptyMap());
+  }
+
+  /**
+   * Writes the entries recorded during the last scan. Entries of files and directories that were not visited are dropped.
+   */
+  public void save() {
+    Path tmpFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(indexFile.getParent());
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(scanStart);
+        out.writeInt(directories.size());
+        for (Map.Entry<String, DirectoryEntry> e : directories.entrySet()) {
+          out.writeUTF(e.getKey());
+          out.writeLong(e.getValue().mtime);
+          out.writeInt(e.getValue().children.size());
+          for (Child child : e.getValue().children) {
+            out.writeUTF(child.name);
+            out.writeBoolean(child.directory);
+          }
+        }
+        out.writeInt(files.size());
+        for (Map.Entry<String, FileEntry> e : files.entrySet()) {
+          FileEntry entry = e.getValue();
+          String hash = entry.hash;
+          out.writeUTF(e.getKey());
+          out.writeLong(entry.size);
+          out.writeLong(entry.mtime);
+          out.writeBoolean(hash != null);
+          if (hash != null) {
+            out.writeUTF(hash);
+          }
+        }
+      }
+      Files.move(tmpFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to save file index to " + indexFile + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Must be called before each walk of the file tree. The entries recorded by the previous scan become the reference
+   * used to detect changes.
+   */
+  void startScan() {
+    if (scanStart != 0) {
+      previousScanStart = scanStart;
+      previousDirectories = directories;
+      previousFiles = files;
+      directories = new ConcurrentHashMap<>();
+      files = new ConcurrentHashMap<>();
+    }
+    scanStart = System.currentTimeMillis();
+  }
+
+  /**
+   * Drops the entries of the previous scan for these files and directories, and for the directories containing them,
+   * so that they are listed and hashed again whatever their timestamps. Must be called after {@link #startScan()}.
+   */
+  void forget(Collection<Path> paths) {
+    Map<String, DirectoryEntry> dirs = new HashMap<>(previousDirectories);
+    Map<String, FileEntry> indexedFiles = new HashMap<>(previousFiles);
+    for (Path path : paths) {
+      dirs.remove(path.toString());
+      indexedFiles.remove(path.toString());
+      Path parent = path.getParent();
+      if (parent != null) {
+        dirs.remove(parent.toString());
+      }
+    }
+    previousDirectories = dirs;
+    previousFiles = indexedFiles;
+  }
+
+  /**
+   * Returns the children of the directory recorded by the previous scan if the directory was not modified since,
+   * or null if it needs to be listed again.
+   */
+  @CheckForNull
+  List<Child> cachedListing(Path dir, BasicFileAttributes attrs) {
+    String key = dir.toString();
+    DirectoryEntry previous = previousDirectories.get(key);
+    long mtime = attrs.lastModifiedTime().toMillis();
+    if (previous == null || previous.mtime != mtime || isRacy(mtime)) {
+      return null;
+    }
+    directories.put(key, previous);
+    return previous.children;
+  }
+
+  void recordListing(Path dir, BasicFileAttributes attrs, List<Child> children) {
+    directories.put(dir.toString(), new DirectoryEntry(attrs.lastModifiedTime().toMillis(), children));
+  }
+
+  void recordFile(Path file, BasicFileAttributes attrs) {
+    String key = file.toString();
+    long size = attrs.size();
+    long mtime = attrs.lastModifiedTime().toMillis();
+    FileEntry previous = previousFiles.get(key);
+    String hash = null;
+    if (previous != null && previous.size == size && previous.mtime == mtime && !isRacy(mtime)) {
+      hash = previous.hash;
+    }
+    files.put(key, new FileEntry(size, mtime, hash));
+  }
+
+  private boolean isRacy(long mtime) {
+    return mtime >= previousScanStart - RACY_MILLIS;
+  }
+
+  /**
+   * When set, contents are hashed through the cache of the run, so that the analysis doesn't read the files again.
+   */
+  void setSourceCache(@Nullable SourceFileCache sourceCache) {
+    this.sourceCache = sourceCache;
+  }
+
+  /**
+   * Content hash of a file. The hash recorded in the index is reused when the file didn't change since it was computed.
+   */
+  public String contentHash(Path file) throws IOException {
+    FileEntry entry = files.get(file.toString());
+    if (entry == null) {
+      return computeHash(file, sourceCache);
+    }
+    String hash = entry.hash;
+    if (hash == null) {
+      hash = computeHash(file, sourceCache);
+      entry.hash = hash;
+    }
+    return hash;
+  }
+
+  public static String computeHash(Path file) throws IOException {
+    return computeHash(file, null);
+  }
+
+  private static String computeHash(Path file, @Nullable SourceFileCache sourceCache) throws IOException {
+    if (sourceCache != null) {
+      return sourceCache.read(file, FileIndex::computeHash);
+    }
+    MessageDigest digest = Util.sha1();
+    byte[] buffer = new byte[8192];
+    try (InputStream in = Files.newInputStream(file)) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return Util.toHex(digest.digest());
+  }
+
+  private static String computeHash(ByteBuffer content) {
+    MessageDigest digest = Util.sha1();
+    digest.update(content);
+    return Util.toHex(digest.digest());
+  }
+
+  static class Child {
+    private final String name;
+    private final boolean directory;
+
+    Child(String name, boolean directory) {
+      this.name = name;
+      this.directory = directory;
+    }
+
+    String name() {
+      return name;
+    }
+
+    boolean isDirectory() {
+      return directory;
+    }
+  }
+
+  private static class DirectoryEntry {
+    private final long mtime;
+    private final List<Child> children;
+
+    private DirectoryEntry(long mtime, List<Child> children) {
+      this.mtime = mtime;
+      this.children = children;
+    }
+  }
+
+  private static class FileEntry {
+    private final long size;
+    private final long mtime;
+    private volatile String hash;
+
+    private FileEntry(long size, long mtime, @Nullable String hash) {
+      this.size = size;
+      this.mtime = mtime;
+      this.hash = hash;
+    }
+  }
+}
@@ -0,0 +1,279 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli;
+
+import java.io.File;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matches files against a comma-separated list of glob patterns, with the semantics of the JDK "glob:" syntax applied
+ * to both the absolute path and the path relative to the base directory: a file matches if any of the patterns matches
+ * any of the two paths.
+ * <p>
+ * Most patterns used in practice are compiled to plain string operations looked up in tables, so that the cost of a
+ * match doesn't grow with the number of patterns:
+ * <ul>
+ * <li><code>**&#47;*.java</code>, <code>**.java</code>: extension table and suffix list</li>
+ * <li><code>**&#47;node_modules&#47;**</code>: set of directory names</li>
+ * <li><code>target&#47;**</code>, <code>src&#47;main&#47;**</code>: trie of the leading directories of the relative path</li>
+ * <li>patterns without wildcards: set of paths</li>
+ * </ul>
+ * Other patterns are matched with the JDK path matcher.
+ */
+class GlobMatcher {
+  private static final String GLOB_PREFIX = "glob:";
+  private static final String ANY_DIRECTORY = "**/";
+  private static final String ANY_CONTENT = "/**";
+  // the JDK glob is case insensitive on Windows, only the JDK matcher is used there
+  private static final boolean FAST_PATHS = File.separatorChar == '/';
+
+  private final Set<String> extensions = new HashSet<>();
+  private final List<String> suffixes = new ArrayList<>();
+  private final Set<String> directoryNames = new HashSet<>();
+  private final List<String> infixes = new ArrayList<>();
+  private final Node prefixes = new Node();
+  private final Set<String> exactPaths = new HashSet<>();
+  private final List<PathMatcher> fallback = new ArrayList<>();
+
+  private GlobMatcher() {
+  }
+
+  /**
+   * @throws IllegalArgumentException if one of the patterns is invalid
+   */
+  static GlobMatcher compile(String patterns) {
+    GlobMatcher matcher = new GlobMatcher();
+    FileSystem fs = FileSystems.getDefault();
+    for (String glob : split(patterns)) {
+      if (!FAST_PATHS || !matcher.addFastPath(glob)) {
+        matcher.fallback.add(fs.getPathMatcher(GLOB_PREFIX + glob));
+      }
+    }
+    return matcher;
+  }
+
+  /**
+   * Splits on the commas that are not part of a <code>{...}</code> group or of a <code>[...]</code> bracket expression.
+   */
+  static List<String> split(String patterns) {
+    List<String> globs = new ArrayList<>();
+    int braces = 0;
+    boolean inBrackets = false;
+    int start = 0;
+    for (int i = 0; i < patterns.length(); i++) {
+      char c = patterns.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (inBrackets) {
+        inBrackets = c != ']';
+      } else if (c == '[') {
+        inBrackets = true;
+      } else if (c == '{') {
+        braces++;
+      } else if (c == '}') {
+        braces--;
+      } else if (c == ',' && braces == 0) {
+        addTrimmed(patterns.substring(start, i), globs);
+        start = i + 1;
+      }
+    }
+    addTrimmed(patterns.substring(start), globs);
+    return globs;
+  }
+
+  private static void addTrimmed(String glob, List<String> globs) {
+    String trimmed = glob.trim();
+    if (!trimmed.isEmpty()) {
+      globs.add(trimmed);
+    }
+  }
+
+  private boolean addFastPath(String glob) {
+    if (glob.startsWith("**/*") && isLiteral(glob, 4, glob.length()) && glob.indexOf('/', 4) < 0) {
+      // the absolute path always contains a separator, so only the end of the path matters
+      addSuffix(glob.substring(4));
+      return true;
+    }
+    if (glob.startsWith("**") && !glob.startsWith(ANY_DIRECTORY) && isLiteral(glob, 2, glob.length())) {
+      addSuffix(glob.substring(2));
+      return true;
+    }
+    if (glob.startsWith(ANY_DIRECTORY) && glob.endsWith(ANY_CONTENT) && glob.length() > 6 && isLiteral(glob, 3, glob.length() - 3)) {
+      // only the absolute path can match, since the leading separator is mandatory
+      String directory = glob.substring(3, glob.length() - 3);
+      if (directory.indexOf('/') < 0) {
+        directoryNames.add(directory);
+      } else {
+        infixes.add("/" + directory + "/");
+      }
+      return true;
+    }
+    if (glob.endsWith(ANY_CONTENT) && glob.length() > 3 && !glob.startsWith("/") && !glob.contains("//")
+      && isLiteral(glob, 0, glob.length() - 3)) {
+      // only the relative path can match, since the absolute path starts with a separator
+      Node node = prefixes;
+      for (String segment : glob.substring(0, glob.length() - 3).split("/")) {
+        node = node.children.computeIfAbsent(segment, s -> new Node());
+      }
+      node.terminal = true;
+      return true;
+    }
+    if (isLiteral(glob, 0, glob.length())) {
+      exactPaths.add(glob);
+      return true;
+    }
+    return false;
+  }
+
+  private void addSuffix(String suffix) {
+    if (suffix.length() > 1 && suffix.lastIndexOf('.') == 0) {
+      extensions.add(suffix.substring(1));
+    } else {
+      suffixes.add(suffix);
+    }
+  }
+
+  private static boolean isLiteral(String glob, int start, int end) {
+    for (int i = start; i < end; i++) {
+      switch (glob.charAt(i)) {
+        case '*':
+        case '?':
+        case '[':
+        case ']':
+        case '{':
+        case '}':
+        case '\\':
+          return false;
+        default:
+          break;
+      }
+    }
+    return true;
+  }
+
+  boolean matches(Candidate file) {
+    if (!extensions.isEmpty() && extensions.contains(file.extension())) {
+      return true;
+    }
+    for (String suffix : suffixes) {
+      if (file.absolute().endsWith(suffix)) {
+        return true;
+      }
+    }
+    if (!directoryNames.isEmpty() && hasDirectoryNamed(file.absolutePath)) {
+      return true;
+    }
+    for (String infix : infixes) {
+      if (file.absolute().contains(infix)) {
+        return true;
+      }
+    }
+    if (!prefixes.children.isEmpty() && hasPrefix(file.relativePath)) {
+      return true;
+    }
+    if (!exactPaths.isEmpty() && (exactPaths.contains(file.relative()) || exactPaths.contains(file.absolute()))) {
+      return true;
+    }
+    for (PathMatcher matcher : fallback) {
+      if (matcher.matches(file.absolutePath) || matcher.matches(file.relativePath)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean hasDirectoryNamed(Path absolutePath) {
+    // the last name is the file itself
+    for (int i = 0; i < absolutePath.getNameCount() - 1; i++) {
+      if (directoryNames.contains(absolutePath.getName(i).toString())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean hasPrefix(Path relativePath) {
+    Node node = prefixes;
+    for (int i = 0; i < relativePath.getNameCount() - 1; i++) {
+      node = node.children.get(relativePath.getName(i).toString());
+      if (node == null) {
+        return false;
+      }
+      if (node.terminal) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static class Node {
+    private final Map<String, Node> children = new HashMap<>();
+    private boolean terminal;
+  }
+
+  /**
+   * A file to match, whose string forms are computed once for all the patterns of all the matchers.
+   */
+  static class Candidate {
+    private final Path absolutePath;
+    private final Path relativePath;
+    private String absolute;
+    private String relative;
+    private String extension;
+
+    Candidate(Path absolutePath, Path relativePath) {
+      this.absolutePath = absolutePath;
+      this.relativePath = relativePath;
+    }
+
+    private String absolute() {
+      if (absolute == null) {
+        absolute = absolutePath.toString();
+      }
+      return absolute;
+    }
+
+    private String relative() {
+      if (relative == null) {
+        relative = relativePath.toString();
+      }
+      return relative;
+    }
+
+    private String extension() {
+      if (extension == null) {
+        Path fileName = absolutePath.getFileName();
+        String name = fileName != null ? fileName.toString() : "";
+        int lastDot = name.lastIndexOf('.');
+        extension = lastDot >= 0 ? name.substring(lastDot + 1) : "";
+      }
+      return extension;
+    }
+  }
+}
@@ -21,40 +21,65 @@ package org.sonarlint.cli;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
-import java.nio.file.FileVisitResult;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.sonarlint.cli.git.GitIgnore;
 import org.sonarlint.cli.util.Logger;
+import org.sonarlint.cli.util.SourceFileCache;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
 
 public class InputFileFinder {
-  private static final String GLOB_PREFIX = "glob:";
   private static final Logger LOGGER = Logger.get();
-  private final PathMatcher srcMatcher;
-  private final PathMatcher testsMatcher;
-  private final PathMatcher excludeMatcher;
+  // same heuristic as git: a NUL byte at the beginning of the file
+  private static final int BINARY_SNIFF_LENGTH = 8000;
+  private final GlobMatcher srcMatcher;
+  private final GlobMatcher testsMatcher;
+  private final GlobMatcher excludeMatcher;
+  private final String testsGlobPattern;
   private final Charset charset;
+  private int discoveryThreads = 1;
+  private FileIndex fileIndex = null;
+  private Collection<Path> onlyFiles = null;
+  private Collection<Path> changedPaths = null;
+  private boolean useGitIgnore = false;
+  private long sourceCacheSize = SourceFileCache.DEFAULT_MAX_BYTES;
+  private SourceFileCache sourceCache = null;
+  private CharsetDetector charsetDetector = null;
+  private long maxFileSize = 0;
+  private boolean skipBinaryFiles = true;
+  private final AtomicInteger skippedTooLarge = new AtomicInteger();
+  private final AtomicInteger skippedBinary = new AtomicInteger();
 
-  private static PathMatcher acceptAll = p -> true;
-  private static PathMatcher refuseAll = p -> false;
-
+  /**
+   * Each pattern can be a comma-separated list of globs. A file matches if any of the globs matches its absolute path or
+   * its path relative to the analyzed directory. Without source pattern, all files are sources.
+   */
   public InputFileFinder(@Nullable String srcGlobPattern, @Nullable String testsGlobPattern, @Nullable String excludeGlobPattern, Charset charset) {
+    this.testsGlobPattern = testsGlobPattern;
     this.charset = charset;
-    FileSystem fs = FileSystems.getDefault();
     try {
       if (srcGlobPattern != null) {
-        srcMatcher = fs.getPathMatcher(GLOB_PREFIX + srcGlobPattern);
+        srcMatcher = GlobMatcher.compile(srcGlobPattern);
       } else {
-        srcMatcher = acceptAll;
+        srcMatcher = null;
       }
     } catch (Exception e) {
       LOGGER.error("Error creating matcher for sources with pattern: " + srcGlobPattern);
@@ -63,9 +88,9 @@ public class InputFileFinder {
 
     try {
       if (testsGlobPattern != null) {
-        testsMatcher = fs.getPathMatcher(GLOB_PREFIX + testsGlobPattern);
+        testsMatcher = GlobMatcher.compile(testsGlobPattern);
       } else {
-        testsMatcher = refuseAll;
+        testsMatcher = null;
       }
     } catch (Exception e) {
       LOGGER.error("Error creating matcher for tests with pattern: " + testsGlobPattern);
@@ -74,9 +99,9 @@ public class InputFileFinder {
 
     try {
       if (excludeGlobPattern != null) {
-        excludeMatcher = fs.getPathMatcher(GLOB_PREFIX + excludeGlobPattern);
+        excludeMatcher = GlobMatcher.compile(excludeGlobPattern);
       } else {
-        excludeMatcher = refuseAll;
+        excludeMatcher = null;
       }
     } catch (Exception e) {
       LOGGER.error("Error creating matcher for exclusions with pattern: " + excludeGlobPattern);
@@ -84,55 +109,459 @@ public class InputFileFinder {
     }
   }
 
+  /**
+   * Number of threads used to walk the file tree. With more than one thread, directories are split into fork-join subtasks.
+   * Whatever the number of threads, the collected files are returned in the same order: the files of a directory sorted by
+   * name, followed by the files of each sub-directory.
+   */
+  public void setDiscoveryThreads(int discoveryThreads) {
+    this.discoveryThreads = discoveryThreads;
+  }
+
+  /**
+   * When set, directories that didn't change since the previous walk are not listed again. The index is saved by
+   * {@link #saveFileIndex()}.
+   */
+  public void setFileIndex(@Nullable FileIndex fileIndex) {
+    this.fileIndex = fileIndex;
+  }
+
+  @CheckForNull
+  public FileIndex getFileIndex() {
+    return fileIndex;
+  }
+
+  /**
+   * Saves the file index, if any. To be called once the files were analyzed, so that the content hashes computed during
+   * the analysis are saved along with the entries recorded by the walk.
+   */
+  public void saveFileIndex() {
+    if (fileIndex != null) {
+      fileIndex.save();
+    }
+  }
+
+  /**
+   * When set, only these files are candidates instead of all the files of the tree. They are still matched against the
+   * source, test and exclusion patterns.
+   */
+  public void setOnlyFiles(@Nullable Collection<Path> onlyFiles) {
+    this.onlyFiles = onlyFiles;
+  }
+
+  /**
+   * Files and directories known to have changed since the previous walk, like the ones reported by the file system
+   * watcher. Their entries in the file index are not trusted by the next walk, even if their timestamps didn't change.
+   * Used by the next walk only.
+   */
+  public void setChangedPaths(@Nullable Collection<Path> changedPaths) {
+    this.changedPaths = changedPaths;
+  }
+
+  /**
+   * When set, files and directories ignored by the <code>.gitignore</code> files of the project are skipped, and ignored
+   * directories are not walked at all.
+   */
+  public void setUseGitIgnore(boolean useGitIgnore) {
+    this.useGitIgnore = useGitIgnore;
+  }
+
+  /**
+   * Maximum total size of the files kept in the {@link SourceFileCache} of a run. With 0, files are read from disk each
+   * time their content is requested.
+   */
+  public void setSourceCacheSize(long sourceCacheSize) {
+    this.sourceCacheSize = sourceCacheSize;
+  }
+
+  /**
+   * When set, the charset of each file is detected instead of using the charset given to the constructor.
+   */
+  public void setCharsetDetector(@Nullable CharsetDetector charsetDetector) {
+    this.charsetDetector = charsetDetector;
+  }
+
+  @CheckForNull
+  public CharsetDetector getCharsetDetector() {
+    return charsetDetector;
+  }
+
+  /**
+   * Identifies how the found files are decoded and which of them are tests. Issues raised with another configuration
+   * must not be reused.
+   */
+  public String configurationFingerprint() {
+    String charsetName = charsetDetector != null ? ("auto/" + charset.name()) : charset.name();
+    return "charset=" + charsetName + "\ntests=" + (testsGlobPattern != null ? testsGlobPattern : "");
+  }
+
+  /**
+   * Files bigger than this size in bytes are not analyzed. No limit with 0.
+   */
+  public void setMaxFileSize(long maxFileSize) {
+    this.maxFileSize = maxFileSize;
+  }
+
+  /**
+   * When set, which is the default, binary files, having a NUL byte in their first bytes, are not analyzed.
+   */
+  public void setSkipBinaryFiles(boolean skipBinaryFiles) {
+    this.skipBinaryFiles = skipBinaryFiles;
+  }
+
+  /**
+   * The files found by a call share a new {@link SourceFileCache}, so that their content is read once per run.
+   */
   public List<ClientInputFile> collect(Path dir) throws IOException {
-    final List<ClientInputFile> files = new ArrayList<>();
-    Files.walkFileTree(dir, new FileCollector(dir, files));
+    GitIgnore gitIgnore = startWalk(dir);
+    List<ClientInputFile> files;
+    if (onlyFiles != null) {
+      files = collectOnly(dir, gitIgnore);
+    } else {
+      files = walk(dir, gitIgnore, null);
+    }
+    logSkippedFiles();
     return files;
   }
 
-  private class FileCollector extends SimpleFileVisitor<Path> {
-    private final List<ClientInputFile> files;
+  /**
+   * Same as {@link #collect(Path)}, except that each file is passed to the consumer as soon as it's found.
+   * With several discovery threads, the consumer is called concurrently and the order of the files is not deterministic.
+   */
+  public void collect(Path dir, Consumer<ClientInputFile> consumer) throws IOException {
+    GitIgnore gitIgnore = startWalk(dir);
+    if (onlyFiles != null) {
+      collectOnly(dir, gitIgnore).forEach(consumer);
+    } else {
+      walk(dir, gitIgnore, consumer);
+    }
+    logSkippedFiles();
+  }
+
+  @CheckForNull
+  private GitIgnore startWalk(Path dir) throws IOException {
+    sourceCache = sourceCacheSize > 0 ? new SourceFileCache(sourceCacheSize) : null;
+    if (fileIndex != null) {
+      fileIndex.setSourceCache(sourceCache);
+    }
+    skippedTooLarge.set(0);
+    skippedBinary.set(0);
+    // loaded for each walk, since the .gitignore files may have changed
+    return useGitIgnore ? GitIgnore.load(dir) : null;
+  }
+
+  private void logSkippedFiles() {
+    int tooLarge = skippedTooLarge.get();
+    int binary = skippedBinary.get();
+    if (tooLarge + binary > 0) {
+      String message = String.format("%d file(s) skipped: %d binary", tooLarge + binary, binary);
+      if (maxFileSize > 0) {
+        message += String.format(", %d larger than %d KB", tooLarge, maxFileSize / 1024);
+      }
+      LOGGER.info(message);
+    }
+  }
+
+  private List<ClientInputFile> collectOnly(Path dir, @Nullable GitIgnore gitIgnore) throws IOException {
+    Path normalizedDir = dir.toAbsolutePath().normalize();
+    List<Path> candidates = new ArrayList<>(onlyFiles);
+    Collections.sort(candidates);
+    List<ClientInputFile> files = new ArrayList<>();
+    for (Path candidate : candidates) {
+      Path normalized = candidate.toAbsolutePath().normalize();
+      if (!normalized.startsWith(normalizedDir) || !Files.isRegularFile(normalized, LinkOption.NOFOLLOW_LINKS)) {
+        continue;
+      }
+      Path file = dir.resolve(normalizedDir.relativize(normalized));
+      if (!isInIgnoredDirectory(dir, file, gitIgnore) && !isIgnoredFile(file, gitIgnore)) {
+        ClientInputFile inputFile = toInputFile(dir, file);
+        if (inputFile != null && hasAnalyzableContent(file, Files.size(file))) {
+          files.add(inputFile);
+        }
+      }
+    }
+    return files;
+  }
+
+  private boolean isInIgnoredDirectory(Path baseDir, Path file, @Nullable GitIgnore gitIgnore) throws IOException {
+    for (Path parent = file.getParent(); parent != null && parent.startsWith(baseDir); parent = parent.getParent()) {
+      if (isIgnoredDirectory(baseDir, parent, gitIgnore)) {
+        return true;
+      }
+      if (parent.equals(baseDir)) {
+        break;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param sink if not null, receives the files as they are found instead of the returned list
+   */
+  private List<ClientInputFile> walk(Path dir, @Nullable GitIgnore gitIgnore, @Nullable Consumer<ClientInputFile> sink) throws IOException {
+    if (fileIndex != null) {
+      fileIndex.startScan();
+      if (changedPaths != null) {
+        fileIndex.forget(changedPaths);
+      }
+    }
+    changedPaths = null;
+    DirectoryCollector rootCollector = new DirectoryCollector(dir, dir, gitIgnore, sink);
+    if (discoveryThreads <= 1) {
+      try {
+        return rootCollector.compute();
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(discoveryThreads);
+    try {
+      return pool.invoke(rootCollector);
+    } catch (UncheckedIOException e) {
+      // fork-join may re-wrap the exception thrown by the worker thread
+      Throwable cause = e;
+      while (cause instanceof UncheckedIOException) {
+        cause = cause.getCause();
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw e;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static boolean isIgnoredDirectory(Path baseDir, Path dir, @Nullable GitIgnore gitIgnore) throws IOException {
+    if (Files.isHidden(dir)) {
+      LOGGER.debug("Ignoring hidden directory: " + dir.toString());
+      return true;
+    }
+    // the analyzed directory itself is never ignored
+    if (gitIgnore != null && !dir.equals(baseDir) && gitIgnore.isIgnored(dir, true)) {
+      LOGGER.debug("Ignoring directory excluded by .gitignore: " + dir.toString());
+      return true;
+    }
+    return false;
+  }
+
+  private static boolean isIgnoredFile(Path file, @Nullable GitIgnore gitIgnore) {
+    return gitIgnore != null && gitIgnore.isIgnored(file, false);
+  }
+
+  /**
+   * Whether the content of a file matching the patterns can be analyzed, counting the skipped files.
+   */
+  private boolean hasAnalyzableContent(Path file, long size) {
+    if (maxFileSize > 0 && size > maxFileSize) {
+      LOGGER.debug(String.format("Skipping file larger than %d KB (%d bytes): %s", maxFileSize / 1024, size, file));
+      skippedTooLarge.incrementAndGet();
+      return false;
+    }
+    if (skipBinaryFiles && size > 0 && isBinary(file, size)) {
+      LOGGER.debug("Skipping binary file: " + file);
+      skippedBinary.incrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Looks for a NUL byte in the first bytes of the file. They are taken from the {@link SourceFileCache} when the file fits
+   * in it, so that the analysis doesn't read the file again.
+   */
+  private boolean isBinary(Path file, long size) {
+    try {
+      return sourceCache != null && size <= sourceCacheSize ? sourceCache.read(file, InputFileFinder::isBinary) : isBinary(readHead(file));
+    } catch (IOException e) {
+      // reported by the analysis
+      return false;
+    }
+  }
+
+  private static boolean isBinary(ByteBuffer head) {
+    int length = Math.min(head.remaining(), BINARY_SNIFF_LENGTH);
+    int start = head.position();
+    boolean utf16Bom = length >= 2 && ((head.get(start) == (byte) 0xfe && head.get(start + 1) == (byte) 0xff)
+      || (head.get(start) == (byte) 0xff && head.get(start + 1) == (byte) 0xfe));
+    if (utf16Bom) {
+      return false;
+    }
+    for (int i = start; i < start + length; i++) {
+      if (head.get(i) == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static ByteBuffer readHead(Path file) throws IOException {
+    byte[] head = new byte[BINARY_SNIFF_LENGTH];
+    int length = 0;
+    try (InputStream in = Files.newInputStream(file)) {
+      int read;
+      while (length < head.length && (read = in.read(head, length, head.length - length)) != -1) {
+        length += read;
+      }
+    }
+    return ByteBuffer.wrap(head, 0, length);
+  }
+
+  @CheckForNull
+  private ClientInputFile toInputFile(Path baseDir, Path absoluteFilePath) {
+    GlobMatcher.Candidate candidate = new GlobMatcher.Candidate(absoluteFilePath, baseDir.relativize(absoluteFilePath));
+    boolean isSrc = srcMatcher == null || srcMatcher.matches(candidate);
+    if (!isSrc || (excludeMatcher != null && excludeMatcher.matches(candidate))) {
+      return null;
+    }
+    boolean isTest = testsMatcher != null && testsMatcher.matches(candidate);
+    if (charsetDetector != null) {
+      return new DefaultClientInputFile(absoluteFilePath, isTest, charsetDetector, sourceCache);
+    }
+    return new DefaultClientInputFile(absoluteFilePath, isTest, charset, sourceCache);
+  }
+
+  /**
+   * Collects the files of one directory and forks a subtask per sub-directory, or runs the subtasks in the current thread
+   * when discovery uses a single thread.
+   * Files of the directory come first, followed by the files of each sub-directory, everything sorted by name.
+   */
+  private class DirectoryCollector extends RecursiveTask<List<ClientInputFile>> {
     private final Path baseDir;
+    private final Path dir;
+    private final GitIgnore gitIgnore;
+    private final Consumer<ClientInputFile> sink;
 
-    private FileCollector(Path baseDir, List<ClientInputFile> files) {
+    private DirectoryCollector(Path baseDir, Path dir, @Nullable GitIgnore gitIgnore, @Nullable Consumer<ClientInputFile> sink) {
       this.baseDir = baseDir;
-      this.files = files;
+      this.dir = dir;
+      this.gitIgnore = gitIgnore;
+      this.sink = sink;
     }
 
     @Override
-    public FileVisitResult visitFile(final Path file, BasicFileAttributes attrs) throws IOException {
-      Path absoluteFilePath = file;
-      Path relativeFilePath = baseDir.relativize(absoluteFilePath);
-      boolean isSrc = srcMatcher.matches(absoluteFilePath) || srcMatcher.matches(relativeFilePath);
-      boolean isExcluded = excludeMatcher.matches(absoluteFilePath) || excludeMatcher.matches(relativeFilePath);
-      if (isSrc && !isExcluded) {
-        boolean isTest = testsMatcher.matches(absoluteFilePath) || testsMatcher.matches(relativeFilePath);
-        files.add(new DefaultClientInputFile(absoluteFilePath, isTest, charset));
-      }
+    protected List<ClientInputFile> compute() {
+      try {
+        if (isIgnoredDirectory(baseDir, dir, gitIgnore)) {
+          return Collections.emptyList();
+        }
 
-      return super.visitFile(absoluteFilePath, attrs);
+        List<ClientInputFile> files = new ArrayList<>();
+        List<DirectoryCollector> subTasks = new ArrayList<>();
+        Map<String, BasicFileAttributes> listedAttributes = new HashMap<>();
+        for (FileIndex.Child child : listSorted(dir, listedAttributes)) {
+          Path entry = dir.resolve(child.name());
+          if (child.isDirectory()) {
+            subTasks.add(new DirectoryCollector(baseDir, entry, gitIgnore, sink));
+          } else if (!isIgnoredFile(entry, gitIgnore)) {
+            ClientInputFile inputFile = toInputFile(baseDir, entry);
+            if (inputFile != null) {
+              BasicFileAttributes attrs = listedAttributes.get(child.name());
+              if (attrs == null) {
+                attrs = readAttributes(entry);
+              }
+              if (fileIndex != null) {
+                fileIndex.recordFile(entry, attrs);
+              }
+              if (!hasAnalyzableContent(entry, attrs.size())) {
+                continue;
+              }
+              if (sink != null) {
+                sink.accept(inputFile);
+              } else {
+                files.add(inputFile);
+              }
+            }
+          }
+        }
+
+        if (discoveryThreads > 1) {
+          invokeAll(subTasks);
+          for (DirectoryCollector subTask : subTasks) {
+            files.addAll(subTask.join());
+          }
+        } else {
+          for (DirectoryCollector subTask : subTasks) {
+            files.addAll(subTask.compute());
+          }
+        }
+        return files;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
     }
 
-    @Override
-    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-      if (Files.isHidden(dir)) {
-        LOGGER.debug("Ignoring hidden directory: " + dir.toString());
-        return FileVisitResult.SKIP_SUBTREE;
+    /**
+     * @param listedAttributes receives the attributes of the children read while listing the directory, if it is listed
+     */
+    private List<FileIndex.Child> listSorted(Path directory, Map<String, BasicFileAttributes> listedAttributes) throws IOException {
+      BasicFileAttributes dirAttrs = null;
+      if (fileIndex != null) {
+        dirAttrs = readAttributes(directory);
+        List<FileIndex.Child> cached = fileIndex.cachedListing(directory, dirAttrs);
+        if (cached != null) {
+          return cached;
+        }
+      }
+
+      List<Path> entries = new ArrayList<>();
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+        for (Path entry : stream) {
+          entries.add(entry);
+        }
       }
+      Collections.sort(entries);
 
-      return super.preVisitDirectory(dir, attrs);
+      List<FileIndex.Child> children = new ArrayList<>(entries.size());
+      for (Path entry : entries) {
+        String name = entry.getFileName().toString();
+        BasicFileAttributes attrs = readAttributes(entry);
+        listedAttributes.put(name, attrs);
+        children.add(new FileIndex.Child(name, attrs.isDirectory()));
+      }
+      if (fileIndex != null) {
+        fileIndex.recordListing(directory, dirAttrs, children);
+      }
+      return children;
     }
   }
 
+  private static BasicFileAttributes readAttributes(Path path) throws IOException {
+    // same as Files.walkFileTree: symbolic links are not followed
+    return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+  }
+
   public static class DefaultClientInputFile implements ClientInputFile {
     private final Path path;
     private final boolean test;
-    private final Charset charset;
+    private final SourceFileCache sourceCache;
+    private final CharsetDetector charsetDetector;
+    private volatile Charset charset;
 
     public DefaultClientInputFile(Path path, boolean test, Charset charset) {
+      this(path, test, charset, null);
+    }
+
+    /**
+     * @param sourceCache if not null, the content is read through the cache shared by the files of the run
+     */
+    public DefaultClientInputFile(Path path, boolean test, Charset charset, @Nullable SourceFileCache sourceCache) {
       this.path = path;
       this.test = test;
       this.charset = charset;
+      this.sourceCache = sourceCache;
+      this.charsetDetector = null;
+    }
+
+    /**
+     * The charset is detected the first time it's needed.
+     */
+    public DefaultClientInputFile(Path path, boolean test, CharsetDetector charsetDetector, @Nullable SourceFileCache sourceCache) {
+      this.path = path;
+      this.test = test;
+      this.sourceCache = sourceCache;
+      this.charsetDetector = charsetDetector;
     }
 
     @Override
@@ -147,7 +576,13 @@ public class InputFileFinder {
 
     @Override
     public Charset getCharset() {
-      return charset;
+      Charset result = charset;
+      if (result == null) {
+        // detection is idempotent, a concurrent call may only do it twice
+        result = charsetDetector.detect(path, sourceCache);
+        charset = result;
+      }
+      return result;
     }
 
     @Override
@@ -157,12 +592,18 @@ public class InputFileFinder {
 
     @Override
     public InputStream inputStream() throws IOException {
+      if (sourceCache != null) {
+        return sourceCache.inputStream(path);
+      }
       return Files.newInputStream(path);
     }
 
     @Override
     public String contents() throws IOException {
-      return new String(Files.readAllBytes(path), charset);
+      if (sourceCache != null) {
+        return sourceCache.contents(path, getCharset());
+      }
+      return new String(Files.readAllBytes(path), getCharset());
     }
   }
 }
@@ -29,10 +29,20 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.sonarlint.cli.analysis.IssueCache;
+import org.sonarlint.cli.analysis.SeverityGate;
+import org.sonarlint.cli.analysis.Shard;
+import org.sonarlint.cli.analysis.SharedSonarLintFactory;
 import org.sonarlint.cli.analysis.SonarLint;
 import org.sonarlint.cli.analysis.SonarLintFactory;
 import org.sonarlint.cli.config.ConfigurationReader;
+import org.sonarlint.cli.git.GitRepository;
+import org.sonarlint.cli.report.IssueThresholds;
 import org.sonarlint.cli.report.ReportFactory;
 import org.sonarlint.cli.util.Logger;
 import org.sonarlint.cli.util.System2;
@@ -44,12 +54,25 @@ import static org.sonarlint.cli.SonarProperties.PROJECT_HOME;
 public class Main {
   static final int SUCCESS = 0;
   static final int ERROR = 1;
+  static final int SEVERITY_GATE_FAILED = 2;
+  static final int MAX_ISSUES_EXCEEDED = 3;
+  static final int MAX_NEW_ISSUES_EXCEEDED = 4;
+
+  static final String MERGE_TASK = "merge";
+
+  private static final String WORK_DIR = ".sonarlint";
+  private static final String FILE_INDEX_PATH = WORK_DIR + "/file-index";
+  private static final String CHARSET_CACHE_PATH = WORK_DIR + "/charsets";
+  private static final String ISSUE_CACHE_PATH = WORK_DIR + "/issue-cache";
+  private static final long WATCH_QUIET_PERIOD_MILLIS = 300;
 
   private static final Logger LOGGER = Logger.get();
 
   private final Options opts;
   private final ReportFactory reportFactory;
   private BufferedReader inputReader;
+  private SeverityGate severityGate = null;
+  private IssueThresholds issueThresholds = null;
   private final InputFileFinder fileFinder;
   private final Path projectHome;
   private final SonarLintFactory sonarLintFactory;
@@ -74,6 +97,12 @@ public class Main {
     }
 
     reportFactory.setHtmlPath(opts.htmlReport());
+    reportFactory.setHtmlReportEnabled(!opts.isNoHtmlReport());
+    reportFactory.setHtmlReportStreaming(opts.isStreamingHtmlReport());
+    if (!opts.maxIssues().isEmpty() || opts.maxNewIssues() >= 0) {
+      issueThresholds = new IssueThresholds(opts.maxIssues(), opts.maxNewIssues());
+      reportFactory.setIssueThresholds(issueThresholds);
+    }
 
     LOGGER.setDebugEnabled(opts.isVerbose());
     LOGGER.setDisplayStackTrace(opts.showStack());
@@ -85,26 +114,95 @@ public class Main {
     }
 
     Stats stats = new Stats();
+    SonarLint sonarLint = null;
     try {
-      SonarLint sonarLint = sonarLintFactory.createSonarLint(projectHome, opts.isUpdate(), opts.isVerbose());
+      if (opts.changedSince() != null) {
+        fileFinder.setOnlyFiles(changedFiles(opts.changedSince()));
+      }
+      sonarLint = sonarLintFactory.createSonarLint(projectHome, opts.isUpdate(), opts.isVerbose());
       sonarLint.start(opts.isUpdate());
+      sonarLint.setJobs(Math.max(1, opts.jobs()));
+      if (opts.shardCount() > 0) {
+        sonarLint.setShard(new Shard(opts.shardIndex(), opts.shardCount()));
+      }
+      if (opts.batchSize() > 0) {
+        sonarLint.setBatchSize(opts.batchSize());
+      }
+      if (opts.failOn() != null) {
+        severityGate = new SeverityGate(opts.failOn(), opts.isFailFast());
+        sonarLint.setSeverityGate(severityGate);
+      }
+      if (opts.isIncremental() || opts.isWatch()) {
+        sonarLint.setIssueCache(IssueCache.load(projectHome.resolve(ISSUE_CACHE_PATH), fileFinder.getFileIndex()));
+      }
 
       Map<String, String> props = Util.toMap(opts.properties());
 
-      if (opts.isInteractive()) {
+      if (MERGE_TASK.equals(opts.task())) {
+        runMerge(stats, sonarLint, projectHome);
+      } else if (opts.isWatch()) {
+        runWatch(stats, sonarLint, props, projectHome);
+      } else if (opts.isInteractive()) {
         runInteractive(stats, sonarLint, props, projectHome);
       } else {
         runOnce(stats, sonarLint, props, projectHome);
       }
     } catch (Exception e) {
-      displayExecutionResult(stats, "FAILURE");
-      showError("Error executing SonarLint", e, opts.showStack(), opts.isVerbose());
-      return ERROR;
+      try {
+        displayExecutionResult(stats, "FAILURE");
+        if (severityGate != null && opts.isFailFast() && severityGate.isFailed()) {
+          // aborted by --fail-fast
+          LOGGER.error(severityGateMessage());
+          return SEVERITY_GATE_FAILED;
+        }
+        showError("Error executing SonarLint", e, opts.showStack(), opts.isVerbose());
+        return ERROR;
+      } finally {
+        stopAfterFailure(sonarLint);
+      }
     }
 
+    if (severityGate != null && severityGate.isFailed()) {
+      LOGGER.error(severityGateMessage());
+      return SEVERITY_GATE_FAILED;
+    }
+    if (issueThresholds != null && issueThresholds.isMaxIssuesExceeded()) {
+      return MAX_ISSUES_EXCEEDED;
+    }
+    if (issueThresholds != null && issueThresholds.isMaxNewIssuesExceeded()) {
+      return MAX_NEW_ISSUES_EXCEEDED;
+    }
     return SUCCESS;
   }
 
+  /**
+   * Ends an execution that failed, so that a shared instance doesn't keep its settings for the next execution.
+   */
+  private static void stopAfterFailure(@Nullable SonarLint sonarLint) {
+    if (sonarLint == null) {
+      return;
+    }
+    try {
+      sonarLint.stop();
+    } catch (Exception e) {
+      LOGGER.debug("Error stopping SonarLint after a failure", e);
+    }
+  }
+
+  private String severityGateMessage() {
+    return String.format("%d issue(s) with severity %s or higher found%s", severityGate.matchingIssues(), severityGate.threshold(),
+      opts.isFailFast() ? ", analysis aborted" : "");
+  }
+
+  private List<Path> changedFiles(String revision) throws IOException {
+    try (GitRepository repository = GitRepository.find(projectHome)) {
+      if (repository == null) {
+        throw new IllegalStateException("Option --changed-since requires a git repository, none found for " + projectHome);
+      }
+      return repository.changedFiles(revision);
+    }
+  }
+
   private static Path getProjectHome(System2 system) {
     String projectHome = system.getProperty(PROJECT_HOME);
     if (projectHome == null) {
@@ -113,9 +211,39 @@ public class Main {
     return Paths.get(projectHome);
   }
 
+  private void runAnalysis(SonarLint sonarLint, Map<String, String> props, Path projectHome) {
+    if (severityGate != null) {
+      severityGate.reset();
+    }
+    sonarLint.runAnalysis(props, reportFactory, fileFinder, projectHome);
+    // charsets are detected during the analysis and the generation of reports
+    CharsetDetector charsetDetector = fileFinder.getCharsetDetector();
+    if (charsetDetector != null) {
+      charsetDetector.save();
+    }
+  }
+
   private void runOnce(Stats stats, SonarLint sonarLint, Map<String, String> props, Path projectHome) throws IOException {
     stats.start();
-    sonarLint.runAnalysis(props, reportFactory, fileFinder, projectHome);
+    runAnalysis(sonarLint, props, projectHome);
+    sonarLint.stop();
+    displayExecutionResult(stats, "SUCCESS");
+  }
+
+  private void runMerge(Stats stats, SonarLint sonarLint, Path projectHome) throws IOException {
+    stats.start();
+    List<Path> partials = new ArrayList<>();
+    if (opts.partials() != null) {
+      for (String partial : opts.partials().split(",")) {
+        partials.add(projectHome.resolve(partial.trim()));
+      }
+    } else {
+      partials.addAll(Shard.findOutputFiles(projectHome));
+    }
+    if (partials.isEmpty()) {
+      throw new IllegalStateException("No partial results to merge");
+    }
+    sonarLint.mergeResults(partials, reportFactory, projectHome);
     sonarLint.stop();
     displayExecutionResult(stats, "SUCCESS");
   }
@@ -123,13 +251,40 @@ public class Main {
   private void runInteractive(Stats stats, SonarLint sonarLint, Map<String, String> props, Path projectHome) throws IOException {
     do {
       stats.start();
-      sonarLint.runAnalysis(props, reportFactory, fileFinder, projectHome);
+      runAnalysis(sonarLint, props, projectHome);
       displayExecutionResult(stats, "SUCCESS");
     } while (waitForUser());
 
     sonarLint.stop();
   }
 
+  /**
+   * Analyzes again each time files change. Issues of the files that didn't change are taken from the issue cache.
+   */
+  private void runWatch(Stats stats, SonarLint sonarLint, Map<String, String> props, Path projectHome) throws IOException {
+    // the reports and the working directory are written by each analysis and must not trigger a new one
+    List<Path> ignoredPaths = new ArrayList<>(reportFactory.getReportPaths(projectHome));
+    ignoredPaths.add(projectHome.resolve(WORK_DIR));
+    try (ProjectWatcher watcher = new ProjectWatcher(projectHome, WATCH_QUIET_PERIOD_MILLIS, ignoredPaths)) {
+      while (true) {
+        stats.start();
+        runAnalysis(sonarLint, props, projectHome);
+        displayExecutionResult(stats, "SUCCESS");
+        LOGGER.info("");
+        LOGGER.info("<Watching for changes, press Ctrl+C to exit the watch mode>");
+        Set<Path> changes = watcher.awaitChanges();
+        LOGGER.info(String.format("%d change(s) detected", changes.size()));
+        for (Path changed : changes) {
+          LOGGER.debug("Changed: " + changed);
+        }
+        fileFinder.setChangedPaths(changes);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    sonarLint.stop();
+  }
+
   private boolean waitForUser() throws IOException {
     if (inputReader == null) {
       inputReader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
@@ -150,6 +305,10 @@ public class Main {
 
   @VisibleForTesting
   static void execute(String[] args, System2 system) {
+    execute(args, system, new SonarLintFactory(new ConfigurationReader()));
+  }
+
+  static void execute(String[] args, System2 system, SonarLintFactory sonarLintFactory) {
     Options parsedOpts;
     try {
       parsedOpts = Options.parse(args);
@@ -161,8 +320,11 @@ public class Main {
     }
 
     Charset charset;
+    boolean detectCharset = CharsetDetector.AUTO.equalsIgnoreCase(parsedOpts.charset());
     try {
-      if (parsedOpts.charset() != null) {
+      if (detectCharset) {
+        charset = CharsetDetector.defaultFallback();
+      } else if (parsedOpts.charset() != null) {
         charset = Charset.forName(parsedOpts.charset());
       } else {
         charset = Charset.defaultCharset();
@@ -174,11 +336,44 @@ public class Main {
     }
 
     InputFileFinder fileFinder = new InputFileFinder(parsedOpts.src(), parsedOpts.tests(), parsedOpts.exclusions(), charset);
+    fileFinder.setDiscoveryThreads(parsedOpts.discoveryThreads());
+    fileFinder.setUseGitIgnore(parsedOpts.useGitIgnore());
+    fileFinder.setMaxFileSize(parsedOpts.maxFileSize() * 1024L);
+    fileFinder.setSkipBinaryFiles(!parsedOpts.isNoBinaryDetection());
+    if (parsedOpts.sourceCacheSize() >= 0) {
+      fileFinder.setSourceCacheSize(parsedOpts.sourceCacheSize() * 1024L * 1024L);
+    }
     ReportFactory reportFactory = new ReportFactory(charset);
-    ConfigurationReader reader = new ConfigurationReader();
-    SonarLintFactory sonarLintFactory = new SonarLintFactory(reader);
 
-    int ret = new Main(parsedOpts, sonarLintFactory, reportFactory, fileFinder, getProjectHome(system)).run();
+    if (parsedOpts.isWarmup()) {
+      system.exit(Warmup.run(parsedOpts, sonarLintFactory, charset));
+      return;
+    }
+
+    Path projectHome = getProjectHome(system);
+
+    if (Daemon.TASK.equals(parsedOpts.task())) {
+      system.exit(new Daemon(new SharedSonarLintFactory(new ConfigurationReader()), Daemon.defaultStateFile()).run());
+      return;
+    }
+
+    if (parsedOpts.useDaemon() && !parsedOpts.isInteractive() && !parsedOpts.isWatch()) {
+      Integer ret = DaemonClient.forward(Daemon.defaultStateFile(), projectHome, args);
+      if (ret != null) {
+        system.exit(ret);
+        return;
+      }
+      LOGGER.warn("No SonarLint daemon running, analyzing in this process");
+    }
+    if (detectCharset) {
+      fileFinder.setCharsetDetector(CharsetDetector.load(projectHome.resolve(CHARSET_CACHE_PATH), charset));
+    }
+    if (parsedOpts.useFileIndex() || parsedOpts.isIncremental() || parsedOpts.isWatch()) {
+      fileFinder.setFileIndex(FileIndex.load(projectHome.resolve(FILE_INDEX_PATH)));
+    }
+
+    sonarLintFactory.setLazyPluginLoading(parsedOpts.useLazyPlugins());
+    int ret = new Main(parsedOpts, sonarLintFactory, reportFactory, fileFinder, projectHome).run();
     system.exit(ret);
     return;
   }
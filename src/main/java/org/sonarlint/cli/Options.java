@@ -20,11 +20,17 @@
 package org.sonarlint.cli;
 
 import java.text.ParseException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import org.sonarlint.cli.report.Severity;
 import org.sonarlint.cli.util.Logger;
 
 public class Options {
   private static final Logger LOGGER = Logger.get();
+  static final String USE_DAEMON = "--use-daemon";
+
   private Properties props = new Properties();
   private boolean verbose = false;
   private boolean help = false;
@@ -37,6 +43,29 @@ public class Options {
   private String exclusions = "";
   private String charset = null;
   private boolean update = false;
+  private int discoveryThreads = 1;
+  private int jobs = 1;
+  private int shardIndex = 0;
+  private int shardCount = 0;
+  private String partials = null;
+  private String changedSince = null;
+  private boolean fileIndex = false;
+  private boolean useGitIgnore = false;
+  private boolean lazyPlugins = false;
+  private int batchSize = 0;
+  private int sourceCacheSize = -1;
+  private int maxFileSize = 0;
+  private boolean incremental = false;
+  private boolean useDaemon = false;
+  private boolean watch = false;
+  private boolean warmup = false;
+  private Severity failOn = null;
+  private boolean failFast = false;
+  private Map<Severity, Integer> maxIssues = new EnumMap<>(Severity.class);
+  private int maxNewIssues = -1;
+  private boolean noHtmlReport = false;
+  private boolean streamingHtmlReport = false;
+  private boolean noBinaryDetection = false;
   private String task;
 
   public static Options parse(String[] args) throws ParseException {
@@ -65,6 +94,39 @@ public class Options {
       } else if ("-u".equals(arg) || "--update".equals(arg)) {
         options.update = true;
 
+      } else if ("--file-index".equals(arg)) {
+        options.fileIndex = true;
+
+      } else if ("--use-gitignore".equals(arg)) {
+        options.useGitIgnore = true;
+
+      } else if ("--lazy-plugins".equals(arg)) {
+        options.lazyPlugins = true;
+
+      } else if ("--incremental".equals(arg)) {
+        options.incremental = true;
+
+      } else if ("--watch".equals(arg)) {
+        options.watch = true;
+
+      } else if ("--warmup".equals(arg)) {
+        options.warmup = true;
+
+      } else if ("--fail-fast".equals(arg)) {
+        options.failFast = true;
+
+      } else if ("--no-html-report".equals(arg)) {
+        options.noHtmlReport = true;
+
+      } else if ("--streaming-html-report".equals(arg)) {
+        options.streamingHtmlReport = true;
+
+      } else if ("--no-binary-detection".equals(arg)) {
+        options.noBinaryDetection = true;
+
+      } else if (USE_DAEMON.equals(arg)) {
+        options.useDaemon = true;
+
       } else if (arg.startsWith("-D") && !"-D".equals(arg)) {
         arg = arg.substring(2);
         appendPropertyTo(arg, options.props);
@@ -92,6 +154,50 @@ public class Options {
           checkAdditionalArg(i, args.length, arg);
           options.exclusions = args[i];
 
+        } else if ("--discovery-threads".equals(arg)) {
+          checkAdditionalArg(i, args.length, arg);
+          options.discoveryThreads = parsePositiveInt(args[i], arg, i);
+
+        } else if ("--jobs".equals(arg)) {
+          checkAdditionalArg(i, args.length, arg);
+          options.jobs = parsePositiveInt(args[i], arg, i);
+
+        } else if ("--batch-size".equals(arg)) {
+          checkAdditionalArg(i, args.length, arg);
+          options.batchSize = parsePositiveInt(args[i], arg, i);
+
+        } else if ("--max-file-size".equals(arg)) {
+          checkAdditionalArg(i, args.length, arg);
+          options.maxFileSize = parsePositiveInt(args[i], arg, i);
+
+        } else if ("--source-cache-size".equals(arg)) {
+          checkAdditionalArg(i, args.length, arg);
+          options.sourceCacheSize = parseNonNegativeInt(args[i], arg, i);
+
+        } else if ("--shard".equals(arg)) {
+          checkAdditionalArg(i, args.length, arg);
+          parseShard(options, args[i], arg, i);
+
+        } else if ("--fail-on".equals(arg)) {
+          checkAdditionalArg(i, args.length, arg);
+          options.failOn = parseSeverity(args[i], arg, i);
+
+        } else if ("--max-issues".equals(arg)) {
+          checkAdditionalArg(i, args.length, arg);
+          options.maxIssues = parseMaxIssues(args[i], arg, i);
+
+        } else if ("--max-new-issues".equals(arg)) {
+          checkAdditionalArg(i, args.length, arg);
+          options.maxNewIssues = parseNonNegativeInt(args[i], arg, i);
+
+        } else if ("--changed-since".equals(arg)) {
+          checkAdditionalArg(i, args.length, arg);
+          options.changedSince = args[i];
+
+        } else if ("--partials".equals(arg)) {
+          checkAdditionalArg(i, args.length, arg);
+          options.partials = args[i];
+
         } else if ("-D".equals(arg) || "--define".equals(arg)) {
           checkAdditionalArg(i, args.length, arg);
           appendPropertyTo(args[i], options.props);
@@ -102,6 +208,9 @@ public class Options {
       }
     }
 
+    if (options.failFast && options.failOn == null) {
+      throw new ParseException("Option --fail-fast requires --fail-on", args.length);
+    }
     return options;
   }
 
@@ -111,6 +220,54 @@ public class Options {
     }
   }
 
+  private static int parsePositiveInt(String value, String arg, int i) throws ParseException {
+    try {
+      int parsed = Integer.parseInt(value);
+      if (parsed > 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      // handled below
+    }
+    throw new ParseException("Invalid value for option " + arg + ": " + value, i);
+  }
+
+  private static int parseNonNegativeInt(String value, String arg, int i) throws ParseException {
+    return "0".equals(value) ? 0 : parsePositiveInt(value, arg, i);
+  }
+
+  private static Severity parseSeverity(String value, String arg, int i) throws ParseException {
+    try {
+      return Severity.create(value.toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      throw new ParseException("Invalid value for option " + arg + ": " + value, i);
+    }
+  }
+
+  private static Map<Severity, Integer> parseMaxIssues(String value, String arg, int i) throws ParseException {
+    Map<Severity, Integer> maxIssues = new EnumMap<>(Severity.class);
+    for (String limit : value.split(",")) {
+      int equals = limit.indexOf('=');
+      if (equals <= 0) {
+        throw new ParseException("Invalid value for option " + arg + ": " + value, i);
+      }
+      maxIssues.put(parseSeverity(limit.substring(0, equals).trim(), arg, i), parseNonNegativeInt(limit.substring(equals + 1).trim(), arg, i));
+    }
+    return maxIssues;
+  }
+
+  private static void parseShard(Options options, String value, String arg, int i) throws ParseException {
+    int slash = value.indexOf('/');
+    if (slash > 0) {
+      options.shardIndex = parsePositiveInt(value.substring(0, slash), arg, i);
+      options.shardCount = parsePositiveInt(value.substring(slash + 1), arg, i);
+      if (options.shardIndex <= options.shardCount) {
+        return;
+      }
+    }
+    throw new ParseException("Invalid value for option " + arg + ": " + value, i);
+  }
+
   public boolean isVerbose() {
     return verbose;
   }
@@ -143,6 +300,119 @@ public class Options {
     return exclusions;
   }
 
+  public int discoveryThreads() {
+    return discoveryThreads;
+  }
+
+  public int jobs() {
+    return jobs;
+  }
+
+  /**
+   * Size of the batches analyzed while files are being discovered, or 0 to analyze all files once discovered
+   */
+  public int batchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Maximum size in KB of the files to analyze, or 0 for no limit
+   */
+  public int maxFileSize() {
+    return maxFileSize;
+  }
+
+  /**
+   * Maximum size in MB of the source files kept in memory during a run, 0 to disable the cache or -1 for the default size
+   */
+  public int sourceCacheSize() {
+    return sourceCacheSize;
+  }
+
+  /**
+   * 1-based index of the shard to analyze, or 0 to analyze all files
+   */
+  public int shardIndex() {
+    return shardIndex;
+  }
+
+  public int shardCount() {
+    return shardCount;
+  }
+
+  public String partials() {
+    return partials;
+  }
+
+  public String changedSince() {
+    return changedSince;
+  }
+
+  public boolean useFileIndex() {
+    return fileIndex;
+  }
+
+  public boolean useGitIgnore() {
+    return useGitIgnore;
+  }
+
+  public boolean useLazyPlugins() {
+    return lazyPlugins;
+  }
+
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  public boolean isWatch() {
+    return watch;
+  }
+
+  public boolean isWarmup() {
+    return warmup;
+  }
+
+  /**
+   * Lowest severity of the issues that make the execution fail, or null
+   */
+  public Severity failOn() {
+    return failOn;
+  }
+
+  public boolean isFailFast() {
+    return failFast;
+  }
+
+  /**
+   * Maximum number of issues of each severity, only for the severities having a maximum
+   */
+  public Map<Severity, Integer> maxIssues() {
+    return maxIssues;
+  }
+
+  /**
+   * Maximum number of new issues, or -1 for no maximum
+   */
+  public int maxNewIssues() {
+    return maxNewIssues;
+  }
+
+  public boolean isNoHtmlReport() {
+    return noHtmlReport;
+  }
+
+  public boolean isStreamingHtmlReport() {
+    return streamingHtmlReport;
+  }
+
+  public boolean isNoBinaryDetection() {
+    return noBinaryDetection;
+  }
+
+  public boolean useDaemon() {
+    return useDaemon;
+  }
+
   public boolean isUpdate() {
     return update;
   }
@@ -166,6 +436,8 @@ public class Options {
   public static void printUsage() {
     LOGGER.info("");
     LOGGER.info("usage: sonarlint [options]");
+    LOGGER.info("       sonarlint daemon [options]");
+    LOGGER.info("       sonarlint merge [options]");
     LOGGER.info("");
     LOGGER.info("Options:");
     LOGGER.info(" -u,--update              Update binding with SonarQube server before analysis");
@@ -176,10 +448,32 @@ public class Options {
     LOGGER.info(" -X,--debug               Produce execution debug output");
     LOGGER.info(" -i,--interactive         Run interactively");
     LOGGER.info(" --html-report <path>     HTML report output path (relative or absolute)");
-    LOGGER.info(" --src <glob pattern>     GLOB pattern to identify source files");
-    LOGGER.info(" --tests <glob pattern>   GLOB pattern to identify test files");
-    LOGGER.info(" --exclude <glob pattern> GLOB pattern to exclude files");
-    LOGGER.info(" --charset <name>         Character encoding of the source files");
+    LOGGER.info(" --src <glob pattern>     GLOB pattern to identify source files (comma-separated for several)");
+    LOGGER.info(" --tests <glob pattern>   GLOB pattern to identify test files (comma-separated for several)");
+    LOGGER.info(" --exclude <glob pattern> GLOB pattern to exclude files (comma-separated for several)");
+    LOGGER.info(" --charset <name>         Character encoding of the source files, 'auto' to detect it for each file");
+    LOGGER.info(" --changed-since <rev>    Only analyze the files added or modified since the git revision");
+    LOGGER.info(" --use-gitignore          Skip the files and directories ignored by .gitignore files");
+    LOGGER.info(" --lazy-plugins           Only load the analyzers of the languages of the analyzed files");
+    LOGGER.info(" --discovery-threads <n>  Number of threads used to find the files to analyze");
+    LOGGER.info(" --jobs <n>               Number of engines analyzing files concurrently");
+    LOGGER.info(" --batch-size <n>         Analyze files in batches of n while the others are still being discovered");
+    LOGGER.info(" --max-file-size <KB>     Skip the files bigger than this size");
+    LOGGER.info(" --no-binary-detection    Don't skip the files having a NUL byte in their first 8000 bytes");
+    LOGGER.info(" --source-cache-size <MB> Memory used to share the content of source files between analysis and reports");
+    LOGGER.info(" --shard <i/n>            Only analyze the i-th of n parts of the files and write partial results");
+    LOGGER.info(" --partials <paths>       Comma-separated partial results to merge (default: all found in .sonarlint)");
+    LOGGER.info(" --file-index             Keep an index of the project files to speed up their discovery");
+    LOGGER.info(" --incremental            Only analyze the files that changed since the previous analysis");
+    LOGGER.info(" --watch                  Analyze again the files that change, until interrupted");
+    LOGGER.info(" --fail-on <severity>     Fail if an issue of this severity or higher is reported (INFO, MINOR, MAJOR, CRITICAL, BLOCKER)");
+    LOGGER.info(" --fail-fast              With --fail-on, abort the analysis as soon as such an issue is found");
+    LOGGER.info(" --max-issues <SEV=n,..>  Exit with code 3 if there are more issues of a severity, e.g. BLOCKER=0,CRITICAL=10");
+    LOGGER.info(" --max-new-issues <n>     Exit with code 4 if there are more issues not found on the server");
+    LOGGER.info(" --no-html-report         Don't generate the HTML report");
+    LOGGER.info(" --streaming-html-report  Write the HTML report file by file to bound its memory usage");
+    LOGGER.info(" --warmup                 Analyze sample files to create the class data sharing archive used by the launcher");
+    LOGGER.info(" --use-daemon             Run the analysis in the daemon started with 'sonarlint daemon', if any");
   }
 
   private static void appendPropertyTo(String arg, Properties props) {
@@ -0,0 +1,150 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.sonarlint.cli.util.Logger;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches the project tree for changes. Hidden files and directories, like the <code>.sonarlint</code> working directory,
+ * are ignored, as well as the given files and directories written by the analysis itself, with their content.
+ */
+class ProjectWatcher implements Closeable {
+  private static final Logger LOGGER = Logger.get();
+
+  private final Path projectHome;
+  private final long quietPeriodMillis;
+  private final List<Path> ignoredPaths;
+  private final WatchService watchService;
+  private final Map<WatchKey, Path> directories = new HashMap<>();
+
+  ProjectWatcher(Path projectHome, long quietPeriodMillis, Collection<Path> ignoredPaths) throws IOException {
+    this.projectHome = projectHome;
+    this.quietPeriodMillis = quietPeriodMillis;
+    this.ignoredPaths = new ArrayList<>();
+    for (Path ignored : ignoredPaths) {
+      this.ignoredPaths.add(ignored.toAbsolutePath().normalize());
+    }
+    this.watchService = FileSystems.getDefault().newWatchService();
+    register(projectHome);
+  }
+
+  /**
+   * Blocks until a change happens, then waits for the file system to be quiet during the quiet period, so that a burst of
+   * events (like saving several files or switching branches) results in a single analysis.
+   * @return the files and directories that changed
+   */
+  Set<Path> awaitChanges() throws InterruptedException, IOException {
+    Set<Path> changes = new LinkedHashSet<>();
+    while (changes.isEmpty()) {
+      process(watchService.take(), changes);
+    }
+    WatchKey key;
+    while ((key = watchService.poll(quietPeriodMillis, TimeUnit.MILLISECONDS)) != null) {
+      process(key, changes);
+    }
+    return changes;
+  }
+
+  private void process(WatchKey key, Set<Path> changes) throws IOException {
+    Path dir = directories.get(key);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW) {
+        LOGGER.debug("Too many file system events, some changes may be missed until the next one");
+        changes.add(projectHome);
+        continue;
+      }
+      if (dir == null) {
+        continue;
+      }
+      Path path = dir.resolve((Path) event.context());
+      if (isIgnored(path)) {
+        continue;
+      }
+      changes.add(path);
+      if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+        register(path);
+      }
+    }
+    if (!key.reset()) {
+      directories.remove(key);
+    }
+  }
+
+  private boolean isIgnored(Path path) {
+    if (path.getFileName().toString().startsWith(".")) {
+      return true;
+    }
+    Path normalized = path.toAbsolutePath().normalize();
+    for (Path ignored : ignoredPaths) {
+      if (normalized.startsWith(ignored)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void register(Path root) throws IOException {
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        if (!dir.equals(projectHome) && isIgnored(dir)) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        directories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException exc) {
+        LOGGER.debug("Unable to watch " + file + ": " + exc.getMessage());
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+import org.sonarlint.cli.analysis.SonarLintFactory;
+import org.sonarlint.cli.report.ReportFactory;
+import org.sonarlint.cli.util.Logger;
+
+/**
+ * Analyzes sample files of each language in a temporary project, to load the classes used by a typical analysis.
+ * The launcher runs it with <code>-XX:ArchiveClassesAtExit</code> to create the class data sharing archive that
+ * later executions start with.
+ */
+class Warmup {
+  private static final Logger LOGGER = Logger.get();
+  private static final String SAMPLES_RESOURCE_DIR = "/org/sonarlint/cli/warmup/";
+  static final String[] SAMPLES = {"Sample.java", "sample.js", "sample.php", "sample.py"};
+
+  private Warmup() {
+    // only static methods
+  }
+
+  static int run(Options opts, SonarLintFactory sonarLintFactory, Charset charset) {
+    Path projectHome;
+    try {
+      projectHome = createSampleProject();
+    } catch (IOException e) {
+      LOGGER.error("Unable to create the sample project", e);
+      return Main.ERROR;
+    }
+
+    try {
+      InputFileFinder fileFinder = new InputFileFinder(null, null, null, charset);
+      return new Main(opts, sonarLintFactory, new ReportFactory(charset), fileFinder, projectHome).run();
+    } finally {
+      FileUtils.deleteQuietly(projectHome.toFile());
+    }
+  }
+
+  static Path createSampleProject() throws IOException {
+    Path projectHome = Files.createTempDirectory("sonarlint-warmup");
+    for (String sample : SAMPLES) {
+      try (InputStream in = Warmup.class.getResourceAsStream(SAMPLES_RESOURCE_DIR + sample)) {
+        if (in == null) {
+          throw new IOException("Sample not found: " + sample);
+        }
+        Files.copy(in, projectHome.resolve(sample));
+      }
+    }
+    return projectHome;
+  }
+}
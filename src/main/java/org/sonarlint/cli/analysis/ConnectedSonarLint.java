@@ -26,8 +26,10 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonarlint.cli.config.SonarQubeServer;
 import org.sonarlint.cli.report.ReportFactory;
 import org.sonarlint.cli.util.Logger;
@@ -36,6 +38,7 @@ import org.sonarsource.sonarlint.core.client.api.common.RuleDetails;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.AnalysisResults;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
 import org.sonarsource.sonarlint.core.client.api.connected.ConnectedAnalysisConfiguration;
 import org.sonarsource.sonarlint.core.client.api.connected.ConnectedSonarLintEngine;
 import org.sonarsource.sonarlint.core.client.api.connected.GlobalStorageStatus;
@@ -58,11 +61,20 @@ public class ConnectedSonarLint extends SonarLint {
   private final ConnectedSonarLintEngine engine;
   private final String moduleKey;
   private final SonarQubeServer server;
+  private final Supplier<ConnectedSonarLintEngine> engineFactory;
 
   ConnectedSonarLint(ConnectedSonarLintEngine engine, SonarQubeServer server, String moduleKey) {
+    this(engine, server, moduleKey, null);
+  }
+
+  /**
+   * @param engineFactory creates the additional engines used to analyze with several jobs. They share the storage of the first one.
+   */
+  ConnectedSonarLint(ConnectedSonarLintEngine engine, SonarQubeServer server, String moduleKey, @Nullable Supplier<ConnectedSonarLintEngine> engineFactory) {
     this.engine = engine;
     this.server = server;
     this.moduleKey = moduleKey;
+    this.engineFactory = engineFactory;
   }
 
   @Override
@@ -132,13 +144,58 @@ public class ConnectedSonarLint extends SonarLint {
   @Override
   protected void doAnalysis(Map<String, String> properties, ReportFactory reportFactory, List<ClientInputFile> inputFiles, Path baseDirPath) {
     Date start = new Date();
+    IssueCollector collector = new IssueCollector();
+    AnalysisResults result = analyzeFiles(properties, inputFiles, baseDirPath, collector);
+    Collection<Trackable> trackables = trackIssues(baseDirPath, collector.get());
+    generateReports(trackables, result, reportFactory, baseDirPath.getFileName().toString(), baseDirPath, start);
+  }
+
+  @Override
+  protected AnalysisResults analyze(Map<String, String> properties, List<ClientInputFile> inputFiles, Path baseDirPath, IssueListener listener) {
     ConnectedAnalysisConfiguration config = new ConnectedAnalysisConfiguration(moduleKey, baseDirPath, baseDirPath.resolve(".sonarlint"),
       inputFiles, properties);
-    IssueCollector collector = new IssueCollector();
-    AnalysisResults result = engine.analyze(config, collector);
+    return engine.analyze(config, listener);
+  }
+
+  @Override
+  protected SonarLint createWorker() {
+    if (engineFactory == null) {
+      throw new IllegalStateException("Analysis with several jobs is not supported by this instance");
+    }
+    return new ConnectedSonarLint(engineFactory.get(), server, moduleKey, engineFactory);
+  }
+
+  @Override
+  protected String analyzerFingerprint() {
+    StringBuilder sb = new StringBuilder(moduleKey);
+    GlobalStorageStatus globalStorageStatus = engine.getGlobalStorageStatus();
+    if (globalStorageStatus != null) {
+      sb.append(':').append(globalStorageStatus.getLastUpdateDate().getTime());
+    }
+    ModuleStorageStatus moduleStorageStatus = engine.getModuleStorageStatus(moduleKey);
+    if (moduleStorageStatus != null) {
+      sb.append(':').append(moduleStorageStatus.getLastUpdateDate().getTime());
+    }
+    return sb.toString();
+  }
+
+  @Override
+  protected Collection<Trackable> trackIssues(Path baseDirPath, Collection<Issue> issues) {
     engine.downloadServerIssues(getServerConfiguration(server), moduleKey);
-    Collection<Trackable> trackables = matchAndTrack(baseDirPath, collector.get());
-    generateReports(trackables, result, reportFactory, baseDirPath.getFileName().toString(), baseDirPath, start);
+    return matchAndTrack(baseDirPath, issues);
+  }
+
+  /**
+   * Issues of the project and issues matching a resolved issue of the server stored by the last update are dropped.
+   */
+  @Override
+  protected boolean mayBeDroppedByTracking(Path baseDirPath, Issue issue) {
+    String relativePath = getRelativePath(baseDirPath, issue);
+    if (relativePath == null) {
+      return true;
+    }
+    return engine.getServerIssues(moduleKey, relativePath).stream()
+      .anyMatch(serverIssue -> serverIssue.ruleKey().equals(issue.getRuleKey()) && !serverIssue.resolution().isEmpty());
   }
 
   Collection<Trackable> matchAndTrack(Path baseDirPath, Collection<Issue> issues) {
@@ -199,6 +256,7 @@ public class ConnectedSonarLint extends SonarLint {
 
   @Override
   public void stop() {
+    stopWorkers();
     engine.stop(false);
   }
 
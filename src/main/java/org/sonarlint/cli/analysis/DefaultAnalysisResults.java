@@ -0,0 +1,63 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.AnalysisResults;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+
+/**
+ * Results combining several analyses, or files for which cached results were used.
+ */
+class DefaultAnalysisResults implements AnalysisResults {
+  private int fileCount;
+  private final Collection<ClientInputFile> failedAnalysisFiles = new ArrayList<>();
+
+  DefaultAnalysisResults() {
+    this(0);
+  }
+
+  DefaultAnalysisResults(int fileCount) {
+    this.fileCount = fileCount;
+  }
+
+  DefaultAnalysisResults add(AnalysisResults results) {
+    fileCount += results.fileCount();
+    failedAnalysisFiles.addAll(results.failedAnalysisFiles());
+    return this;
+  }
+
+  DefaultAnalysisResults addFailedAnalysisFile(ClientInputFile inputFile) {
+    failedAnalysisFiles.add(inputFile);
+    return this;
+  }
+
+  @Override
+  public int fileCount() {
+    return fileCount;
+  }
+
+  @Override
+  public Collection<ClientInputFile> failedAnalysisFiles() {
+    return Collections.unmodifiableCollection(failedAnalysisFiles);
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import org.sonarlint.cli.FileIndex;
+import org.sonarlint.cli.util.Logger;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
+
+/**
+ * Issues of the previous analyses, per file. Issues of a file are reused as long as the content hash of the file
+ * and the fingerprint of the analysis configuration (analyzers, rules, properties, charset and test pattern) didn't change.
+ * Issues that are not attached to a file are never cached.
+ */
+public class IssueCache {
+  private static final Logger LOGGER = Logger.get();
+  private static final int FORMAT_VERSION = 2;
+
+  private final Path cacheFile;
+  private final FileIndex fileIndex;
+
+  private String fingerprint;
+  private Map<String, Entry> previousEntries;
+  private Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final Map<String, String> currentHashes = new ConcurrentHashMap<>();
+
+  IssueCache(Path cacheFile, @Nullable FileIndex fileIndex, String fingerprint, Map<String, Entry> entries) {
+    this.cacheFile = cacheFile;
+    this.fileIndex = fileIndex;
+    this.fingerprint = fingerprint;
+    this.previousEntries = entries;
+  }
+
+  /**
+   * Loads the cache from disk. A missing or unreadable cache results in an empty cache.
+   * @param fileIndex used to get the content hash of the files, if available
+   */
+  public static IssueCache load(Path cacheFile, @Nullable FileIndex fileIndex) {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+      if (in.readInt() != FORMAT_VERSION) {
+        LOGGER.debug("Ignoring issue cache with unsupported format: " + cacheFile);
+        return new IssueCache(cacheFile, fileIndex, "", Collections.emptyMap());
+      }
+      String fingerprint = in.readUTF();
+      int fileCount = in.readInt();
+      Map<String, Entry> entries = new HashMap<>(fileCount * 2);
+      for (int i = 0; i < fileCount; i++) {
+        String path = in.readUTF();
+        String hash = in.readUTF();
+        int issueCount = in.readInt();
+        List<StoredIssue> issues = new ArrayList<>(issueCount);
+        for (int j = 0; j < issueCount; j++) {
+          issues.add(StoredIssue.read(in, null));
+        }
+        entries.put(path, new Entry(hash, issues));
+      }
+      return new IssueCache(cacheFile, fileIndex, fingerprint, entries);
+    } catch (NoSuchFileException e) {
+      return new IssueCache(cacheFile, fileIndex, "", Collections.emptyMap());
+    } catch (IOException e) {
+      LOGGER.debug("Unable to read issue cache, all files will be analyzed: " + cacheFile, e);
+      return new IssueCache(cacheFile, fileIndex, "", Collections.emptyMap());
+    }
+  }
+
+  /**
+   * Must be called before each analysis. When the fingerprint of the analysis configuration changed, all cached issues are discarded.
+   */
+  void startAnalysis(String analysisFingerprint) {
+    if (!entries.isEmpty()) {
+      previousEntries = entries;
+      entries = new ConcurrentHashMap<>();
+    }
+    if (!analysisFingerprint.equals(fingerprint)) {
+      LOGGER.debug("Analysis configuration changed, cached issues are discarded");
+      previousEntries = Collections.emptyMap();
+      fingerprint = analysisFingerprint;
+    }
+    currentHashes.clear();
+  }
+
+  /**
+   * Sends the cached issues of the file to the listener, if the file didn't change since they were produced.
+   * @return false if the file needs to be analyzed
+   */
+  boolean reuse(ClientInputFile inputFile, IssueListener listener) {
+    String path = inputFile.getPath();
+    String hash;
+    try {
+      hash = fileIndex != null ? fileIndex.contentHash(Paths.get(path)) : FileIndex.computeHash(Paths.get(path));
+    } catch (IOException e) {
+      LOGGER.debug("Unable to compute hash of " + path, e);
+      return false;
+    }
+    currentHashes.put(path, hash);
+
+    Entry entry = previousEntries.get(path);
+    if (entry == null || !entry.hash.equals(hash)) {
+      return false;
+    }
+    entries.put(path, entry);
+    for (StoredIssue issue : entry.issues) {
+      listener.handle(issue.withInputFile(inputFile));
+    }
+    return true;
+  }
+
+  /**
+   * Records the issues raised on a file that was just analyzed.
+   */
+  void store(ClientInputFile inputFile, Collection<Issue> issues) {
+    String path = inputFile.getPath();
+    String hash = currentHashes.get(path);
+    if (hash == null) {
+      return;
+    }
+    List<StoredIssue> stored = new ArrayList<>(issues.size());
+    for (Issue issue : issues) {
+      stored.add(StoredIssue.copyOf(issue));
+    }
+    entries.put(path, new Entry(hash, stored));
+  }
+
+  /**
+   * Writes the issues of the files seen by the last analysis. Entries of other files are dropped.
+   */
+  void save() {
+    Path tmpFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(cacheFile.getParent());
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(fingerprint);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+          out.writeUTF(e.getKey());
+          out.writeUTF(e.getValue().hash);
+          out.writeInt(e.getValue().issues.size());
+          for (StoredIssue issue : e.getValue().issues) {
+            StoredIssue.write(issue, out);
+          }
+        }
+      }
+      Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to save issue cache to " + cacheFile + ": " + e.getMessage());
+    }
+  }
+
+  private static class Entry {
+    private final String hash;
+    private final List<StoredIssue> issues;
+
+    private Entry(String hash, List<StoredIssue> issues) {
+      this.hash = hash;
+      this.issues = issues;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonarlint.cli.InputFileFinder;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.AnalysisResults;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+
+/**
+ * Results of the analysis of a {@link Shard}, to be merged with the results of the other shards. Paths are stored relative to
+ * the project, so that results produced on different machines can be merged.
+ */
+class PartialResults {
+  private static final int FORMAT_VERSION = 2;
+
+  private final Shard shard;
+  private final DefaultAnalysisResults analysisResults;
+  private final List<Issue> issues;
+
+  private PartialResults(Shard shard, DefaultAnalysisResults analysisResults, List<Issue> issues) {
+    this.shard = shard;
+    this.analysisResults = analysisResults;
+    this.issues = issues;
+  }
+
+  Shard shard() {
+    return shard;
+  }
+
+  AnalysisResults analysisResults() {
+    return analysisResults;
+  }
+
+  List<Issue> issues() {
+    return issues;
+  }
+
+  static void write(Path file, Shard shard, Path baseDir, AnalysisResults results, Collection<Issue> issues) throws IOException {
+    Files.createDirectories(file.getParent());
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(shard.index());
+      out.writeInt(shard.count());
+      out.writeInt(results.fileCount());
+      out.writeInt(results.failedAnalysisFiles().size());
+      for (ClientInputFile inputFile : results.failedAnalysisFiles()) {
+        writeInputFile(baseDir, inputFile, out);
+      }
+      out.writeInt(issues.size());
+      for (Issue issue : issues) {
+        writeInputFile(baseDir, issue.getInputFile(), out);
+        StoredIssue.write(issue, out);
+      }
+    }
+  }
+
+  static PartialResults read(Path file, Path baseDir) throws IOException {
+    Map<String, ClientInputFile> inputFiles = new HashMap<>();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != FORMAT_VERSION) {
+        throw new IOException("Unsupported format of partial results: " + file);
+      }
+      Shard shard = new Shard(in.readInt(), in.readInt());
+      DefaultAnalysisResults results = new DefaultAnalysisResults(in.readInt());
+      int failedCount = in.readInt();
+      for (int i = 0; i < failedCount; i++) {
+        results.addFailedAnalysisFile(readInputFile(baseDir, in, inputFiles));
+      }
+      int issueCount = in.readInt();
+      List<Issue> issues = new ArrayList<>(issueCount);
+      for (int i = 0; i < issueCount; i++) {
+        ClientInputFile inputFile = readInputFile(baseDir, in, inputFiles);
+        issues.add(StoredIssue.read(in, inputFile));
+      }
+      return new PartialResults(shard, results, issues);
+    }
+  }
+
+  private static void writeInputFile(Path baseDir, @Nullable ClientInputFile inputFile, DataOutputStream out) throws IOException {
+    out.writeBoolean(inputFile != null);
+    if (inputFile != null) {
+      out.writeUTF(Shard.relativePath(baseDir, inputFile));
+      out.writeBoolean(inputFile.isTest());
+      Charset charset = inputFile.getCharset();
+      out.writeUTF(charset != null ? charset.name() : "");
+    }
+  }
+
+  @CheckForNull
+  private static ClientInputFile readInputFile(Path baseDir, DataInputStream in, Map<String, ClientInputFile> inputFiles) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    String relativePath = in.readUTF();
+    boolean test = in.readBoolean();
+    String charsetName = in.readUTF();
+    return inputFiles.computeIfAbsent(relativePath, p -> new InputFileFinder.DefaultClientInputFile(baseDir.resolve(p), test,
+      charsetName.isEmpty() ? Charset.defaultCharset() : Charset.forName(charsetName)));
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonarlint.cli.util.Logger;
+
+/**
+ * Keeps the metadata read from the plugin jars between executions, keyed by path, size and modification time, so that
+ * jars of an unchanged installation are not opened again. The cache can't be written in a read-only installation, in
+ * which case the jars are read on each execution.
+ */
+class PluginMetadataCache {
+  static final String PLUGIN_KEY_ATTRIBUTE = "Plugin-Key";
+
+  private static final Logger LOGGER = Logger.get();
+  private static final int FORMAT_VERSION = 2;
+
+  private final Path cacheFile;
+  private final Map<String, PluginMetadata> previousEntries;
+  private final Map<String, PluginMetadata> entries = new LinkedHashMap<>();
+  private boolean modified = false;
+
+  PluginMetadataCache(Path cacheFile, Map<String, PluginMetadata> previousEntries) {
+    this.cacheFile = cacheFile;
+    this.previousEntries = previousEntries;
+  }
+
+  /**
+   * A missing or unreadable cache results in an empty cache.
+   */
+  static PluginMetadataCache load(Path cacheFile) {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+      if (in.readInt() != FORMAT_VERSION) {
+        LOGGER.debug("Ignoring plugin metadata cache with a different format: " + cacheFile);
+        return new PluginMetadataCache(cacheFile, Collections.emptyMap());
+      }
+      int count = in.readInt();
+      Map<String, PluginMetadata> entries = new HashMap<>(count * 2);
+      for (int i = 0; i < count; i++) {
+        String path = in.readUTF();
+        long size = in.readLong();
+        long mtime = in.readLong();
+        String key = readNullableUTF(in);
+        entries.put(path, new PluginMetadata(size, mtime, key));
+      }
+      return new PluginMetadataCache(cacheFile, entries);
+    } catch (NoSuchFileException e) {
+      return new PluginMetadataCache(cacheFile, Collections.emptyMap());
+    } catch (IOException e) {
+      LOGGER.debug("Unable to read plugin metadata cache, it will be rebuilt: " + cacheFile, e);
+      return new PluginMetadataCache(cacheFile, Collections.emptyMap());
+    }
+  }
+
+  /**
+   * Writes the metadata of the plugins read since the cache was loaded, if any of them changed.
+   * Plugins that were not read are dropped, as they are not installed anymore.
+   */
+  void save() {
+    if (!modified && entries.size() == previousEntries.size()) {
+      return;
+    }
+    Path tmpFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(cacheFile.getParent());
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, PluginMetadata> e : entries.entrySet()) {
+          PluginMetadata metadata = e.getValue();
+          out.writeUTF(e.getKey());
+          out.writeLong(metadata.size);
+          out.writeLong(metadata.mtime);
+          writeNullableUTF(out, metadata.key);
+        }
+      }
+      Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+      modified = false;
+    } catch (IOException e) {
+      // expected when SonarLint is installed in a read-only location
+      LOGGER.debug("Unable to save plugin metadata cache to " + cacheFile + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Metadata of the plugin, read from the jar if it's not in the cache or if the jar changed.
+   * Returns null if the jar can't be read.
+   */
+  @CheckForNull
+  PluginMetadata get(URL plugin) {
+    try {
+      Path jar = Paths.get(plugin.toURI());
+      String path = jar.toString();
+      BasicFileAttributes attrs = Files.readAttributes(jar, BasicFileAttributes.class);
+      long size = attrs.size();
+      long mtime = attrs.lastModifiedTime().toMillis();
+      PluginMetadata metadata = entries.get(path);
+      if (metadata == null || !metadata.isValid(size, mtime)) {
+        metadata = previousEntries.get(path);
+      }
+      if (metadata == null || !metadata.isValid(size, mtime)) {
+        metadata = read(jar, size, mtime);
+        modified = true;
+        LOGGER.debug(String.format("Read metadata of plugin %s: key %s", jar, metadata.key));
+      }
+      entries.put(path, metadata);
+      return metadata;
+    } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+      LOGGER.debug("Unable to read the metadata of plugin " + plugin + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  private static PluginMetadata read(Path jar, long size, long mtime) throws IOException {
+    String key = null;
+    try (JarFile jarFile = new JarFile(jar.toFile())) {
+      Manifest manifest = jarFile.getManifest();
+      if (manifest != null) {
+        key = manifest.getMainAttributes().getValue(PLUGIN_KEY_ATTRIBUTE);
+      }
+    }
+    return new PluginMetadata(size, mtime, key);
+  }
+
+  @CheckForNull
+  private static String readNullableUTF(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static void writeNullableUTF(DataOutputStream out, @Nullable String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  static class PluginMetadata {
+    private final long size;
+    private final long mtime;
+    private final String key;
+
+    PluginMetadata(long size, long mtime, @Nullable String key) {
+      this.size = size;
+      this.mtime = mtime;
+      this.key = key;
+    }
+
+    private boolean isValid(long size, long mtime) {
+      return this.size == size && this.mtime == mtime;
+    }
+
+    @CheckForNull
+    String key() {
+      return key;
+    }
+  }
+}
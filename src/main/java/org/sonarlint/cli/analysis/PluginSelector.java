@@ -0,0 +1,101 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.sonarlint.cli.analysis.PluginMetadataCache.PluginMetadata;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+
+/**
+ * Selects the plugins needed to analyze some files, based on the file extensions of the languages of the plugins.
+ * Plugins not known to be specific to a language are always selected.
+ */
+class PluginSelector {
+  private static final Map<String, Set<String>> EXTENSIONS_BY_PLUGIN_KEY = new HashMap<>();
+
+  static {
+    EXTENSIONS_BY_PLUGIN_KEY.put("java", extensions("java", "jav"));
+    EXTENSIONS_BY_PLUGIN_KEY.put("javascript", extensions("js", "jsx", "vue"));
+    EXTENSIONS_BY_PLUGIN_KEY.put("php", extensions("php", "php3", "php4", "php5", "phtml", "inc"));
+    EXTENSIONS_BY_PLUGIN_KEY.put("python", extensions("py"));
+  }
+
+  // plugin key of each plugin, null when it can't be read
+  private final Map<URL, String> pluginKeys;
+
+  PluginSelector(Map<URL, String> pluginKeys) {
+    this.pluginKeys = pluginKeys;
+  }
+
+  /**
+   * Gets the key of the plugins from the manifest of their jar, through the cache.
+   */
+  static PluginSelector create(URL[] plugins, PluginMetadataCache metadataCache) {
+    Map<URL, String> pluginKeys = new LinkedHashMap<>();
+    for (URL plugin : plugins) {
+      PluginMetadata metadata = metadataCache.get(plugin);
+      pluginKeys.put(plugin, metadata == null ? null : metadata.key());
+    }
+    return new PluginSelector(pluginKeys);
+  }
+
+  /**
+   * Plugins needed to analyze the files, in installation order.
+   */
+  List<URL> select(Collection<ClientInputFile> inputFiles) {
+    Set<String> extensions = new HashSet<>();
+    for (ClientInputFile inputFile : inputFiles) {
+      extensions.add(extension(Paths.get(inputFile.getPath())));
+    }
+
+    List<URL> selected = new ArrayList<>();
+    for (Map.Entry<URL, String> e : pluginKeys.entrySet()) {
+      Set<String> pluginExtensions = e.getValue() == null ? null : EXTENSIONS_BY_PLUGIN_KEY.get(e.getValue());
+      if (pluginExtensions == null || !Collections.disjoint(pluginExtensions, extensions)) {
+        selected.add(e.getKey());
+      }
+    }
+    return selected;
+  }
+
+  private static String extension(Path file) {
+    Path fileName = file.getFileName();
+    String name = fileName == null ? "" : fileName.toString();
+    int dot = name.lastIndexOf('.');
+    return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ENGLISH);
+  }
+
+  private static Set<String> extensions(String... extensions) {
+    return new HashSet<>(Arrays.asList(extensions));
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+import org.sonarlint.cli.report.Severity;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
+import org.sonarsource.sonarlint.core.tracking.Trackable;
+
+/**
+ * Counts the reported issues having at least a given severity, like {@link org.sonarlint.cli.report.IssueThresholds}.
+ * In fail-fast mode, the first of them raised by the engines aborts the analysis, unless the tracking of the issues
+ * may still drop it.
+ */
+public class SeverityGate {
+  private final Severity threshold;
+  private final boolean failFast;
+  private final AtomicInteger matchingIssues = new AtomicInteger();
+
+  public SeverityGate(Severity threshold, boolean failFast) {
+    this.threshold = threshold;
+    this.failFast = failFast;
+  }
+
+  public Severity threshold() {
+    return threshold;
+  }
+
+  /**
+   * Number of issues having at least the threshold severity since the last {@link #reset()}: the reported ones once
+   * the reports are generated, or the one that aborted the analysis
+   */
+  public int matchingIssues() {
+    return matchingIssues.get();
+  }
+
+  public boolean isFailed() {
+    return matchingIssues.get() > 0;
+  }
+
+  public void reset() {
+    matchingIssues.set(0);
+  }
+
+  /**
+   * In fail-fast mode, checks the issues before passing them to the listener.
+   *
+   * @param mayBeDropped tells whether the tracking of an issue may drop it from the reports, in which case it doesn't
+   * abort the analysis and is only counted by {@link #check(Collection)}
+   */
+  IssueListener wrap(IssueListener listener, Predicate<Issue> mayBeDropped) {
+    if (!failFast) {
+      return listener;
+    }
+    return issue -> {
+      if (matches(issue.getSeverity()) && !mayBeDropped.test(issue)) {
+        matchingIssues.incrementAndGet();
+        throw new IllegalStateException(String.format("Analysis aborted, %s issue found (%s) in %s", issue.getSeverity(), issue.getRuleKey(), location(issue)));
+      }
+      listener.handle(issue);
+    };
+  }
+
+  /**
+   * Counts the reported issues having at least the threshold severity.
+   */
+  void check(Collection<Trackable> trackables) {
+    int count = 0;
+    for (Trackable trackable : trackables) {
+      if (matches(trackable.getIssue().getSeverity())) {
+        count++;
+      }
+    }
+    matchingIssues.set(count);
+  }
+
+  private boolean matches(@Nullable String severity) {
+    return severity != null && Severity.create(severity).compareTo(threshold) >= 0;
+  }
+
+  private static String location(Issue issue) {
+    ClientInputFile inputFile = issue.getInputFile();
+    if (inputFile == null) {
+      return "project";
+    }
+    String location = inputFile.getPath();
+    if (issue.getStartLine() != null) {
+      location += ":" + issue.getStartLine();
+    }
+    return location;
+  }
+
+  /**
+   * In fail-fast mode, aborts the analysis if an issue was found, in case the exception thrown when it was raised
+   * was caught by the analyzer.
+   */
+  void checkNotAborted() {
+    if (failFast && isFailed()) {
+      throw new IllegalStateException(String.format("Analysis aborted, %d issue(s) with severity %s or higher found", matchingIssues(), threshold));
+    }
+  }
+}
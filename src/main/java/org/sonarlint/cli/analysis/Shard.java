@@ -0,0 +1,118 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+
+import static org.sonarsource.sonarlint.core.client.api.util.FileUtils.toSonarQubePath;
+
+/**
+ * Part of the files of a project analyzed separately, for example on a CI node. Files are assigned to shards by a hash of
+ * their path relative to the project, so the partition doesn't depend on where the project is checked out.
+ */
+public class Shard {
+  private static final String OUTPUT_DIR = ".sonarlint";
+  private static final String OUTPUT_PREFIX = "sonarlint-shard-";
+
+  private final int index;
+  private final int count;
+
+  /**
+   * @param index 1-based index of the shard
+   * @param count total number of shards
+   */
+  public Shard(int index, int count) {
+    if (count < 1 || index < 1 || index > count) {
+      throw new IllegalArgumentException("Invalid shard: " + index + "/" + count);
+    }
+    this.index = index;
+    this.count = count;
+  }
+
+  public int index() {
+    return index;
+  }
+
+  public int count() {
+    return count;
+  }
+
+  List<ClientInputFile> select(List<ClientInputFile> inputFiles, Path baseDir) {
+    List<ClientInputFile> selected = new ArrayList<>();
+    for (ClientInputFile inputFile : inputFiles) {
+      if (contains(relativePath(baseDir, inputFile))) {
+        selected.add(inputFile);
+      }
+    }
+    return selected;
+  }
+
+  boolean contains(String relativePath) {
+    CRC32 crc = new CRC32();
+    crc.update(relativePath.getBytes(StandardCharsets.UTF_8));
+    return crc.getValue() % count == index - 1;
+  }
+
+  /**
+   * Issues that are not attached to a file are only kept by the first shard, so they are not reported several times.
+   */
+  boolean keepsProjectIssues() {
+    return index == 1;
+  }
+
+  Path outputFile(Path projectHome) {
+    return projectHome.resolve(OUTPUT_DIR).resolve(OUTPUT_PREFIX + index + "-of-" + count);
+  }
+
+  /**
+   * Partial results written by shards in the project's working directory.
+   */
+  public static List<Path> findOutputFiles(Path projectHome) throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(projectHome.resolve(OUTPUT_DIR), OUTPUT_PREFIX + "*")) {
+      for (Path file : stream) {
+        files.add(file);
+      }
+    } catch (NoSuchFileException e) {
+      // no partial results
+    }
+    files.sort(null);
+    return files;
+  }
+
+  static String relativePath(Path baseDir, ClientInputFile inputFile) {
+    return toSonarQubePath(baseDir.relativize(Paths.get(inputFile.getPath())).toString());
+  }
+
+  @Override
+  public String toString() {
+    return index + "/" + count;
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.sonarlint.cli.InputFileFinder;
+import org.sonarlint.cli.report.ReportFactory;
+import org.sonarsource.sonarlint.core.client.api.common.RuleDetails;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.AnalysisResults;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
+import org.sonarsource.sonarlint.core.tracking.Trackable;
+
+/**
+ * Instance kept alive between several executions. Stopping it only ends the current execution, the engine
+ * is stopped with {@link #stopEngine()}.
+ */
+class SharedSonarLint extends SonarLint {
+  private final SonarLint delegate;
+
+  SharedSonarLint(SonarLint delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void setIssueCache(@Nullable IssueCache issueCache) {
+    delegate.setIssueCache(issueCache);
+  }
+
+  @Override
+  public void setJobs(int jobs) {
+    delegate.setJobs(jobs);
+  }
+
+  @Override
+  public void setShard(@Nullable Shard shard) {
+    delegate.setShard(shard);
+  }
+
+  @Override
+  public void setBatchSize(int batchSize) {
+    delegate.setBatchSize(batchSize);
+  }
+
+  @Override
+  public void setSeverityGate(@Nullable SeverityGate severityGate) {
+    delegate.setSeverityGate(severityGate);
+  }
+
+  @Override
+  public void start(boolean forceUpdate) {
+    delegate.start(forceUpdate);
+  }
+
+  @Override
+  public void runAnalysis(Map<String, String> properties, ReportFactory reportFactory, InputFileFinder finder, Path projectHome) {
+    delegate.runAnalysis(properties, reportFactory, finder, projectHome);
+  }
+
+  @Override
+  public void mergeResults(List<Path> partialResultsFiles, ReportFactory reportFactory, Path projectHome) {
+    delegate.mergeResults(partialResultsFiles, reportFactory, projectHome);
+  }
+
+  @Override
+  protected Collection<Trackable> trackIssues(Path baseDirPath, Collection<Issue> issues) {
+    return delegate.trackIssues(baseDirPath, issues);
+  }
+
+  @Override
+  protected RuleDetails getRuleDetails(String ruleKey) {
+    return delegate.getRuleDetails(ruleKey);
+  }
+
+  @Override
+  protected void doAnalysis(Map<String, String> properties, ReportFactory reportFactory, List<ClientInputFile> inputFiles, Path baseDirPath) {
+    delegate.doAnalysis(properties, reportFactory, inputFiles, baseDirPath);
+  }
+
+  @Override
+  protected void prepareAnalysis(Map<String, String> properties, @Nullable Collection<ClientInputFile> inputFiles) {
+    delegate.prepareAnalysis(properties, inputFiles);
+  }
+
+  @Override
+  protected boolean mayBeDroppedByTracking(Path baseDirPath, Issue issue) {
+    return delegate.mayBeDroppedByTracking(baseDirPath, issue);
+  }
+
+  @Override
+  protected AnalysisResults analyze(Map<String, String> properties, List<ClientInputFile> inputFiles, Path baseDirPath, IssueListener listener) {
+    return delegate.analyze(properties, inputFiles, baseDirPath, listener);
+  }
+
+  @Override
+  protected SonarLint createWorker() {
+    return delegate.createWorker();
+  }
+
+  @Override
+  protected String analyzerFingerprint() {
+    return delegate.analyzerFingerprint();
+  }
+
+  @Override
+  public void stop() {
+    // the settings of an execution must not leak into the next one
+    delegate.setIssueCache(null);
+    delegate.setJobs(1);
+    delegate.setShard(null);
+    delegate.setBatchSize(0);
+    delegate.setSeverityGate(null);
+  }
+
+  void stopEngine() {
+    delegate.stop();
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import org.sonarlint.cli.config.ConfigurationReader;
+
+/**
+ * Creates instances that are reused by the following executions, as long as the configuration files
+ * they were created from don't change. All projects without binding share the same standalone instance, which is
+ * replaced when a plugin is added, removed or replaced.
+ */
+public class SharedSonarLintFactory extends SonarLintFactory {
+  private static final String STANDALONE_KEY = "";
+
+  private final Map<String, Entry> instances = new HashMap<>();
+
+  public SharedSonarLintFactory(ConfigurationReader configurationReader) {
+    super(configurationReader);
+  }
+
+  @Override
+  public synchronized SonarLint createSonarLint(Path globalConfigPath, Path projectConfigPath, boolean mustBeConnected, boolean verbose) {
+    boolean connected = Files.exists(projectConfigPath);
+    String key = connected ? projectConfigPath.toAbsolutePath().toString() : STANDALONE_KEY;
+    String stamp = connected ? (lastModified(globalConfigPath) + ":" + lastModified(projectConfigPath) + ":" + verbose)
+      : (verbose + ":" + isLazyPluginLoading() + "\n" + pluginsStamp());
+
+    Entry entry = instances.get(key);
+    if (entry != null && entry.stamp.equals(stamp)) {
+      return entry.sonarLint;
+    }
+    if (entry != null) {
+      instances.remove(key);
+      entry.sonarLint.stopEngine();
+    }
+    SharedSonarLint sonarLint = new SharedSonarLint(super.createSonarLint(globalConfigPath, projectConfigPath, mustBeConnected, verbose));
+    instances.put(key, new Entry(stamp, sonarLint));
+    return sonarLint;
+  }
+
+  public synchronized void stopAll() {
+    for (Entry entry : instances.values()) {
+      entry.sonarLint.stopEngine();
+    }
+    instances.clear();
+  }
+
+  static String pluginsStamp() {
+    URL[] plugins;
+    try {
+      plugins = loadPlugins();
+    } catch (IOException e) {
+      // reported when creating the instance
+      return "";
+    }
+    // the order of the directory listing is not specified
+    Arrays.sort(plugins, Comparator.comparing(URL::toString));
+    return StandaloneSonarLint.pluginsFingerprint(plugins);
+  }
+
+  private static long lastModified(Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toMillis();
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  private static class Entry {
+    private final String stamp;
+    private final SharedSonarLint sonarLint;
+
+    private Entry(String stamp, SharedSonarLint sonarLint) {
+      this.stamp = stamp;
+      this.sonarLint = sonarLint;
+    }
+  }
+}
@@ -20,28 +20,123 @@
 package org.sonarlint.cli.analysis;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.sonarlint.cli.InputFileFinder;
 import org.sonarlint.cli.report.ReportFactory;
 import org.sonarlint.cli.report.Reporter;
 import org.sonarlint.cli.util.Logger;
+import org.sonarlint.cli.util.Util;
 import org.sonarsource.sonarlint.core.client.api.common.RuleDetails;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.AnalysisResults;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
 import org.sonarsource.sonarlint.core.tracking.Trackable;
 
 public abstract class SonarLint {
   private static final Logger LOGGER = Logger.get();
+  // marks the end of the discovered files in the queue of a pipelined analysis
+  private static final ClientInputFile END_OF_FILES = new InputFileFinder.DefaultClientInputFile(Paths.get(""), false, StandardCharsets.UTF_8);
+  private static final long DISCOVERY_POLL_MILLIS = 10;
+
+  private IssueCache issueCache = null;
+  private int jobs = 1;
+  private Shard shard = null;
+  private int batchSize = 0;
+  private SeverityGate severityGate = null;
+  private String inputConfiguration = "";
+  private SonarLint[] workers = new SonarLint[0];
+
+  /**
+   * When set, issues of the files that didn't change since the previous analysis are taken from the cache instead of analyzing the files again.
+   */
+  public void setIssueCache(@Nullable IssueCache issueCache) {
+    this.issueCache = issueCache;
+  }
+
+  /**
+   * Number of engines analyzing files concurrently. Additional engines are created on first use and kept until {@link #stop()}.
+   */
+  public void setJobs(int jobs) {
+    this.jobs = jobs;
+  }
+
+  /**
+   * When set, only the files of the shard are analyzed and partial results are written instead of reports.
+   * See {@link #mergeResults(List, ReportFactory, Path)}.
+   */
+  public void setShard(@Nullable Shard shard) {
+    this.shard = shard;
+  }
+
+  /**
+   * When greater than 0, files are analyzed in batches of this size while the file tree is still being walked,
+   * instead of after the walk. Not used when analyzing a shard.
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * When set, the gate counts the reported issues, and in fail-fast mode sees the issues as soon as they are raised to
+   * abort the analysis.
+   */
+  public void setSeverityGate(@Nullable SeverityGate severityGate) {
+    this.severityGate = severityGate;
+  }
 
   public void start(boolean forceUpdate) {
     // do nothing by default
   }
 
+  /**
+   * Analyzes the files found by the finder. Its file index, if any, is saved afterwards, including the content hashes
+   * computed to reuse cached issues.
+   */
   public void runAnalysis(Map<String, String> properties, ReportFactory reportFactory, InputFileFinder finder, Path projectHome) {
+    inputConfiguration = finder.configurationFingerprint();
+    try {
+      analyzeProject(properties, reportFactory, finder, projectHome);
+    } finally {
+      finder.saveFileIndex();
+    }
+  }
+
+  private void analyzeProject(Map<String, String> properties, ReportFactory reportFactory, InputFileFinder finder, Path projectHome) {
+    if (batchSize > 0 && shard == null) {
+      runPipelinedAnalysis(properties, reportFactory, finder, projectHome);
+      return;
+    }
+
     List<ClientInputFile> inputFiles;
     try {
       inputFiles = finder.collect(projectHome);
@@ -49,6 +144,19 @@ public abstract class SonarLint {
       throw new IllegalStateException("Error preparing list of files to analyze", e);
     }
 
+    if (shard != null) {
+      inputFiles = shard.select(inputFiles, projectHome);
+      LOGGER.info(String.format("Shard %s: %d file(s) to analyze", shard, inputFiles.size()));
+    }
+    if (!inputFiles.isEmpty()) {
+      prepareAnalysis(properties, inputFiles);
+    }
+
+    if (shard != null) {
+      writePartialResults(properties, inputFiles, projectHome);
+      return;
+    }
+
     if (inputFiles.isEmpty()) {
       LOGGER.warn("No files to analyze");
       return;
@@ -59,13 +167,396 @@ public abstract class SonarLint {
     doAnalysis(properties, reportFactory, inputFiles, projectHome);
   }
 
+  /**
+   * Walks the file tree in a separate thread, which pushes the files to a bounded queue. Batches are taken from the queue
+   * and analyzed as soon as they are full, so that analysis and discovery overlap. Reports are generated once all
+   * batches are analyzed.
+   */
+  private void runPipelinedAnalysis(Map<String, String> properties, ReportFactory reportFactory, InputFileFinder finder, Path projectHome) {
+    Date start = new Date();
+    BlockingQueue<ClientInputFile> queue = new ArrayBlockingQueue<>(batchSize * 2);
+    AtomicBoolean discoveryCancelled = new AtomicBoolean();
+    ExecutorService discovery = Executors.newSingleThreadExecutor();
+    Future<?> discoveryResult = discovery.submit(() -> discoverFiles(finder, projectHome, queue, discoveryCancelled));
+
+    IssueCollector collector = new IssueCollector();
+    DefaultAnalysisResults results = new DefaultAnalysisResults();
+    int fileCount = 0;
+    try {
+      // files are not known in advance
+      prepareAnalysis(properties, null);
+      if (issueCache != null) {
+        issueCache.startAnalysis(fingerprint(properties));
+      }
+      List<ClientInputFile> batch = new ArrayList<>(batchSize);
+      boolean endOfFiles = false;
+      while (!endOfFiles) {
+        ClientInputFile inputFile = queue.take();
+        endOfFiles = inputFile == END_OF_FILES;
+        if (!endOfFiles) {
+          batch.add(inputFile);
+        }
+        if (!batch.isEmpty() && (endOfFiles || batch.size() == batchSize)) {
+          LOGGER.debug(String.format("Submitting batch of %d files for analysis", batch.size()));
+          results.add(analyzeBatch(properties, batch, projectHome, collector));
+          fileCount += batch.size();
+          batch = new ArrayList<>(batchSize);
+        }
+      }
+      discoveryResult.get();
+      if (issueCache != null) {
+        issueCache.save();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Analysis interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Error preparing list of files to analyze", e.getCause());
+    } finally {
+      stopDiscovery(discovery, queue, discoveryCancelled);
+    }
+
+    if (fileCount == 0) {
+      LOGGER.warn("No files to analyze");
+      return;
+    }
+    LOGGER.debug(String.format("Analyzed %d files", fileCount));
+    Collection<Trackable> trackables = trackIssues(projectHome, collector.get());
+    generateReports(trackables, results, reportFactory, projectHome.getFileName().toString(), projectHome, start);
+  }
+
+  private static Void discoverFiles(InputFileFinder finder, Path projectHome, BlockingQueue<ClientInputFile> queue, AtomicBoolean cancelled)
+    throws IOException {
+    try {
+      finder.collect(projectHome, inputFile -> {
+        try {
+          // never blocks for good on a full queue, the analysis may have failed in the meantime
+          while (!queue.offer(inputFile, DISCOVERY_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (cancelled.get()) {
+              throw new CancellationException("File discovery cancelled");
+            }
+          }
+        } catch (InterruptedException e) {
+          // analysis failed, nobody takes files anymore
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("File discovery interrupted", e);
+        }
+      });
+    } finally {
+      if (!cancelled.get()) {
+        try {
+          queue.put(END_OF_FILES);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Makes sure that no discovery thread outlives the analysis. When the analysis failed, the discovery threads waiting
+   * for room in the queue notice the cancellation and stop.
+   */
+  private static void stopDiscovery(ExecutorService discovery, BlockingQueue<ClientInputFile> queue, AtomicBoolean cancelled) {
+    cancelled.set(true);
+    discovery.shutdownNow();
+    queue.clear();
+  }
+
+  /**
+   * Combines the partial results written by the shards of an analysis into the regular reports.
+   */
+  public void mergeResults(List<Path> partialResultsFiles, ReportFactory reportFactory, Path projectHome) {
+    Date start = new Date();
+    DefaultAnalysisResults results = new DefaultAnalysisResults();
+    List<Issue> issues = new ArrayList<>();
+    Set<Integer> shardIndexes = new TreeSet<>();
+    int shardCount = 0;
+    for (Path file : partialResultsFiles) {
+      PartialResults partialResults;
+      try {
+        partialResults = PartialResults.read(file, projectHome);
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to read partial results: " + file, e);
+      }
+      Shard partialShard = partialResults.shard();
+      if (shardCount != 0 && partialShard.count() != shardCount) {
+        throw new IllegalStateException("Partial results of different shardings can't be merged: " + file);
+      }
+      shardCount = partialShard.count();
+      if (!shardIndexes.add(partialShard.index())) {
+        throw new IllegalStateException("Partial results of shard " + partialShard + " found several times: " + file);
+      }
+      results.add(partialResults.analysisResults());
+      issues.addAll(partialResults.issues());
+    }
+    if (shardIndexes.size() < shardCount) {
+      LOGGER.warn(String.format("Only %d of %d shards found, reports are incomplete", shardIndexes.size(), shardCount));
+    }
+    LOGGER.info(String.format("Merged results of %d shard(s)", shardIndexes.size()));
+    if (!issues.isEmpty()) {
+      // the rules of the issues must be found, project issues may come from any analyzer
+      boolean projectIssues = issues.stream().anyMatch(issue -> issue.getInputFile() == null);
+      prepareAnalysis(Collections.emptyMap(), projectIssues ? null : issues.stream().map(Issue::getInputFile).collect(Collectors.toSet()));
+    }
+
+    Collection<Trackable> trackables = trackIssues(projectHome, issues);
+    generateReports(trackables, results, reportFactory, projectHome.getFileName().toString(), projectHome, start);
+  }
+
+  private void writePartialResults(Map<String, String> properties, List<ClientInputFile> inputFiles, Path projectHome) {
+    IssueCollector collector = new IssueCollector();
+    AnalysisResults results = inputFiles.isEmpty() ? new DefaultAnalysisResults() : analyzeFiles(properties, inputFiles, projectHome, collector);
+    List<Issue> issues = new ArrayList<>();
+    for (Issue issue : collector.get()) {
+      if (issue.getInputFile() != null || shard.keepsProjectIssues()) {
+        issues.add(issue);
+      }
+    }
+    Path file = shard.outputFile(projectHome);
+    try {
+      PartialResults.write(file, shard, projectHome, results, issues);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write partial results: " + file, e);
+    }
+    LOGGER.info("Partial results written to " + file);
+  }
+
   protected abstract RuleDetails getRuleDetails(String ruleKey);
 
+  /**
+   * Converts the raw issues of an analysis to the trackables that are reported.
+   */
+  protected abstract Collection<Trackable> trackIssues(Path baseDirPath, Collection<Issue> issues);
+
   protected abstract void doAnalysis(Map<String, String> properties, ReportFactory reportFactory, List<ClientInputFile> inputFiles, Path baseDirPath);
 
+  /**
+   * Runs the engine on the given files.
+   */
+  protected abstract AnalysisResults analyze(Map<String, String> properties, List<ClientInputFile> inputFiles, Path baseDirPath, IssueListener listener);
+
+  /**
+   * Creates an instance with the same configuration, used as additional worker when analyzing with several jobs.
+   */
+  protected abstract SonarLint createWorker();
+
+  /**
+   * Called once per run, before any file is analyzed and before the rules of the issues are looked up, with all the files
+   * of the run, including the ones whose issues are taken from the cache. Null when the files are not known in advance.
+   */
+  protected void prepareAnalysis(Map<String, String> properties, @Nullable Collection<ClientInputFile> inputFiles) {
+    // nothing to prepare by default
+  }
+
+  /**
+   * Identifies the analyzers and rules used by {@link #analyze}. Cached issues are discarded when it changes.
+   */
+  protected abstract String analyzerFingerprint();
+
+  /**
+   * Whether {@link #trackIssues(Path, Collection)} may leave the issue out of the reports, so that it must not abort
+   * a fail-fast analysis. None by default.
+   */
+  protected boolean mayBeDroppedByTracking(Path baseDirPath, Issue issue) {
+    return false;
+  }
+
+  /**
+   * Analyzes the files, reusing the cached issues of unchanged files if an issue cache is set.
+   */
+  protected AnalysisResults analyzeFiles(Map<String, String> properties, List<ClientInputFile> inputFiles, Path baseDirPath, IssueListener listener) {
+    if (issueCache == null) {
+      return analyzeWithJobs(properties, inputFiles, baseDirPath, listener);
+    }
+
+    issueCache.startAnalysis(fingerprint(properties));
+    AnalysisResults results = analyzeBatch(properties, inputFiles, baseDirPath, listener);
+    issueCache.save();
+    return results;
+  }
+
+  /**
+   * Analyzes some of the files of an analysis. The issue cache, if any, must be started before the first batch and saved
+   * after the last one.
+   */
+  private AnalysisResults analyzeBatch(Map<String, String> properties, List<ClientInputFile> inputFiles, Path baseDirPath, IssueListener listener) {
+    if (issueCache == null) {
+      return analyzeWithJobs(properties, inputFiles, baseDirPath, listener);
+    }
+
+    List<ClientInputFile> changedFiles = new ArrayList<>();
+    IssueListener reusedIssuesListener = gated(listener, baseDirPath);
+    for (ClientInputFile inputFile : inputFiles) {
+      if (!issueCache.reuse(inputFile, reusedIssuesListener)) {
+        changedFiles.add(inputFile);
+      }
+    }
+    LOGGER.info(String.format("%d unchanged file(s), %d file(s) to analyze", inputFiles.size() - changedFiles.size(), changedFiles.size()));
+
+    DefaultAnalysisResults results = new DefaultAnalysisResults(inputFiles.size() - changedFiles.size());
+    if (!changedFiles.isEmpty()) {
+      Map<String, List<Issue>> issuesPerFile = new HashMap<>();
+      AnalysisResults analysisResults = analyzeWithJobs(properties, changedFiles, baseDirPath, issue -> {
+        listener.handle(issue);
+        ClientInputFile inputFile = issue.getInputFile();
+        if (inputFile != null) {
+          issuesPerFile.computeIfAbsent(inputFile.getPath(), p -> new ArrayList<>()).add(issue);
+        }
+      });
+      results.add(analysisResults);
+      for (ClientInputFile inputFile : changedFiles) {
+        if (!analysisResults.failedAnalysisFiles().contains(inputFile)) {
+          issueCache.store(inputFile, issuesPerFile.getOrDefault(inputFile.getPath(), new ArrayList<>()));
+        }
+      }
+    }
+    return results;
+  }
+
+  private AnalysisResults analyzeWithJobs(Map<String, String> properties, List<ClientInputFile> inputFiles, Path baseDirPath, IssueListener listener) {
+    int partitionCount = Math.min(jobs, inputFiles.size());
+    if (partitionCount <= 1) {
+      AnalysisResults results = analyze(properties, inputFiles, baseDirPath, gated(listener, baseDirPath));
+      checkNotAborted();
+      return results;
+    }
+    if (workers.length < partitionCount - 1) {
+      workers = Arrays.copyOf(workers, partitionCount - 1);
+    }
+
+    List<List<ClientInputFile>> partitions = partitionBySize(inputFiles, partitionCount);
+    LOGGER.debug(String.format("Analyzing with %d jobs", partitionCount));
+    ExecutorService executor = Executors.newFixedThreadPool(partitionCount);
+    try {
+      CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+      AnalysisResults[] partitionResults = new AnalysisResults[partitionCount];
+      List<IssueCollector> collectors = new ArrayList<>();
+      for (int i = 0; i < partitionCount; i++) {
+        int workerIndex = i;
+        List<ClientInputFile> partition = partitions.get(i);
+        IssueCollector collector = new IssueCollector();
+        collectors.add(collector);
+        IssueListener partitionListener = gated(collector, baseDirPath);
+        completionService.submit(() -> {
+          partitionResults[workerIndex] = worker(workerIndex).analyze(properties, partition, baseDirPath, partitionListener);
+          return workerIndex;
+        });
+      }
+      // the first failure is thrown without waiting for the other jobs, which are then interrupted
+      for (int i = 0; i < partitionCount; i++) {
+        completionService.take().get();
+      }
+      checkNotAborted();
+
+      DefaultAnalysisResults results = new DefaultAnalysisResults();
+      for (int i = 0; i < partitionCount; i++) {
+        results.add(partitionResults[i]);
+        collectors.get(i).get().forEach(listener::handle);
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Analysis interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Error during analysis", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private IssueListener gated(IssueListener listener, Path baseDirPath) {
+    return severityGate == null ? listener : severityGate.wrap(listener, issue -> mayBeDroppedByTracking(baseDirPath, issue));
+  }
+
+  private void checkNotAborted() {
+    if (severityGate != null) {
+      severityGate.checkNotAborted();
+    }
+  }
+
+  private SonarLint worker(int index) {
+    if (index == 0) {
+      return this;
+    }
+    // each index is only used by one task at a time, and the tasks are joined before the array is read again
+    SonarLint worker = workers[index - 1];
+    if (worker == null) {
+      worker = createWorker();
+      workers[index - 1] = worker;
+    }
+    return worker;
+  }
+
+  /**
+   * Stops the additional engines created to analyze with several jobs.
+   */
+  protected void stopWorkers() {
+    for (SonarLint worker : workers) {
+      if (worker != null) {
+        worker.stop();
+      }
+    }
+    workers = new SonarLint[0];
+  }
+
+  /**
+   * Splits the files in partitions of similar total size. Each file goes to the lightest partition, biggest files first.
+   */
+  static List<List<ClientInputFile>> partitionBySize(List<ClientInputFile> inputFiles, int partitionCount) {
+    List<ClientInputFile> sorted = new ArrayList<>(inputFiles);
+    Map<ClientInputFile, Long> sizes = new HashMap<>();
+    for (ClientInputFile inputFile : sorted) {
+      sizes.put(inputFile, size(inputFile));
+    }
+    sorted.sort(Comparator.comparing(sizes::get, Comparator.reverseOrder()));
+
+    List<List<ClientInputFile>> partitions = new ArrayList<>(partitionCount);
+    long[] partitionSizes = new long[partitionCount];
+    for (int i = 0; i < partitionCount; i++) {
+      partitions.add(new ArrayList<>());
+    }
+    for (ClientInputFile inputFile : sorted) {
+      int lightest = 0;
+      for (int i = 1; i < partitionCount; i++) {
+        if (partitionSizes[i] < partitionSizes[lightest]) {
+          lightest = i;
+        }
+      }
+      partitions.get(lightest).add(inputFile);
+      partitionSizes[lightest] += sizes.get(inputFile);
+    }
+    return partitions;
+  }
+
+  private static long size(ClientInputFile inputFile) {
+    try {
+      return Files.size(Paths.get(inputFile.getPath()));
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private String fingerprint(Map<String, String> properties) {
+    MessageDigest digest = Util.sha1();
+    digest.update(analyzerFingerprint().getBytes(StandardCharsets.UTF_8));
+    digest.update(("\n" + inputConfiguration).getBytes(StandardCharsets.UTF_8));
+    for (Map.Entry<String, String> e : new TreeMap<>(properties).entrySet()) {
+      digest.update(("\n" + e.getKey() + "=" + e.getValue()).getBytes(StandardCharsets.UTF_8));
+    }
+    return Util.toHex(digest.digest());
+  }
+
   public abstract void stop();
 
   protected void generateReports(Collection<Trackable> trackables, AnalysisResults result, ReportFactory reportFactory, String projectName, Path baseDir, Date date) {
+    if (severityGate != null) {
+      severityGate.check(trackables);
+    }
     List<Reporter> reporters = reportFactory.createReporters(baseDir);
 
     for (Reporter r : reporters) {
@@ -40,7 +40,6 @@ import org.sonarsource.sonarlint.core.ConnectedSonarLintEngineImpl;
 import org.sonarsource.sonarlint.core.StandaloneSonarLintEngineImpl;
 import org.sonarsource.sonarlint.core.client.api.connected.ConnectedGlobalConfiguration;
 import org.sonarsource.sonarlint.core.client.api.standalone.StandaloneGlobalConfiguration;
-import org.sonarsource.sonarlint.core.client.api.standalone.StandaloneSonarLintEngine;
 
 public class SonarLintFactory {
   private static final Logger LOGGER = Logger.get();
@@ -49,8 +48,10 @@ public class SonarLintFactory {
 
   private static final String GLOBAL_CONFIGURATION_FILENAME = "global.json";
   private static final String PROJECT_CONFIGURATION_FILENAME = "sonarlint.json";
+  private static final String PLUGIN_METADATA_CACHE_PATH = "cache/plugins";
 
   private final ConfigurationReader configurationReader;
+  private boolean lazyPluginLoading = false;
 
   static {
     String home = System.getProperty("user.home");
@@ -64,6 +65,17 @@ public class SonarLintFactory {
     this.configurationReader = configurationReader;
   }
 
+  /**
+   * When set, standalone instances only load the plugins of the languages of the analyzed files.
+   */
+  public void setLazyPluginLoading(boolean lazyPluginLoading) {
+    this.lazyPluginLoading = lazyPluginLoading;
+  }
+
+  boolean isLazyPluginLoading() {
+    return lazyPluginLoading;
+  }
+
   public SonarLint createSonarLint(Path projectHome, boolean mustBeConnected, boolean verbose) {
     return createSonarLint(GLOBAL_CONFIGURATION_FILEPATH, projectHome.resolve(PROJECT_CONFIGURATION_FILENAME), mustBeConnected, verbose);
   }
@@ -120,11 +132,10 @@ public class SonarLintFactory {
       .setLogOutput(new DefaultLogOutput(LOGGER, verbose))
       .setServerId(server.id())
       .build();
-    ConnectedSonarLintEngineImpl engine = new ConnectedSonarLintEngineImpl(config);
-    return new ConnectedSonarLint(engine, server, projectKey);
+    return new ConnectedSonarLint(new ConnectedSonarLintEngineImpl(config), server, projectKey, () -> new ConnectedSonarLintEngineImpl(config));
   }
 
-  private static SonarLint createStandalone(boolean verbose) {
+  private SonarLint createStandalone(boolean verbose) {
     LOGGER.info("Standalone mode");
     URL[] plugins;
 
@@ -134,25 +145,27 @@ public class SonarLintFactory {
       throw new IllegalStateException("Error loading plugins", e);
     }
 
-    StandaloneGlobalConfiguration config = StandaloneGlobalConfiguration.builder()
+    if (lazyPluginLoading) {
+      PluginMetadataCache metadataCache = PluginMetadataCache.load(sonarLintHome().resolve(PLUGIN_METADATA_CACHE_PATH));
+      PluginSelector pluginSelector = PluginSelector.create(plugins, metadataCache);
+      metadataCache.save();
+      return new StandaloneSonarLint(plugins, pluginSelector, pluginUrls -> new StandaloneSonarLintEngineImpl(standaloneConfig(pluginUrls, verbose)));
+    }
+
+    StandaloneGlobalConfiguration config = standaloneConfig(plugins, verbose);
+    return new StandaloneSonarLint(new StandaloneSonarLintEngineImpl(config), plugins, () -> new StandaloneSonarLintEngineImpl(config));
+  }
+
+  private static StandaloneGlobalConfiguration standaloneConfig(URL[] plugins, boolean verbose) {
+    return StandaloneGlobalConfiguration.builder()
       .addPlugins(plugins)
       .setLogOutput(new DefaultLogOutput(LOGGER, verbose))
       .build();
-
-    StandaloneSonarLintEngine engine = new StandaloneSonarLintEngineImpl(config);
-    return new StandaloneSonarLint(engine);
   }
 
   @VisibleForTesting
   static URL[] loadPlugins() throws IOException {
-    String sonarlintHome = System.getProperty(SonarProperties.SONARLINT_HOME);
-
-    if (sonarlintHome == null) {
-      throw new IllegalStateException("Can't find SonarLint home. System property not set: " + SonarProperties.SONARLINT_HOME);
-    }
-
-    Path sonarLintHomePath = Paths.get(sonarlintHome);
-    Path pluginDir = sonarLintHomePath.resolve("plugins");
+    Path pluginDir = sonarLintHome().resolve("plugins");
 
     List<URL> pluginsUrls = new ArrayList<>();
     try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(pluginDir)) {
@@ -163,4 +176,14 @@ public class SonarLintFactory {
     return pluginsUrls.toArray(new URL[pluginsUrls.size()]);
   }
 
+  private static Path sonarLintHome() {
+    String sonarlintHome = System.getProperty(SonarProperties.SONARLINT_HOME);
+
+    if (sonarlintHome == null) {
+      throw new IllegalStateException("Can't find SonarLint home. System property not set: " + SonarProperties.SONARLINT_HOME);
+    }
+
+    return Paths.get(sonarlintHome);
+  }
+
 }
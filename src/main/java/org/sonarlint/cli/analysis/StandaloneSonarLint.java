@@ -19,26 +19,86 @@
  */
 package org.sonarlint.cli.analysis;
 
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.sonarlint.cli.report.ReportFactory;
+import org.sonarlint.cli.util.Logger;
 import org.sonarsource.sonarlint.core.client.api.common.RuleDetails;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.AnalysisResults;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
 import org.sonarsource.sonarlint.core.client.api.standalone.StandaloneAnalysisConfiguration;
 import org.sonarsource.sonarlint.core.client.api.standalone.StandaloneSonarLintEngine;
 import org.sonarsource.sonarlint.core.tracking.IssueTrackable;
 import org.sonarsource.sonarlint.core.tracking.Trackable;
 
 public class StandaloneSonarLint extends SonarLint {
-  private final StandaloneSonarLintEngine engine;
+  private static final Logger LOGGER = Logger.get();
+  private static final String FILE_SUFFIXES_PROPERTY_SUFFIX = ".file.suffixes";
+
+  private StandaloneSonarLintEngine engine;
+  private final URL[] plugins;
+  private final Supplier<StandaloneSonarLintEngine> engineFactory;
+
+  // only used when plugins are loaded on demand
+  private final PluginSelector pluginSelector;
+  private final Function<URL[], StandaloneSonarLintEngine> pluginsEngineFactory;
+  // plugins needed by this instance and its workers so far
+  private final Set<URL> requiredPlugins;
+  private List<URL> loadedPlugins = Collections.emptyList();
 
   public StandaloneSonarLint(StandaloneSonarLintEngine engine) {
+    this(engine, new URL[0], null);
+  }
+
+  /**
+   * @param engineFactory creates the additional engines used to analyze with several jobs
+   */
+  public StandaloneSonarLint(StandaloneSonarLintEngine engine, URL[] plugins, @Nullable Supplier<StandaloneSonarLintEngine> engineFactory) {
     this.engine = engine;
+    this.plugins = plugins;
+    this.engineFactory = engineFactory;
+    this.pluginSelector = null;
+    this.pluginsEngineFactory = null;
+    this.requiredPlugins = null;
+  }
+
+  /**
+   * Loads the plugins on demand: engines are created with only the plugins needed by the files of a run, and created
+   * again with more plugins when a later run, or a file analyzed without preparation, needs other languages.
+   *
+   * @param pluginsEngineFactory creates an engine with the given plugins
+   */
+  StandaloneSonarLint(URL[] plugins, PluginSelector pluginSelector, Function<URL[], StandaloneSonarLintEngine> pluginsEngineFactory) {
+    this(plugins, pluginSelector, pluginsEngineFactory, Collections.synchronizedSet(new LinkedHashSet<>()));
+  }
+
+  private StandaloneSonarLint(URL[] plugins, PluginSelector pluginSelector, Function<URL[], StandaloneSonarLintEngine> pluginsEngineFactory,
+    Set<URL> requiredPlugins) {
+    this.engine = null;
+    this.plugins = plugins;
+    this.engineFactory = null;
+    this.pluginSelector = pluginSelector;
+    this.pluginsEngineFactory = pluginsEngineFactory;
+    this.requiredPlugins = requiredPlugins;
   }
 
   @Override
@@ -46,20 +106,110 @@ public class StandaloneSonarLint extends SonarLint {
     Date start = new Date();
 
     IssueCollector collector = new IssueCollector();
+    AnalysisResults result = analyzeFiles(properties, inputFiles, baseDirPath, collector);
+    Collection<Trackable> trackables = trackIssues(baseDirPath, collector.get());
+    generateReports(trackables, result, reportFactory, baseDirPath.getFileName().toString(), baseDirPath, start);
+  }
+
+  @Override
+  protected Collection<Trackable> trackIssues(Path baseDirPath, Collection<Issue> issues) {
+    return issues.stream().map(IssueTrackable::new).collect(Collectors.toList());
+  }
+
+  @Override
+  protected AnalysisResults analyze(Map<String, String> properties, List<ClientInputFile> inputFiles, Path baseDirPath, IssueListener listener) {
     StandaloneAnalysisConfiguration config = new StandaloneAnalysisConfiguration(baseDirPath, baseDirPath.resolve(".sonarlint"),
       inputFiles, properties);
-    AnalysisResults result = engine.analyze(config, collector);
-    Collection<Trackable> trackables = collector.get().stream().map(IssueTrackable::new).collect(Collectors.toList());
-    generateReports(trackables, result, reportFactory, baseDirPath.getFileName().toString(), baseDirPath, start);
+    if (pluginSelector != null) {
+      // no-op when the plugins of the whole run were loaded by prepareAnalysis
+      loadPlugins(selectPlugins(properties, inputFiles));
+    }
+    return engine.analyze(config, listener);
+  }
+
+  /**
+   * Loads once the plugins needed by all the files of the run, so that the engine is not created again between batches
+   * or by the workers, and so that the rules of the issues taken from the cache can be found.
+   */
+  @Override
+  protected void prepareAnalysis(Map<String, String> properties, @Nullable Collection<ClientInputFile> inputFiles) {
+    if (pluginSelector != null) {
+      loadPlugins(inputFiles == null ? Arrays.asList(plugins) : selectPlugins(properties, inputFiles));
+    }
+  }
+
+  private List<URL> selectPlugins(Map<String, String> properties, Collection<ClientInputFile> inputFiles) {
+    // analyzers of languages with custom file suffixes can't be selected by extension
+    boolean customSuffixes = properties.keySet().stream().anyMatch(k -> k.endsWith(FILE_SUFFIXES_PROPERTY_SUFFIX));
+    return customSuffixes ? Arrays.asList(plugins) : pluginSelector.select(inputFiles);
+  }
+
+  /**
+   * Makes sure that the engine has the given plugins, and the ones required before by this instance or its workers,
+   * so that rule details can be found whichever engine raised the issues.
+   */
+  private void loadPlugins(Collection<URL> neededPlugins) {
+    requiredPlugins.addAll(neededPlugins);
+    List<URL> toLoad = Arrays.stream(plugins).filter(requiredPlugins::contains).collect(Collectors.toList());
+    if (engine != null && loadedPlugins.containsAll(toLoad)) {
+      return;
+    }
+    if (engine != null) {
+      engine.stop();
+    }
+    LOGGER.debug(String.format("Loading %d of %d plugins", toLoad.size(), plugins.length));
+    engine = pluginsEngineFactory.apply(toLoad.toArray(new URL[toLoad.size()]));
+    loadedPlugins = toLoad;
+  }
+
+  @Override
+  protected SonarLint createWorker() {
+    if (pluginSelector != null) {
+      return new StandaloneSonarLint(plugins, pluginSelector, pluginsEngineFactory, requiredPlugins);
+    }
+    if (engineFactory == null) {
+      throw new IllegalStateException("Analysis with several jobs is not supported by this instance");
+    }
+    return new StandaloneSonarLint(engineFactory.get(), plugins, engineFactory);
+  }
+
+  @Override
+  protected String analyzerFingerprint() {
+    return pluginsFingerprint(plugins);
+  }
+
+  /**
+   * Identifies the plugins by their URL, size and modification time.
+   */
+  static String pluginsFingerprint(URL[] plugins) {
+    StringBuilder sb = new StringBuilder();
+    for (URL plugin : plugins) {
+      sb.append(plugin);
+      try {
+        BasicFileAttributes attrs = Files.readAttributes(Paths.get(plugin.toURI()), BasicFileAttributes.class);
+        sb.append(':').append(attrs.size()).append(':').append(attrs.lastModifiedTime().toMillis());
+      } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+        // plugin identified by its URL only
+      }
+      sb.append('\n');
+    }
+    return sb.toString();
   }
 
   @Override
   protected RuleDetails getRuleDetails(String ruleKey) {
+    if (pluginSelector != null && engine == null) {
+      // nothing was prepared nor analyzed, any plugin may have raised the issue
+      loadPlugins(Arrays.asList(plugins));
+    }
     return engine.getRuleDetails(ruleKey);
   }
 
   @Override
   public void stop() {
-    engine.stop();
+    stopWorkers();
+    if (engine != null) {
+      engine.stop();
+    }
   }
 }
@@ -0,0 +1,253 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueLocation;
+
+/**
+ * Issue read back from disk, with its secondary locations (flows).
+ */
+class StoredIssue implements Issue {
+  private final String ruleKey;
+  private final String ruleName;
+  private final String severity;
+  private final String message;
+  private final Integer startLine;
+  private final Integer startLineOffset;
+  private final Integer endLine;
+  private final Integer endLineOffset;
+  private final List<Flow> flows;
+  private final ClientInputFile inputFile;
+
+  private StoredIssue(String ruleKey, String ruleName, String severity, @Nullable String message, @Nullable Integer startLine,
+    @Nullable Integer startLineOffset, @Nullable Integer endLine, @Nullable Integer endLineOffset, List<Flow> flows, @Nullable ClientInputFile inputFile) {
+    this.ruleKey = ruleKey;
+    this.ruleName = ruleName;
+    this.severity = severity;
+    this.message = message;
+    this.startLine = startLine;
+    this.startLineOffset = startLineOffset;
+    this.endLine = endLine;
+    this.endLineOffset = endLineOffset;
+    this.flows = flows;
+    this.inputFile = inputFile;
+  }
+
+  static StoredIssue copyOf(Issue issue) {
+    List<Flow> flows = new ArrayList<>(issue.flows().size());
+    for (Flow flow : issue.flows()) {
+      List<IssueLocation> locations = new ArrayList<>(flow.locations().size());
+      for (IssueLocation location : flow.locations()) {
+        locations.add(new StoredLocation(location.getMessage(), location.getStartLine(), location.getStartLineOffset(), location.getEndLine(),
+          location.getEndLineOffset()));
+      }
+      flows.add(new StoredFlow(locations));
+    }
+    return new StoredIssue(issue.getRuleKey(), issue.getRuleName(), issue.getSeverity(), issue.getMessage(), issue.getStartLine(),
+      issue.getStartLineOffset(), issue.getEndLine(), issue.getEndLineOffset(), flows, issue.getInputFile());
+  }
+
+  StoredIssue withInputFile(@Nullable ClientInputFile file) {
+    return new StoredIssue(ruleKey, ruleName, severity, message, startLine, startLineOffset, endLine, endLineOffset, flows, file);
+  }
+
+  static void write(Issue issue, DataOutput out) throws IOException {
+    out.writeUTF(issue.getRuleKey());
+    out.writeUTF(issue.getRuleName());
+    out.writeUTF(issue.getSeverity());
+    writeNullable(issue.getMessage(), out);
+    writeNullable(issue.getStartLine(), out);
+    writeNullable(issue.getStartLineOffset(), out);
+    writeNullable(issue.getEndLine(), out);
+    writeNullable(issue.getEndLineOffset(), out);
+    out.writeInt(issue.flows().size());
+    for (Flow flow : issue.flows()) {
+      out.writeInt(flow.locations().size());
+      for (IssueLocation location : flow.locations()) {
+        writeNullable(location.getMessage(), out);
+        writeNullable(location.getStartLine(), out);
+        writeNullable(location.getStartLineOffset(), out);
+        writeNullable(location.getEndLine(), out);
+        writeNullable(location.getEndLineOffset(), out);
+      }
+    }
+  }
+
+  static StoredIssue read(DataInput in, @Nullable ClientInputFile inputFile) throws IOException {
+    String ruleKey = in.readUTF();
+    String ruleName = in.readUTF();
+    String severity = in.readUTF();
+    String message = readNullableString(in);
+    Integer startLine = readNullableInt(in);
+    Integer startLineOffset = readNullableInt(in);
+    Integer endLine = readNullableInt(in);
+    Integer endLineOffset = readNullableInt(in);
+    int flowCount = in.readInt();
+    List<Flow> flows = new ArrayList<>(flowCount);
+    for (int i = 0; i < flowCount; i++) {
+      int locationCount = in.readInt();
+      List<IssueLocation> locations = new ArrayList<>(locationCount);
+      for (int j = 0; j < locationCount; j++) {
+        locations.add(new StoredLocation(readNullableString(in), readNullableInt(in), readNullableInt(in), readNullableInt(in), readNullableInt(in)));
+      }
+      flows.add(new StoredFlow(locations));
+    }
+    return new StoredIssue(ruleKey, ruleName, severity, message, startLine, startLineOffset, endLine, endLineOffset, flows, inputFile);
+  }
+
+  private static void writeNullable(@Nullable String value, DataOutput out) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static void writeNullable(@Nullable Integer value, DataOutput out) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeInt(value);
+    }
+  }
+
+  @CheckForNull
+  private static String readNullableString(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  @CheckForNull
+  private static Integer readNullableInt(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readInt() : null;
+  }
+
+  @Override
+  public String getSeverity() {
+    return severity;
+  }
+
+  @Override
+  public Integer getStartLine() {
+    return startLine;
+  }
+
+  @Override
+  public Integer getStartLineOffset() {
+    return startLineOffset;
+  }
+
+  @Override
+  public Integer getEndLine() {
+    return endLine;
+  }
+
+  @Override
+  public Integer getEndLineOffset() {
+    return endLineOffset;
+  }
+
+  @Override
+  public List<Flow> flows() {
+    return Collections.unmodifiableList(flows);
+  }
+
+  @Override
+  public String getMessage() {
+    return message;
+  }
+
+  @Override
+  public String getRuleKey() {
+    return ruleKey;
+  }
+
+  @Override
+  public String getRuleName() {
+    return ruleName;
+  }
+
+  @Override
+  public ClientInputFile getInputFile() {
+    return inputFile;
+  }
+
+  private static class StoredFlow implements Flow {
+    private final List<IssueLocation> locations;
+
+    private StoredFlow(List<IssueLocation> locations) {
+      this.locations = locations;
+    }
+
+    @Override
+    public List<IssueLocation> locations() {
+      return Collections.unmodifiableList(locations);
+    }
+  }
+
+  private static class StoredLocation implements IssueLocation {
+    private final String message;
+    private final Integer startLine;
+    private final Integer startLineOffset;
+    private final Integer endLine;
+    private final Integer endLineOffset;
+
+    private StoredLocation(@Nullable String message, @Nullable Integer startLine, @Nullable Integer startLineOffset, @Nullable Integer endLine,
+      @Nullable Integer endLineOffset) {
+      this.message = message;
+      this.startLine = startLine;
+      this.startLineOffset = startLineOffset;
+      this.endLine = endLine;
+      this.endLineOffset = endLineOffset;
+    }
+
+    @Override
+    public Integer getStartLine() {
+      return startLine;
+    }
+
+    @Override
+    public Integer getStartLineOffset() {
+      return startLineOffset;
+    }
+
+    @Override
+    public Integer getEndLine() {
+      return endLine;
+    }
+
+    @Override
+    public Integer getEndLineOffset() {
+      return endLineOffset;
+    }
+
+    @Override
+    public String getMessage() {
+      return message;
+    }
+  }
+}
@@ -0,0 +1,298 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javax.annotation.CheckForNull;
+import org.sonarlint.cli.util.Logger;
+
+/**
+ * Rules of the <code>.gitignore</code> files of a work tree, and of <code>info/exclude</code> in its git directory.
+ * <p>
+ * The <code>.gitignore</code> file of a directory is read the first time a path of that directory is checked. Rules
+ * are evaluated like git does: the last matching rule wins, and rules of deeper directories take precedence.
+ * A file in an ignored directory can't be re-included, which callers are expected to honor by not descending into ignored
+ * directories. Instances are thread-safe.
+ */
+public class GitIgnore {
+  private static final Logger LOGGER = Logger.get();
+  private static final String FILE_NAME = ".gitignore";
+
+  private final Path root;
+  private final List<Rule> excludeRules;
+  private final Map<Path, List<Rule>> rulesByDirectory = new ConcurrentHashMap<>();
+
+  GitIgnore(Path root, List<Rule> excludeRules) {
+    this.root = root;
+    this.excludeRules = excludeRules;
+  }
+
+  /**
+   * Loads the rules applying to the given directory: those of the git work tree containing it, or only those of its own
+   * <code>.gitignore</code> files if it's not in a work tree.
+   */
+  public static GitIgnore load(Path dir) throws IOException {
+    GitRepository.Location location = GitRepository.locate(dir);
+    if (location == null) {
+      return new GitIgnore(dir.toAbsolutePath().normalize(), Collections.emptyList());
+    }
+    return new GitIgnore(location.workTree, parse(location.commonDir.resolve("info").resolve("exclude"), ""));
+  }
+
+  /**
+   * Whether the path is ignored. The parent directories are not checked.
+   */
+  public boolean isIgnored(Path path, boolean directory) {
+    Path absolute = path.toAbsolutePath().normalize();
+    Path parent = absolute.getParent();
+    if (parent == null || !absolute.startsWith(root) || absolute.equals(root)) {
+      return false;
+    }
+    String relativePath = root.relativize(absolute).toString();
+    if (File.separatorChar != '/') {
+      relativePath = relativePath.replace(File.separatorChar, '/');
+    }
+    String name = absolute.getFileName().toString();
+    List<Rule> rules = rulesFor(parent);
+    for (int i = rules.size() - 1; i >= 0; i--) {
+      Rule rule = rules.get(i);
+      if (rule.matches(relativePath.substring(rule.base.length()), name, directory)) {
+        return !rule.negated;
+      }
+    }
+    return false;
+  }
+
+  private List<Rule> rulesFor(Path dir) {
+    List<Rule> rules = rulesByDirectory.get(dir);
+    if (rules != null) {
+      return rules;
+    }
+    List<Rule> inherited;
+    String base;
+    if (dir.equals(root)) {
+      inherited = excludeRules;
+      base = "";
+    } else {
+      inherited = rulesFor(dir.getParent());
+      base = root.relativize(dir).toString().replace(File.separatorChar, '/') + "/";
+    }
+    List<Rule> own = parse(dir.resolve(FILE_NAME), base);
+    if (own.isEmpty()) {
+      rules = inherited;
+    } else {
+      rules = new ArrayList<>(inherited.size() + own.size());
+      rules.addAll(inherited);
+      rules.addAll(own);
+    }
+    List<Rule> existing = rulesByDirectory.putIfAbsent(dir, rules);
+    return existing != null ? existing : rules;
+  }
+
+  private static List<Rule> parse(Path file, String base) {
+    String content;
+    try {
+      content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    } catch (NoSuchFileException e) {
+      return Collections.emptyList();
+    } catch (IOException e) {
+      LOGGER.debug("Unable to read " + file + ": " + e.getMessage());
+      return Collections.emptyList();
+    }
+    List<Rule> rules = new ArrayList<>();
+    for (String line : content.split("\n")) {
+      try {
+        Rule rule = Rule.parse(line, base);
+        if (rule != null) {
+          rules.add(rule);
+        }
+      } catch (PatternSyntaxException e) {
+        LOGGER.debug("Ignoring invalid pattern in " + file + ": " + line);
+      }
+    }
+    return rules;
+  }
+
+  static class Rule {
+    private final String base;
+    private final boolean negated;
+    private final boolean directoryOnly;
+    private final boolean anchored;
+    private final String literal;
+    private final Pattern pattern;
+
+    private Rule(String base, boolean negated, boolean directoryOnly, boolean anchored, String glob) {
+      this.base = base;
+      this.negated = negated;
+      this.directoryOnly = directoryOnly;
+      this.anchored = anchored;
+      if (!anchored && isLiteral(glob)) {
+        // most common case, such as "target" or "node_modules": no regular expression needed
+        this.literal = glob;
+        this.pattern = null;
+      } else {
+        this.literal = null;
+        this.pattern = Pattern.compile(toRegex(glob));
+      }
+    }
+
+    @CheckForNull
+    static Rule parse(String line, String base) {
+      String glob = trimTrailingSpaces(line);
+      if (glob.isEmpty() || glob.charAt(0) == '#') {
+        return null;
+      }
+      boolean negated = glob.charAt(0) == '!';
+      if (negated) {
+        glob = glob.substring(1);
+      }
+      boolean directoryOnly = glob.endsWith("/");
+      if (directoryOnly) {
+        glob = glob.substring(0, glob.length() - 1);
+      }
+      boolean anchored = glob.indexOf('/') >= 0;
+      if (glob.startsWith("/")) {
+        glob = glob.substring(1);
+      }
+      if (glob.isEmpty()) {
+        return null;
+      }
+      return new Rule(base, negated, directoryOnly, anchored, glob);
+    }
+
+    /**
+     * @param relativePath path relative to the directory of the <code>.gitignore</code> file declaring the rule
+     */
+    boolean matches(String relativePath, String name, boolean directory) {
+      if (directoryOnly && !directory) {
+        return false;
+      }
+      if (literal != null) {
+        return literal.equals(name);
+      }
+      return pattern.matcher(anchored ? relativePath : name).matches();
+    }
+
+    private static String trimTrailingSpaces(String line) {
+      int end = line.length();
+      if (end > 0 && line.charAt(end - 1) == '\r') {
+        end--;
+      }
+      while (end > 0 && line.charAt(end - 1) == ' ' && (end < 2 || line.charAt(end - 2) != '\\')) {
+        end--;
+      }
+      return line.substring(0, end);
+    }
+
+    private static boolean isLiteral(String glob) {
+      for (int i = 0; i < glob.length(); i++) {
+        char c = glob.charAt(i);
+        if (c == '*' || c == '?' || c == '[' || c == '\\') {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    static String toRegex(String glob) {
+      StringBuilder regex = new StringBuilder(glob.length() * 2);
+      int length = glob.length();
+      for (int i = 0; i < length; i++) {
+        char c = glob.charAt(i);
+        if (c == '*') {
+          boolean segmentStart = i == 0 || glob.charAt(i - 1) == '/';
+          if (segmentStart && i + 1 < length && glob.charAt(i + 1) == '*' && (i + 2 == length || glob.charAt(i + 2) == '/')) {
+            if (i + 2 == length) {
+              // trailing "/**": everything inside
+              regex.append(".*");
+            } else {
+              // leading "**/" or "/**/": zero or more directories
+              regex.append("(?:.*/)?");
+              i++;
+            }
+            i++;
+          } else {
+            regex.append("[^/]*");
+            while (i + 1 < length && glob.charAt(i + 1) == '*') {
+              i++;
+            }
+          }
+        } else if (c == '?') {
+          regex.append("[^/]");
+        } else if (c == '[') {
+          i = appendCharacterClass(glob, i, regex);
+        } else if (c == '\\' && i + 1 < length) {
+          i++;
+          appendLiteral(glob.charAt(i), regex);
+        } else {
+          appendLiteral(c, regex);
+        }
+      }
+      return regex.toString();
+    }
+
+    private static int appendCharacterClass(String glob, int start, StringBuilder regex) {
+      int i = start + 1;
+      boolean negated = i < glob.length() && (glob.charAt(i) == '!' || glob.charAt(i) == '^');
+      if (negated) {
+        i++;
+      }
+      int contentStart = i;
+      if (i < glob.length() && glob.charAt(i) == ']') {
+        i++;
+      }
+      int end = glob.indexOf(']', i);
+      if (end < 0) {
+        appendLiteral('[', regex);
+        return start;
+      }
+      regex.append(negated ? "[^/" : "[");
+      for (int j = contentStart; j < end; j++) {
+        char c = glob.charAt(j);
+        if (c == '-') {
+          regex.append(c);
+        } else {
+          appendLiteral(c, regex);
+        }
+      }
+      regex.append(']');
+      return end;
+    }
+
+    private static void appendLiteral(char c, StringBuilder regex) {
+      if (!Character.isLetterOrDigit(c)) {
+        regex.append('\\');
+      }
+      regex.append(c);
+    }
+  }
+}
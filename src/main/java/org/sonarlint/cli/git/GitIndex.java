@@ -0,0 +1,157 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.git;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entries of the git index (versions 2 to 4). Only the information needed to detect changes is kept.
+ */
+class GitIndex {
+  private static final int SIGNATURE = 0x44495243;
+  private static final int EXTENDED_FLAG = 0x4000;
+  private static final int SKIP_WORKTREE_FLAG = 0x4000;
+  private static final int STAGE_MASK = 0x3000;
+  private static final int NAME_MASK = 0xfff;
+  private static final int TYPE_MASK = 0170000;
+  private static final int TYPE_REGULAR_FILE = 0100000;
+
+  private final List<Entry> entries;
+  private final long modifiedMillis;
+
+  private GitIndex(List<Entry> entries, long modifiedMillis) {
+    this.entries = entries;
+    this.modifiedMillis = modifiedMillis;
+  }
+
+  List<Entry> entries() {
+    return entries;
+  }
+
+  /**
+   * Modification time of the index file. Entries whose file was modified at or after it are "racy": their stat
+   * information can't prove the file is unchanged.
+   */
+  long modifiedMillis() {
+    return modifiedMillis;
+  }
+
+  static GitIndex read(Path indexFile) throws IOException {
+    long modified = Files.getLastModifiedTime(indexFile).toMillis();
+    byte[] bytes = Files.readAllBytes(indexFile);
+    if (bytes.length < 12 || PackFile.getInt(bytes, 0) != SIGNATURE) {
+      throw new IOException("Invalid git index: " + indexFile);
+    }
+    int version = PackFile.getInt(bytes, 4);
+    if (version < 2 || version > 4) {
+      throw new IOException("Unsupported git index version " + version + ": " + indexFile);
+    }
+    int count = PackFile.getInt(bytes, 8);
+    List<Entry> entries = new ArrayList<>(count);
+    int pos = 12;
+    byte[] previousName = new byte[0];
+    for (int i = 0; i < count; i++) {
+      int start = pos;
+      long mtimeSeconds = PackFile.getInt(bytes, pos + 8) & 0xffffffffL;
+      int mtimeNanos = PackFile.getInt(bytes, pos + 12);
+      int mode = PackFile.getInt(bytes, pos + 24);
+      long size = PackFile.getInt(bytes, pos + 36) & 0xffffffffL;
+      String id = ObjectId.toHex(bytes, pos + 40);
+      int flags = ((bytes[pos + 60] & 0xff) << 8) | (bytes[pos + 61] & 0xff);
+      pos += 62;
+      int extendedFlags = 0;
+      if ((flags & EXTENDED_FLAG) != 0) {
+        extendedFlags = ((bytes[pos] & 0xff) << 8) | (bytes[pos + 1] & 0xff);
+        pos += 2;
+      }
+
+      byte[] name;
+      if (version == 4) {
+        int c = bytes[pos++] & 0xff;
+        int strip = c & 0x7f;
+        while ((c & 0x80) != 0) {
+          c = bytes[pos++] & 0xff;
+          strip = ((strip + 1) << 7) | (c & 0x7f);
+        }
+        int end = ObjectDatabase.indexOf(bytes, (byte) 0, pos);
+        int prefixLength = previousName.length - strip;
+        name = new byte[prefixLength + end - pos];
+        System.arraycopy(previousName, 0, name, 0, prefixLength);
+        System.arraycopy(bytes, pos, name, prefixLength, end - pos);
+        pos = end + 1;
+      } else {
+        int nameLength = flags & NAME_MASK;
+        int end = nameLength < NAME_MASK ? pos + nameLength : ObjectDatabase.indexOf(bytes, (byte) 0, pos);
+        name = new byte[end - pos];
+        System.arraycopy(bytes, pos, name, 0, name.length);
+        // entries are padded with 1 to 8 NUL bytes to a multiple of 8 bytes
+        pos = start + ((end - start + 8) & ~7);
+      }
+      previousName = name;
+
+      boolean tracked = (flags & STAGE_MASK) == 0 && (extendedFlags & SKIP_WORKTREE_FLAG) == 0 && (mode & TYPE_MASK) == TYPE_REGULAR_FILE;
+      if (tracked) {
+        entries.add(new Entry(new String(name, StandardCharsets.UTF_8), id, size, mtimeSeconds, mtimeNanos));
+      }
+    }
+    return new GitIndex(entries, modified);
+  }
+
+  static class Entry {
+    private final String path;
+    private final String id;
+    private final long size;
+    private final long mtimeSeconds;
+    private final int mtimeNanos;
+
+    Entry(String path, String id, long size, long mtimeSeconds, int mtimeNanos) {
+      this.path = path;
+      this.id = id;
+      this.size = size;
+      this.mtimeSeconds = mtimeSeconds;
+      this.mtimeNanos = mtimeNanos;
+    }
+
+    String path() {
+      return path;
+    }
+
+    String id() {
+      return id;
+    }
+
+    long size() {
+      return size;
+    }
+
+    long mtimeSeconds() {
+      return mtimeSeconds;
+    }
+
+    int mtimeNanos() {
+      return mtimeNanos;
+    }
+  }
+}
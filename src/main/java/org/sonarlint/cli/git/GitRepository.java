@@ -0,0 +1,342 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.git;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import org.sonarlint.cli.git.ObjectDatabase.GitObject;
+import org.sonarlint.cli.util.Logger;
+
+/**
+ * Minimal read-only access to a local git repository, without any external git command: references, object database
+ * (loose objects and packs) and index.
+ */
+public class GitRepository implements Closeable {
+  private static final Logger LOGGER = Logger.get();
+  private static final String[] REF_PREFIXES = {"", "refs/", "refs/tags/", "refs/heads/", "refs/remotes/"};
+  private static final int MAX_SYMREF_DEPTH = 5;
+
+  private final Path workTree;
+  private final Path gitDir;
+  private final Path commonDir;
+  private final ObjectDatabase objects;
+  private Map<String, String> packedRefs;
+
+  GitRepository(Path workTree, Path gitDir, Path commonDir) throws IOException {
+    this.workTree = workTree;
+    this.gitDir = gitDir;
+    this.commonDir = commonDir;
+    this.objects = new ObjectDatabase(commonDir.resolve("objects"));
+  }
+
+  /**
+   * Finds the repository containing the given directory.
+   * @return null if the directory is not in a git work tree
+   */
+  @CheckForNull
+  public static GitRepository find(Path dir) throws IOException {
+    Location location = locate(dir);
+    return location != null ? new GitRepository(location.workTree, location.gitDir, location.commonDir) : null;
+  }
+
+  /**
+   * Locates the work tree and git directories of the repository containing the given directory, without opening it.
+   */
+  @CheckForNull
+  static Location locate(Path dir) throws IOException {
+    for (Path current = dir.toAbsolutePath().normalize(); current != null; current = current.getParent()) {
+      Path dotGit = current.resolve(".git");
+      if (Files.isDirectory(dotGit)) {
+        return locate(current, dotGit);
+      }
+      if (Files.isRegularFile(dotGit)) {
+        // work tree created by "git worktree" or submodule
+        String content = new String(Files.readAllBytes(dotGit), StandardCharsets.UTF_8).trim();
+        if (content.startsWith("gitdir:")) {
+          return locate(current, current.resolve(content.substring("gitdir:".length()).trim()).normalize());
+        }
+      }
+    }
+    return null;
+  }
+
+  private static Location locate(Path workTree, Path gitDir) throws IOException {
+    Path commonDir = gitDir;
+    Path commonDirFile = gitDir.resolve("commondir");
+    if (Files.exists(commonDirFile)) {
+      commonDir = gitDir.resolve(new String(Files.readAllBytes(commonDirFile), StandardCharsets.UTF_8).trim()).normalize();
+    }
+    return new Location(workTree, gitDir, commonDir);
+  }
+
+  public Path workTree() {
+    return workTree;
+  }
+
+  /**
+   * Files of the work tree that were added or modified since the given revision, including changes not yet committed
+   * or staged. Deleted and untracked files are not part of the result.
+   */
+  public List<Path> changedFiles(String revision) throws IOException {
+    String baseTree = treeOf(resolve(revision));
+    Map<String, String> baseFiles = new HashMap<>();
+    readTree(baseTree, "", baseFiles);
+
+    GitIndex index = GitIndex.read(gitDir.resolve("index"));
+    List<Path> changed = new ArrayList<>();
+    for (GitIndex.Entry entry : index.entries()) {
+      String baseId = baseFiles.get(entry.path());
+      Path file = workTree.resolve(entry.path());
+      if (baseId == null || !baseId.equals(entry.id())) {
+        if (Files.exists(file, LinkOption.NOFOLLOW_LINKS)) {
+          changed.add(file);
+        }
+      } else if (isModifiedInWorkTree(file, entry, index)) {
+        changed.add(file);
+      }
+    }
+    LOGGER.debug(String.format("%d file(s) changed since %s", changed.size(), revision));
+    return changed;
+  }
+
+  private static boolean isModifiedInWorkTree(Path file, GitIndex.Entry entry, GitIndex index) throws IOException {
+    BasicFileAttributes attrs;
+    try {
+      attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+    if (!attrs.isRegularFile()) {
+      return false;
+    }
+    long mtimeNanos = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    boolean sameStat = (attrs.size() & 0xffffffffL) == entry.size()
+      && mtimeNanos / 1_000_000_000L == entry.mtimeSeconds()
+      && (entry.mtimeNanos() == 0 || mtimeNanos % 1_000_000_000L == entry.mtimeNanos());
+    if (sameStat && attrs.lastModifiedTime().toMillis() < index.modifiedMillis()) {
+      return false;
+    }
+    return !ObjectId.hashBlob(file, attrs.size()).equals(entry.id());
+  }
+
+  /**
+   * Resolves a revision like <code>HEAD</code>, <code>origin/master</code>, <code>v1.0~2</code> or an abbreviated commit id.
+   */
+  String resolve(String revision) throws IOException {
+    int suffix = firstSuffix(revision);
+    String id = resolveName(suffix < 0 ? revision : revision.substring(0, suffix));
+    if (id == null) {
+      throw new IllegalStateException("Unknown revision: " + revision);
+    }
+    int pos = suffix;
+    while (pos >= 0 && pos < revision.length()) {
+      char op = revision.charAt(pos++);
+      int numberEnd = pos;
+      while (numberEnd < revision.length() && Character.isDigit(revision.charAt(numberEnd))) {
+        numberEnd++;
+      }
+      int n = numberEnd > pos ? Integer.parseInt(revision.substring(pos, numberEnd)) : 1;
+      pos = numberEnd;
+      if (op == '~') {
+        for (int i = 0; i < n; i++) {
+          id = parent(id, 1, revision);
+        }
+      } else if (op == '^') {
+        id = n == 0 ? peelToCommit(id) : parent(id, n, revision);
+      } else {
+        throw new IllegalStateException("Unsupported revision: " + revision);
+      }
+    }
+    return peelToCommit(id);
+  }
+
+  private static int firstSuffix(String revision) {
+    for (int i = 0; i < revision.length(); i++) {
+      char c = revision.charAt(i);
+      if (c == '~' || c == '^') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private String parent(String id, int n, String revision) throws IOException {
+    String commit = peelToCommit(id);
+    int found = 0;
+    for (String line : headerLines(objects.read(commit))) {
+      if (line.startsWith("parent ") && ++found == n) {
+        return line.substring("parent ".length());
+      }
+    }
+    throw new IllegalStateException("Unknown revision: " + revision);
+  }
+
+  @CheckForNull
+  private String resolveName(String name) throws IOException {
+    if (ObjectId.isValid(name)) {
+      return name;
+    }
+    for (String prefix : REF_PREFIXES) {
+      String id = readRef(prefix + name, 0);
+      if (id != null) {
+        return id;
+      }
+    }
+    String id = readRef("refs/remotes/" + name + "/HEAD", 0);
+    if (id != null) {
+      return id;
+    }
+    if (name.length() >= 4 && ObjectId.isHex(name)) {
+      List<String> candidates = objects.findByPrefix(name);
+      if (candidates.size() > 1) {
+        throw new IllegalStateException("Ambiguous revision: " + name);
+      }
+      return candidates.isEmpty() ? null : candidates.get(0);
+    }
+    return null;
+  }
+
+  @CheckForNull
+  private String readRef(String name, int depth) throws IOException {
+    if (depth > MAX_SYMREF_DEPTH || name.contains("..")) {
+      return null;
+    }
+    Path dir = "HEAD".equals(name) || !name.startsWith("refs/") ? gitDir : commonDir;
+    Path file = dir.resolve(name);
+    String content = null;
+    if (Files.isRegularFile(file)) {
+      content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+    } else if (name.startsWith("refs/")) {
+      content = packedRefs().get(name);
+    }
+    if (content == null) {
+      return null;
+    }
+    if (content.startsWith("ref:")) {
+      return readRef(content.substring("ref:".length()).trim(), depth + 1);
+    }
+    return ObjectId.isValid(content) ? content : null;
+  }
+
+  private Map<String, String> packedRefs() throws IOException {
+    if (packedRefs == null) {
+      packedRefs = new HashMap<>();
+      Path file = commonDir.resolve("packed-refs");
+      if (Files.exists(file)) {
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+          if (line.isEmpty() || line.startsWith("#") || line.startsWith("^")) {
+            continue;
+          }
+          int space = line.indexOf(' ');
+          if (space > 0) {
+            packedRefs.put(line.substring(space + 1), line.substring(0, space));
+          }
+        }
+      }
+    }
+    return packedRefs;
+  }
+
+  private String peelToCommit(String id) throws IOException {
+    String current = id;
+    for (int depth = 0; depth <= MAX_SYMREF_DEPTH; depth++) {
+      GitObject object = objects.read(current);
+      if (object.type() == ObjectDatabase.OBJ_COMMIT) {
+        return current;
+      }
+      if (object.type() != ObjectDatabase.OBJ_TAG) {
+        break;
+      }
+      current = headerLines(object).get(0).substring("object ".length());
+    }
+    throw new IllegalStateException("Not a commit: " + id);
+  }
+
+  private String treeOf(String commit) throws IOException {
+    return headerLines(objects.read(commit)).get(0).substring("tree ".length());
+  }
+
+  private static List<String> headerLines(GitObject object) {
+    List<String> lines = new ArrayList<>();
+    byte[] data = object.data();
+    int start = 0;
+    while (start < data.length) {
+      int end = ObjectDatabase.indexOf(data, (byte) '\n', start);
+      if (end < 0) {
+        end = data.length;
+      }
+      if (end == start) {
+        // end of the headers, the message follows
+        break;
+      }
+      lines.add(new String(data, start, end - start, StandardCharsets.UTF_8));
+      start = end + 1;
+    }
+    return lines;
+  }
+
+  private void readTree(String treeId, String prefix, Map<String, String> files) throws IOException {
+    GitObject tree = objects.read(treeId);
+    byte[] data = tree.data();
+    int pos = 0;
+    while (pos < data.length) {
+      int space = ObjectDatabase.indexOf(data, (byte) ' ', pos);
+      int nul = ObjectDatabase.indexOf(data, (byte) 0, space + 1);
+      String mode = new String(data, pos, space - pos, StandardCharsets.US_ASCII);
+      String name = new String(data, space + 1, nul - space - 1, StandardCharsets.UTF_8);
+      String id = ObjectId.toHex(data, nul + 1);
+      pos = nul + 1 + ObjectId.RAW_LENGTH;
+      if ("40000".equals(mode)) {
+        readTree(id, prefix + name + "/", files);
+      } else if (mode.startsWith("100")) {
+        files.put(prefix + name, id);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    objects.close();
+  }
+
+  static class Location {
+    final Path workTree;
+    final Path gitDir;
+    final Path commonDir;
+
+    private Location(Path workTree, Path gitDir, Path commonDir) {
+      this.workTree = workTree;
+      this.gitDir = gitDir;
+      this.commonDir = commonDir;
+    }
+  }
+}
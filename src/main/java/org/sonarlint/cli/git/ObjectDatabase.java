@@ -0,0 +1,208 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.git;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+import javax.annotation.CheckForNull;
+
+/**
+ * Read-only access to the objects of a repository, either loose or in pack files.
+ */
+class ObjectDatabase implements Closeable {
+  static final int OBJ_COMMIT = 1;
+  static final int OBJ_TREE = 2;
+  static final int OBJ_BLOB = 3;
+  static final int OBJ_TAG = 4;
+
+  private final Path objectsDir;
+  private final List<PackFile> packs = new ArrayList<>();
+  private final List<ObjectDatabase> alternates = new ArrayList<>();
+
+  ObjectDatabase(Path objectsDir) throws IOException {
+    this.objectsDir = objectsDir;
+    Path alternatesFile = objectsDir.resolve("info").resolve("alternates");
+    if (Files.exists(alternatesFile)) {
+      for (String line : Files.readAllLines(alternatesFile, StandardCharsets.UTF_8)) {
+        if (!line.isEmpty() && !line.startsWith("#")) {
+          alternates.add(new ObjectDatabase(objectsDir.resolve(line.trim())));
+        }
+      }
+    }
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(objectsDir.resolve("pack"), "*.idx")) {
+      for (Path idx : stream) {
+        String name = idx.getFileName().toString();
+        Path pack = idx.resolveSibling(name.substring(0, name.length() - ".idx".length()) + ".pack");
+        if (Files.exists(pack)) {
+          packs.add(new PackFile(idx, pack, this));
+        }
+      }
+    } catch (NoSuchFileException e) {
+      // no packs
+    }
+  }
+
+  GitObject read(String id) throws IOException {
+    GitObject object = readIfExists(id);
+    if (object == null) {
+      throw new IOException("Missing object " + id);
+    }
+    return object;
+  }
+
+  @CheckForNull
+  GitObject readIfExists(String id) throws IOException {
+    Path loose = looseObjectPath(id);
+    if (Files.exists(loose)) {
+      return readLoose(loose);
+    }
+    byte[] rawId = ObjectId.toBytes(id);
+    for (PackFile pack : packs) {
+      GitObject object = pack.read(rawId);
+      if (object != null) {
+        return object;
+      }
+    }
+    for (ObjectDatabase alternate : alternates) {
+      GitObject object = alternate.readIfExists(id);
+      if (object != null) {
+        return object;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Full ids of the objects starting with the given hexadecimal prefix.
+   */
+  List<String> findByPrefix(String prefix) throws IOException {
+    List<String> ids = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(objectsDir.resolve(prefix.substring(0, 2)), prefix.substring(2) + "*")) {
+      for (Path file : stream) {
+        ids.add(prefix.substring(0, 2) + file.getFileName());
+      }
+    } catch (NoSuchFileException e) {
+      // no loose objects with this prefix
+    }
+    for (PackFile pack : packs) {
+      for (String id : pack.findByPrefix(prefix)) {
+        if (!ids.contains(id)) {
+          ids.add(id);
+        }
+      }
+    }
+    for (ObjectDatabase alternate : alternates) {
+      for (String id : alternate.findByPrefix(prefix)) {
+        if (!ids.contains(id)) {
+          ids.add(id);
+        }
+      }
+    }
+    return ids;
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (PackFile pack : packs) {
+      pack.close();
+    }
+    for (ObjectDatabase alternate : alternates) {
+      alternate.close();
+    }
+  }
+
+  private Path looseObjectPath(String id) {
+    return objectsDir.resolve(id.substring(0, 2)).resolve(id.substring(2));
+  }
+
+  private static GitObject readLoose(Path file) throws IOException {
+    byte[] raw;
+    try (InputStream in = new InflaterInputStream(Files.newInputStream(file))) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      raw = out.toByteArray();
+    }
+    int space = indexOf(raw, (byte) ' ', 0);
+    int nul = indexOf(raw, (byte) 0, space + 1);
+    if (space < 0 || nul < 0) {
+      throw new IOException("Corrupted object: " + file);
+    }
+    int type = typeOf(new String(raw, 0, space, StandardCharsets.US_ASCII));
+    byte[] data = new byte[raw.length - nul - 1];
+    System.arraycopy(raw, nul + 1, data, 0, data.length);
+    return new GitObject(type, data);
+  }
+
+  private static int typeOf(String name) throws IOException {
+    switch (name) {
+      case "commit":
+        return OBJ_COMMIT;
+      case "tree":
+        return OBJ_TREE;
+      case "blob":
+        return OBJ_BLOB;
+      case "tag":
+        return OBJ_TAG;
+      default:
+        throw new IOException("Unknown object type: " + name);
+    }
+  }
+
+  static int indexOf(byte[] bytes, byte b, int from) {
+    for (int i = from; i < bytes.length; i++) {
+      if (bytes[i] == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  static class GitObject {
+    private final int type;
+    private final byte[] data;
+
+    GitObject(int type, byte[] data) {
+      this.type = type;
+      this.data = data;
+    }
+
+    int type() {
+      return type;
+    }
+
+    byte[] data() {
+      return data;
+    }
+  }
+}
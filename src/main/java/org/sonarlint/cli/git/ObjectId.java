@@ -0,0 +1,82 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.git;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import org.sonarlint.cli.util.Util;
+
+/**
+ * Helpers for SHA-1 object ids, represented as lower case hexadecimal strings.
+ */
+final class ObjectId {
+  static final int RAW_LENGTH = 20;
+
+  private ObjectId() {
+    // only statics
+  }
+
+  static boolean isValid(String id) {
+    return id.length() == 2 * RAW_LENGTH && isHex(id);
+  }
+
+  static boolean isHex(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      if (Character.digit(s.charAt(i), 16) < 0 || Character.isUpperCase(s.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static String toHex(byte[] bytes, int offset) {
+    byte[] raw = new byte[RAW_LENGTH];
+    System.arraycopy(bytes, offset, raw, 0, RAW_LENGTH);
+    return Util.toHex(raw);
+  }
+
+  static byte[] toBytes(String id) {
+    byte[] raw = new byte[id.length() / 2];
+    for (int i = 0; i < raw.length; i++) {
+      raw[i] = (byte) ((Character.digit(id.charAt(2 * i), 16) << 4) | Character.digit(id.charAt(2 * i + 1), 16));
+    }
+    return raw;
+  }
+
+  /**
+   * Id that the file would have as a blob, like <code>git hash-object</code> without filters.
+   */
+  static String hashBlob(Path file, long size) throws IOException {
+    MessageDigest digest = Util.sha1();
+    digest.update(("blob " + size + "\0").getBytes(StandardCharsets.US_ASCII));
+    byte[] buffer = new byte[8192];
+    try (InputStream in = Files.newInputStream(file)) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return Util.toHex(digest.digest());
+  }
+}
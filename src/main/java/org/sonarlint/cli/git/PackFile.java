@@ -0,0 +1,325 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.git;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import javax.annotation.CheckForNull;
+import org.sonarlint.cli.git.ObjectDatabase.GitObject;
+
+/**
+ * A pack file and its index (version 1 or 2). Deltified objects are resolved against their base, the most recently
+ * resolved objects being cached since delta chains often share their bases.
+ */
+class PackFile implements Closeable {
+  private static final int IDX_V2_MAGIC = 0xff744f63;
+  private static final int OBJ_OFS_DELTA = 6;
+  private static final int OBJ_REF_DELTA = 7;
+  private static final long CACHE_MAX_BYTES = 16L * 1024 * 1024;
+
+  private final Path idxFile;
+  private final Path packFile;
+  private final ObjectDatabase database;
+
+  private byte[] idx;
+  private int version;
+  private int objectCount;
+  private FileChannel channel;
+
+  private long cachedBytes = 0;
+  private final Map<Long, GitObject> cache = new LinkedHashMap<Long, GitObject>(64, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, GitObject> eldest) {
+      if (cachedBytes > CACHE_MAX_BYTES) {
+        cachedBytes -= eldest.getValue().data().length;
+        return true;
+      }
+      return false;
+    }
+  };
+
+  PackFile(Path idxFile, Path packFile, ObjectDatabase database) {
+    this.idxFile = idxFile;
+    this.packFile = packFile;
+    this.database = database;
+  }
+
+  @CheckForNull
+  GitObject read(byte[] rawId) throws IOException {
+    int position = find(rawId);
+    if (position < 0) {
+      return null;
+    }
+    return readAt(packOffset(position));
+  }
+
+  List<String> findByPrefix(String prefix) throws IOException {
+    loadIndex();
+    List<String> ids = new ArrayList<>();
+    int firstByte = Integer.parseInt(prefix.substring(0, 2), 16);
+    for (int i = firstByte == 0 ? 0 : fanout(firstByte - 1); i < fanout(firstByte); i++) {
+      String id = ObjectId.toHex(idx, idOffset(i));
+      if (id.startsWith(prefix)) {
+        ids.add(id);
+      }
+    }
+    return ids;
+  }
+
+  private int find(byte[] rawId) throws IOException {
+    loadIndex();
+    int firstByte = rawId[0] & 0xff;
+    int low = firstByte == 0 ? 0 : fanout(firstByte - 1);
+    int high = fanout(firstByte) - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compare(rawId, idOffset(mid));
+      if (cmp == 0) {
+        return mid;
+      } else if (cmp < 0) {
+        high = mid - 1;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return -1;
+  }
+
+  private int compare(byte[] rawId, int offset) {
+    for (int i = 0; i < ObjectId.RAW_LENGTH; i++) {
+      int cmp = (rawId[i] & 0xff) - (idx[offset + i] & 0xff);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  private void loadIndex() throws IOException {
+    if (idx != null) {
+      return;
+    }
+    idx = Files.readAllBytes(idxFile);
+    version = getInt(idx, 0) == IDX_V2_MAGIC ? getInt(idx, 4) : 1;
+    if (version != 1 && version != 2) {
+      throw new IOException("Unsupported pack index version " + version + ": " + idxFile);
+    }
+    objectCount = fanout(255);
+  }
+
+  private int fanoutOffset() {
+    return version == 1 ? 0 : 8;
+  }
+
+  private int fanout(int i) {
+    return getInt(idx, fanoutOffset() + 4 * i);
+  }
+
+  private int idOffset(int i) {
+    int entries = fanoutOffset() + 256 * 4;
+    return version == 1 ? (entries + 24 * i + 4) : (entries + ObjectId.RAW_LENGTH * i);
+  }
+
+  private long packOffset(int i) {
+    int entries = fanoutOffset() + 256 * 4;
+    if (version == 1) {
+      return getInt(idx, entries + 24 * i) & 0xffffffffL;
+    }
+    int offset = getInt(idx, entries + 24 * objectCount + 4 * i);
+    if (offset >= 0) {
+      return offset;
+    }
+    int largeOffsetPosition = entries + 28 * objectCount + 8 * (offset & 0x7fffffff);
+    return ((getInt(idx, largeOffsetPosition) & 0xffffffffL) << 32) | (getInt(idx, largeOffsetPosition + 4) & 0xffffffffL);
+  }
+
+  private GitObject readAt(long offset) throws IOException {
+    GitObject cached = cache.get(offset);
+    if (cached != null) {
+      return cached;
+    }
+
+    byte[] header = readBytes(offset, 32);
+    int pos = 0;
+    int c = header[pos++] & 0xff;
+    int type = (c >> 4) & 7;
+    long size = c & 15;
+    int shift = 4;
+    while ((c & 0x80) != 0) {
+      c = header[pos++] & 0xff;
+      size |= ((long) (c & 0x7f)) << shift;
+      shift += 7;
+    }
+
+    GitObject object;
+    if (type == OBJ_OFS_DELTA) {
+      c = header[pos++] & 0xff;
+      long baseDistance = c & 0x7f;
+      while ((c & 0x80) != 0) {
+        c = header[pos++] & 0xff;
+        baseDistance = ((baseDistance + 1) << 7) | (c & 0x7f);
+      }
+      GitObject base = readAt(offset - baseDistance);
+      object = new GitObject(base.type(), applyDelta(base.data(), inflate(offset + pos, size)));
+    } else if (type == OBJ_REF_DELTA) {
+      String baseId = ObjectId.toHex(header, pos);
+      pos += ObjectId.RAW_LENGTH;
+      GitObject base = database.read(baseId);
+      object = new GitObject(base.type(), applyDelta(base.data(), inflate(offset + pos, size)));
+    } else if (type >= ObjectDatabase.OBJ_COMMIT && type <= ObjectDatabase.OBJ_TAG) {
+      object = new GitObject(type, inflate(offset + pos, size));
+    } else {
+      throw new IOException("Invalid object type " + type + " at offset " + offset + " in " + packFile);
+    }
+
+    cachedBytes += object.data().length;
+    cache.put(offset, object);
+    return object;
+  }
+
+  private byte[] readBytes(long offset, int maxLength) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(maxLength);
+    channel().read(buffer, offset);
+    return buffer.array();
+  }
+
+  private byte[] inflate(long offset, long size) throws IOException {
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Object too large in " + packFile);
+    }
+    byte[] out = new byte[(int) size];
+    Inflater inflater = new Inflater();
+    try {
+      ByteBuffer input = ByteBuffer.allocate(8192);
+      long position = offset;
+      int written = 0;
+      while (written < out.length) {
+        if (inflater.needsInput()) {
+          input.clear();
+          int read = channel().read(input, position);
+          if (read <= 0) {
+            throw new IOException("Unexpected end of " + packFile);
+          }
+          position += read;
+          inflater.setInput(input.array(), 0, read);
+        }
+        int inflated = inflater.inflate(out, written, out.length - written);
+        if (inflated == 0 && (inflater.finished() || inflater.needsDictionary())) {
+          break;
+        }
+        written += inflated;
+      }
+      if (written != out.length) {
+        throw new IOException("Corrupted object at offset " + offset + " in " + packFile);
+      }
+      return out;
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupted object at offset " + offset + " in " + packFile, e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  static byte[] applyDelta(byte[] base, byte[] delta) throws IOException {
+    int[] pos = {0};
+    long baseSize = readDeltaSize(delta, pos);
+    long resultSize = readDeltaSize(delta, pos);
+    if (baseSize != base.length) {
+      throw new IOException("Delta base size mismatch");
+    }
+    byte[] result = new byte[(int) resultSize];
+    int p = pos[0];
+    int written = 0;
+    while (p < delta.length) {
+      int cmd = delta[p++] & 0xff;
+      if ((cmd & 0x80) != 0) {
+        int copyOffset = 0;
+        int copySize = 0;
+        for (int i = 0; i < 4; i++) {
+          if ((cmd & (1 << i)) != 0) {
+            copyOffset |= (delta[p++] & 0xff) << (8 * i);
+          }
+        }
+        for (int i = 0; i < 3; i++) {
+          if ((cmd & (0x10 << i)) != 0) {
+            copySize |= (delta[p++] & 0xff) << (8 * i);
+          }
+        }
+        if (copySize == 0) {
+          copySize = 0x10000;
+        }
+        System.arraycopy(base, copyOffset, result, written, copySize);
+        written += copySize;
+      } else if (cmd != 0) {
+        System.arraycopy(delta, p, result, written, cmd);
+        p += cmd;
+        written += cmd;
+      } else {
+        throw new IOException("Invalid delta instruction");
+      }
+    }
+    if (written != result.length) {
+      throw new IOException("Delta result size mismatch");
+    }
+    return result;
+  }
+
+  private static long readDeltaSize(byte[] delta, int[] pos) {
+    long size = 0;
+    int shift = 0;
+    int c;
+    do {
+      c = delta[pos[0]++] & 0xff;
+      size |= ((long) (c & 0x7f)) << shift;
+      shift += 7;
+    } while ((c & 0x80) != 0);
+    return size;
+  }
+
+  private FileChannel channel() throws IOException {
+    if (channel == null) {
+      channel = FileChannel.open(packFile, StandardOpenOption.READ);
+    }
+    return channel;
+  }
+
+  static int getInt(byte[] bytes, int offset) {
+    return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16) | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+}
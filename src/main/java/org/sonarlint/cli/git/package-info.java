@@ -17,24 +17,7 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-package org.sonarlint.cli.report.source;
+@ParametersAreNonnullByDefault
+package org.sonarlint.cli.git;
 
-class OpeningHtmlTag {
-
-  private final int startOffset;
-  private final String cssClass;
-
-  OpeningHtmlTag(int startOffset, String cssClass) {
-    this.startOffset = startOffset;
-    this.cssClass = cssClass;
-  }
-
-  int getStartOffset() {
-    return startOffset;
-  }
-
-  String getCssClass() {
-    return cssClass;
-  }
-
-}
+import javax.annotation.ParametersAreNonnullByDefault;
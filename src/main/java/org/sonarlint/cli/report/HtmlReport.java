@@ -21,6 +21,7 @@ package org.sonarlint.cli.report;
 
 import freemarker.template.Configuration;
 import freemarker.template.Template;
+import freemarker.template.TemplateException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -32,9 +33,13 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
@@ -47,10 +52,13 @@ import org.sonarsource.sonarlint.core.tracking.Trackable;
 
 public class HtmlReport implements Reporter {
   private static final Logger LOGGER = Logger.get();
+  static final String FILES_DIR = "sonarlintreport_files";
+  static final String RULES_DIR = "sonarlintreport_rules";
   private final Path reportFile;
   private final Path reportDir;
   private final Charset charset;
   private final Path basePath;
+  private boolean streaming = false;
 
   HtmlReport(Path basePath, Path reportFile, Charset charset) {
     this.basePath = basePath;
@@ -59,8 +67,19 @@ public class HtmlReport implements Reporter {
     this.reportFile = reportFile.toAbsolutePath();
   }
 
+  /**
+   * When set, the report is written file by file: only the summary and the issues of the file being written are kept in memory.
+   */
+  void setStreaming(boolean streaming) {
+    this.streaming = streaming;
+  }
+
   @Override
   public void execute(String projectName, Date date, Collection<Trackable> trackables, AnalysisResults result, Function<String, RuleDetails> ruleDescriptionProducer) {
+    if (streaming) {
+      executeStreaming(projectName, date, trackables, result, ruleDescriptionProducer);
+      return;
+    }
     IssuesReport report = new IssuesReport(basePath, charset);
     for (Trackable trackable : trackables) {
       report.addIssue(trackable);
@@ -72,10 +91,53 @@ public class HtmlReport implements Reporter {
     print(report);
   }
 
+  private void executeStreaming(String projectName, Date date, Collection<Trackable> trackables, AnalysisResults result,
+    Function<String, RuleDetails> ruleDescriptionProducer) {
+    IssuesReport summaryReport = new IssuesReport(basePath, charset);
+    Map<Path, List<Trackable>> trackablesByFile = new LinkedHashMap<>();
+    for (Trackable trackable : trackables) {
+      summaryReport.addIssueToSummary(trackable);
+      trackablesByFile.computeIfAbsent(IssuesReport.filePath(trackable.getIssue()), p -> new ArrayList<>()).add(trackable);
+    }
+    summaryReport.setTitle(projectName);
+    summaryReport.setDate(date);
+    summaryReport.setFilesAnalyzed(result.fileCount());
+    copyRuleHtmlDescriptions(ruleDescriptionProducer, summaryReport);
+
+    print((cfg, writer) -> {
+      Map<String, Object> root = new HashMap<>();
+      root.put("report", summaryReport);
+      root.put("resourceCount", trackablesByFile.size());
+      cfg.getTemplate("sonarlintreport_header.ftl").process(root, writer);
+
+      Template resourceTemplate = cfg.getTemplate("sonarlintreport_resource.ftl");
+      int resourceIndex = 0;
+      int firstIssueId = 0;
+      Iterator<List<Trackable>> fileIterator = trackablesByFile.values().iterator();
+      while (fileIterator.hasNext()) {
+        List<Trackable> fileTrackables = fileIterator.next();
+        fileIterator.remove();
+        IssuesReport fileReport = new IssuesReport(basePath, charset, firstIssueId);
+        fileTrackables.forEach(fileReport::addIssue);
+        firstIssueId += fileTrackables.size();
+
+        Map<String, Object> fileRoot = new HashMap<>();
+        fileRoot.put("report", fileReport);
+        fileRoot.put("resourceReport", fileReport.getResourceReports().get(0));
+        fileRoot.put("resourceIndex", resourceIndex);
+        resourceTemplate.process(fileRoot, writer);
+        writer.flush();
+        resourceIndex++;
+      }
+
+      cfg.getTemplate("sonarlintreport_footer.ftl").process(root, writer);
+    });
+  }
+
   private void copyRuleHtmlDescriptions(Function<String, RuleDetails> ruleDescriptionProducer, IssuesReport report) {
     try {
       Set<String> ruleKeys = report.getSummary().getTotalByRuleKey().keySet();
-      Path target = reportDir.resolve("sonarlintreport_rules");
+      Path target = reportDir.resolve(RULES_DIR);
       Files.createDirectories(target);
       copyDependency(target, "rule.css");
       for (String ruleKey : ruleKeys) {
@@ -98,8 +160,19 @@ public class HtmlReport implements Reporter {
   }
 
   public void print(IssuesReport report) {
+    print((cfg, writer) -> {
+      Map<String, Object> root = new HashMap<>();
+      root.put("report", report);
+      root.put("resourceCount", report.getResourcesWithReport().size());
+
+      Template template = cfg.getTemplate("sonarlintreport.ftl");
+      template.process(root, writer);
+    });
+  }
+
+  private void print(ReportWriter reportWriter) {
     LOGGER.debug("Generating SonarLint Report to: " + reportFile);
-    writeToFile(report, reportFile);
+    writeToFile(reportWriter, reportFile);
     LOGGER.info("SonarLint HTML Report generated: " + reportFile);
     try {
       copyDependencies(reportDir);
@@ -108,19 +181,19 @@ public class HtmlReport implements Reporter {
     }
   }
 
-  private static void writeToFile(IssuesReport report, Path toFile) {
+  @FunctionalInterface
+  private interface ReportWriter {
+    void write(Configuration cfg, Writer writer) throws IOException, TemplateException;
+  }
+
+  private static void writeToFile(ReportWriter reportWriter, Path toFile) {
     try {
       Configuration cfg = new Configuration(Configuration.VERSION_2_3_25);
       cfg.setClassForTemplateLoading(HtmlReport.class, "");
 
-      Map<String, Object> root = new HashMap<>();
-      root.put("report", report);
-
-      Template template = cfg.getTemplate("sonarlintreport.ftl");
-
       try (FileOutputStream fos = new FileOutputStream(toFile.toFile());
         Writer writer = new OutputStreamWriter(fos, StandardCharsets.UTF_8)) {
-        template.process(root, writer);
+        reportWriter.write(cfg, writer);
         writer.flush();
       }
     } catch (Exception e) {
@@ -129,7 +202,7 @@ public class HtmlReport implements Reporter {
   }
 
   private void copyDependencies(Path toDir) throws URISyntaxException, IOException {
-    Path target = toDir.resolve("sonarlintreport_files");
+    Path target = toDir.resolve(FILES_DIR);
     Files.createDirectories(target);
 
     // I don't know how to extract a directory from classpath, that's why an exhaustive list of files is provided here :
@@ -148,7 +221,7 @@ public class HtmlReport implements Reporter {
   }
 
   private void copyDependency(Path target, String filename) {
-    String resource = "sonarlintreport_files/" + filename;
+    String resource = FILES_DIR + "/" + filename;
     try (InputStream in = getClass().getResourceAsStream(resource)) {
       Files.copy(in, target.resolve(filename), StandardCopyOption.REPLACE_EXISTING);
 
@@ -0,0 +1,87 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.report;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Gives the issues whose line range contains each line of a file, the lines being visited in increasing order.
+ * Issues are sorted once by start line, then each issue is added when the sweep reaches its first line and removed
+ * after its last line, instead of filtering all the issues of the file for each line. Active issues are also queued
+ * by end line, so that only the expired ones are visited.
+ */
+class IssueLineSweep {
+  private final List<RichIssue> issues;
+  private final int[] startLines;
+  private final int[] endLines;
+  // indexes of the issues, by start line
+  private final int[] byStartLine;
+  // issues containing the current line, by index so that they keep the order in which they were reported
+  private final TreeMap<Integer, RichIssue> active = new TreeMap<>();
+  // indexes of the active issues, the one ending first at the head
+  private final PriorityQueue<Integer> byEndLine;
+  private int next = 0;
+  private int currentLine = Integer.MIN_VALUE;
+
+  IssueLineSweep(List<RichIssue> issues) {
+    this.issues = issues;
+    int count = issues.size();
+    startLines = new int[count];
+    endLines = new int[count];
+    for (int i = 0; i < count; i++) {
+      RichIssue issue = issues.get(i);
+      Integer startLine = issue.getStartLine();
+      Integer endLine = issue.getEndLine();
+      // issues without line are not on any line
+      startLines[i] = startLine != null ? startLine : Integer.MAX_VALUE;
+      endLines[i] = endLine != null ? endLine : startLines[i];
+    }
+    byStartLine = IntStream.range(0, count).boxed()
+      .sorted(Comparator.comparingInt(i -> startLines[i]))
+      .mapToInt(Integer::intValue)
+      .toArray();
+    byEndLine = new PriorityQueue<>(Math.max(1, count), Comparator.comparingInt(i -> endLines[i]));
+  }
+
+  List<RichIssue> issuesAt(int line) {
+    if (line < currentLine) {
+      throw new IllegalArgumentException("Lines must be visited in increasing order: " + line + " after " + currentLine);
+    }
+    currentLine = line;
+    while (!byEndLine.isEmpty() && endLines[byEndLine.peek()] < line) {
+      active.remove(byEndLine.poll());
+    }
+    while (next < byStartLine.length && startLines[byStartLine[next]] <= line) {
+      int i = byStartLine[next];
+      next++;
+      if (endLines[i] >= line) {
+        active.put(i, issues.get(i));
+        byEndLine.add(i);
+      }
+    }
+    return active.isEmpty() ? Collections.emptyList() : new ArrayList<>(active.values());
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.report;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Function;
+import org.sonarlint.cli.util.Logger;
+import org.sonarsource.sonarlint.core.client.api.common.RuleDetails;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.AnalysisResults;
+import org.sonarsource.sonarlint.core.tracking.Trackable;
+
+/**
+ * Checks the number of reported issues against maximums, so that the exit code tells whether they are exceeded.
+ * New issues are the ones not matching an issue of the server, which are all issues in standalone mode.
+ */
+public class IssueThresholds implements Reporter {
+  private static final Logger LOGGER = Logger.get();
+
+  private final Map<Severity, Integer> maxIssuesBySeverity;
+  private final int maxNewIssues;
+  private boolean maxIssuesExceeded = false;
+  private boolean maxNewIssuesExceeded = false;
+
+  /**
+   * @param maxNewIssues maximum number of new issues, no maximum if negative
+   */
+  public IssueThresholds(Map<Severity, Integer> maxIssuesBySeverity, int maxNewIssues) {
+    this.maxIssuesBySeverity = maxIssuesBySeverity;
+    this.maxNewIssues = maxNewIssues;
+  }
+
+  @Override
+  public void execute(String projectName, Date date, Collection<Trackable> trackables, AnalysisResults result, Function<String, RuleDetails> ruleDescriptionProducer) {
+    Map<Severity, Integer> issuesBySeverity = new EnumMap<>(Severity.class);
+    int newIssues = 0;
+    for (Trackable trackable : trackables) {
+      issuesBySeverity.merge(Severity.create(trackable.getIssue().getSeverity()), 1, Integer::sum);
+      if (trackable.getServerIssueKey() == null) {
+        newIssues++;
+      }
+    }
+
+    maxIssuesExceeded = false;
+    for (Map.Entry<Severity, Integer> e : maxIssuesBySeverity.entrySet()) {
+      int issues = issuesBySeverity.getOrDefault(e.getKey(), 0);
+      if (issues > e.getValue()) {
+        LOGGER.error(String.format("%d %s issue(s) found, the maximum is %d", issues, e.getKey(), e.getValue()));
+        maxIssuesExceeded = true;
+      }
+    }
+    maxNewIssuesExceeded = maxNewIssues >= 0 && newIssues > maxNewIssues;
+    if (maxNewIssuesExceeded) {
+      LOGGER.error(String.format("%d new issue(s) found, the maximum is %d", newIssues, maxNewIssues));
+    }
+  }
+
+  public boolean isMaxIssuesExceeded() {
+    return maxIssuesExceeded;
+  }
+
+  public boolean isMaxNewIssuesExceeded() {
+    return maxNewIssuesExceeded;
+  }
+}
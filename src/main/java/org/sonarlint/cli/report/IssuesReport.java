@@ -32,10 +32,10 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
+import org.sonarlint.cli.InputFileFinder.DefaultClientInputFile;
 import org.sonarlint.cli.report.source.HtmlSourceDecorator;
 import org.sonarlint.cli.util.Util;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
@@ -50,13 +50,22 @@ public class IssuesReport {
   private final ReportSummary summary = new ReportSummary();
   private final Map<Path, ResourceReport> resourceReportsByFilePath = new HashMap<>();
   private final Map<String, String> ruleNameByKey = new HashMap<>();
+  private final Map<Path, ClientInputFile> inputFilesByFilePath = new HashMap<>();
   private final Charset charset;
   private int id = 0;
   private Path basePath;
 
   IssuesReport(Path basePath, Charset charset) {
+    this(basePath, charset, 0);
+  }
+
+  /**
+   * @param firstIssueId id of the first issue added, so that the reports of different files written in the same page have distinct ids
+   */
+  IssuesReport(Path basePath, Charset charset, int firstIssueId) {
     this.basePath = basePath;
     this.charset = charset;
+    this.id = firstIssueId;
   }
 
   public boolean noIssues() {
@@ -112,23 +121,38 @@ public class IssuesReport {
   }
 
   public void addIssue(Trackable trackable) {
+    Issue issue = trackable.getIssue();
+    RichIssue richIssue = addIssueToSummary(trackable);
+
+    Path filePath = filePath(issue);
+    ClientInputFile inputFile = issue.getInputFile();
+    if (inputFile != null) {
+      inputFilesByFilePath.put(filePath, inputFile);
+    }
+    ResourceReport report = getOrCreate(filePath);
+    report.addIssue(richIssue);
+  }
+
+  /**
+   * Only counts the issue in the summary, without keeping it in the report of its file.
+   */
+  RichIssue addIssueToSummary(Trackable trackable) {
     Issue issue = trackable.getIssue();
     Long millis = trackable.getServerIssueKey() != null ? trackable.getCreationDate() : null;
     RichIssue richIssue = new RichIssueImpl(issue, id, millis);
     id++;
     ruleNameByKey.put(issue.getRuleKey(), issue.getRuleName());
+    summary.addIssue(richIssue);
+    return richIssue;
+  }
 
-    Path filePath;
+  static Path filePath(Issue issue) {
     ClientInputFile inputFile = issue.getInputFile();
     if (inputFile == null) {
       // issue on project (no specific file)
-      filePath = Paths.get("");
-    } else {
-      filePath = Paths.get(inputFile.getPath());
+      return Paths.get("");
     }
-    ResourceReport report = getOrCreate(filePath);
-    summary.addIssue(richIssue);
-    report.addIssue(richIssue);
+    return Paths.get(inputFile.getPath());
   }
 
   private static class RichIssueImpl implements RichIssue {
@@ -222,37 +246,73 @@ public class IssuesReport {
     return report;
   }
 
-  public List<String> getEscapedSource(@Nullable Path filePath) {
-    if (filePath == null) {
+  /**
+   * Decorated source of the lines shown in the report, the ones around issues (see {@link ResourceReport#isDisplayableLine(Integer)}).
+   * The other lines are neither extracted from the content nor decorated.
+   */
+  public List<SourceLine> getDisplayableSource(@Nullable Path filePath) {
+    if (filePath == null || !filePath.toFile().exists()) {
+      // invalid, directory, project issue, ...
       return Collections.emptyList();
     }
-    List<String> lines;
-    try {
-      if (!filePath.toFile().exists()) {
-        // invalid, directory, project issue, ...
-        return Collections.emptyList();
-      }
 
-      lines = Files.readAllLines(filePath, charset);
+    ResourceReport resourceReport = resourceReportsByFilePath.get(filePath);
+    if (resourceReport == null) {
+      throw new IllegalStateException("file has no associated report: " + filePath);
+    }
+
+    LineOffsets lineOffsets;
+    try {
+      lineOffsets = new LineOffsets(readContents(filePath));
     } catch (IOException e) {
       throw new IllegalStateException("unable to read source code of file: " + filePath, e);
     }
 
-    ResourceReport resourceReport = resourceReportsByFilePath.get(filePath);
-    if (resourceReport == null) {
-      throw new IllegalStateException("file has no associated report: " + filePath);
+    List<Integer> issueLines = new ArrayList<>(resourceReport.getIssuesPerLine().keySet());
+    Collections.sort(issueLines);
+    List<SourceLine> sourceLines = new ArrayList<>();
+    IssueLineSweep lineSweep = resourceReport.lineSweep();
+    // first line not rendered yet
+    int next = 1;
+    for (int issueLine : issueLines) {
+      int to = Math.min(issueLine + 2, lineOffsets.lineCount());
+      for (int lineNumber = Math.max(issueLine - 2, next); lineNumber <= to; lineNumber++) {
+        String html = HtmlSourceDecorator.getDecoratedSourceAsHtml(lineOffsets.line(lineNumber), lineNumber, lineSweep.issuesAt(lineNumber));
+        sourceLines.add(new SourceLine(lineNumber, html));
+      }
+      next = Math.max(next, to + 1);
     }
+    return sourceLines;
+  }
+
+  private String readContents(Path filePath) throws IOException {
+    ClientInputFile inputFile = inputFilesByFilePath.get(filePath);
+    if (inputFile instanceof DefaultClientInputFile) {
+      // the content was already read for the analysis
+      return inputFile.contents();
+    }
+    Charset fileCharset = inputFile != null && inputFile.getCharset() != null ? inputFile.getCharset() : charset;
+    return new String(Files.readAllBytes(filePath), fileCharset);
+  }
 
-    List<String> escapedLines = new ArrayList<>(lines.size());
-    for (int i = 0; i < lines.size(); i++) {
-      String line = lines.get(i);
-      final int currentLineIdx = i + 1;
-      List<RichIssue> issuesAtLine = resourceReport.getIssues().stream()
-        .filter(issue -> issue.getStartLine() <= currentLineIdx && currentLineIdx <= issue.getEndLine())
-        .collect(Collectors.toList());
+  /**
+   * Line of source code decorated with HTML
+   */
+  public static class SourceLine {
+    private final int number;
+    private final String html;
+
+    SourceLine(int number, String html) {
+      this.number = number;
+      this.html = html;
+    }
+
+    public int number() {
+      return number;
+    }
 
-      escapedLines.add(HtmlSourceDecorator.getDecoratedSourceAsHtml(line, currentLineIdx, issuesAtLine));
+    public String html() {
+      return html;
     }
-    return escapedLines;
   }
 }
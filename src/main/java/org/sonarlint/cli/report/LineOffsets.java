@@ -0,0 +1,77 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.report;
+
+import java.util.Arrays;
+
+/**
+ * Start and end offsets of the lines of a file content, to extract some lines without splitting the whole content.
+ * Same line terminators as {@link java.nio.file.Files#readAllLines(java.nio.file.Path)}: "\n", "\r" or "\r\n".
+ */
+class LineOffsets {
+  private final String contents;
+  private int[] starts = new int[64];
+  // end of each line, terminator excluded
+  private int[] ends = new int[64];
+  private int lineCount = 0;
+
+  LineOffsets(String contents) {
+    this.contents = contents;
+    int start = 0;
+    int length = contents.length();
+    for (int i = 0; i < length; i++) {
+      char c = contents.charAt(i);
+      if (c == '\n' || c == '\r') {
+        addLine(start, i);
+        if (c == '\r' && i + 1 < length && contents.charAt(i + 1) == '\n') {
+          i++;
+        }
+        start = i + 1;
+      }
+    }
+    if (start < length) {
+      addLine(start, length);
+    }
+  }
+
+  private void addLine(int start, int end) {
+    if (lineCount == starts.length) {
+      starts = Arrays.copyOf(starts, lineCount * 2);
+      ends = Arrays.copyOf(ends, lineCount * 2);
+    }
+    starts[lineCount] = start;
+    ends[lineCount] = end;
+    lineCount++;
+  }
+
+  int lineCount() {
+    return lineCount;
+  }
+
+  /**
+   * @param lineNumber from 1 to {@link #lineCount()}
+   */
+  String line(int lineNumber) {
+    if (lineNumber < 1 || lineNumber > lineCount) {
+      throw new IndexOutOfBoundsException("Line " + lineNumber + " out of 1-" + lineCount);
+    }
+    return contents.substring(starts[lineNumber - 1], ends[lineNumber - 1]);
+  }
+}
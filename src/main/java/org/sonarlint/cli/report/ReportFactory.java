@@ -24,6 +24,7 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import javax.annotation.Nullable;
@@ -31,6 +32,9 @@ import javax.annotation.Nullable;
 public class ReportFactory {
   private static final String DEFAULT_REPORT_PATH = ".sonarlint/sonarlint-report.html";
   private String htmlPath = null;
+  private boolean htmlReportEnabled = true;
+  private boolean htmlReportStreaming = false;
+  private IssueThresholds issueThresholds = null;
   private Charset charset;
 
   public ReportFactory(Charset charset) {
@@ -41,7 +45,14 @@ public class ReportFactory {
     List<Reporter> list = new LinkedList<>();
 
     list.add(new ConsoleReport());
-    list.add(new HtmlReport(basePath, getReportFile(basePath), charset));
+    if (htmlReportEnabled) {
+      HtmlReport htmlReport = new HtmlReport(basePath, getReportFile(basePath), charset);
+      htmlReport.setStreaming(htmlReportStreaming);
+      list.add(htmlReport);
+    }
+    if (issueThresholds != null) {
+      list.add(issueThresholds);
+    }
 
     return list;
   }
@@ -50,7 +61,25 @@ public class ReportFactory {
     htmlPath = path;
   }
 
-  Path getReportFile(Path basePath) {
+  public void setHtmlReportEnabled(boolean htmlReportEnabled) {
+    this.htmlReportEnabled = htmlReportEnabled;
+  }
+
+  /**
+   * When set, the HTML report is written file by file, keeping only one file in memory at a time.
+   */
+  public void setHtmlReportStreaming(boolean htmlReportStreaming) {
+    this.htmlReportStreaming = htmlReportStreaming;
+  }
+
+  /**
+   * When set, the thresholds are checked against the issues of each analysis.
+   */
+  public void setIssueThresholds(@Nullable IssueThresholds issueThresholds) {
+    this.issueThresholds = issueThresholds;
+  }
+
+  public Path getReportFile(Path basePath) {
     Path reportPath;
 
     if (htmlPath != null) {
@@ -71,4 +100,12 @@ public class ReportFactory {
 
     return reportPath;
   }
+
+  /**
+   * The files and directories written by the reports: the HTML report file and the directories of its resources.
+   */
+  public List<Path> getReportPaths(Path basePath) {
+    Path reportFile = getReportFile(basePath);
+    return Arrays.asList(reportFile, reportFile.resolveSibling(HtmlReport.FILES_DIR), reportFile.resolveSibling(HtmlReport.RULES_DIR));
+  }
 }
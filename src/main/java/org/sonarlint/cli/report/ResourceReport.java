@@ -87,6 +87,13 @@ public final class ResourceReport {
     return Collections.emptyList();
   }
 
+  /**
+   * Finds the issues whose line range contains each line, for lines visited in increasing order.
+   */
+  IssueLineSweep lineSweep() {
+    return new IssueLineSweep(issues);
+  }
+
   public void addIssue(RichIssue issue) {
     Severity severity = Severity.create(issue.getSeverity());
     String ruleKey = issue.getRuleKey();
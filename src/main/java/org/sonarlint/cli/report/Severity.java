@@ -22,7 +22,7 @@ package org.sonarlint.cli.report;
 import java.util.HashMap;
 import java.util.Map;
 
-enum Severity {
+public enum Severity {
   INFO,
   MINOR,
   MAJOR,
@@ -41,7 +41,7 @@ enum Severity {
     }
   }
 
-  static Severity create(String severity) {
+  public static Severity create(String severity) {
     Severity s = MAP.get(severity);
     if (s == null) {
       throw new IllegalArgumentException("Invalid severity: " + severity);
@@ -19,36 +19,69 @@
  */
 package org.sonarlint.cli.report.source;
 
-import com.google.common.collect.Lists;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
+import javax.annotation.CheckForNull;
 import org.sonarlint.cli.report.RichIssue;
 
 class DecorationDataHolder {
 
-  private List<OpeningHtmlTag> openingTagsEntries;
+  private int[] openingTagsOffsets = new int[0];
+  private String[] openingTagsCssClasses = new String[0];
   private int openingTagsIndex;
-  private List<Integer> closingTagsOffsets;
+  private int[] closingTagsOffsets = new int[0];
   private int closingTagsIndex;
 
-  DecorationDataHolder() {
-    openingTagsEntries = Lists.newArrayList();
-    closingTagsOffsets = Lists.newArrayList();
-  }
-
   void loadIssues(List<RichIssue> issues, int currentLineIdx, int currentLineLength) {
+    int count = openingTagsOffsets.length;
+    int[] openingOffsets = Arrays.copyOf(openingTagsOffsets, count + issues.size());
+    String[] cssClasses = Arrays.copyOf(openingTagsCssClasses, count + issues.size());
+    int[] closingOffsets = Arrays.copyOf(closingTagsOffsets, count + issues.size());
     for (RichIssue issue : issues) {
       int startOffset = issue.getStartLine() == currentLineIdx && issue.getStartLineOffset() != null ? issue.getStartLineOffset() : 0;
       int endOffset = issue.getEndLine() == currentLineIdx && issue.getEndLineOffset() != null ? issue.getEndLineOffset() : currentLineLength;
       if (startOffset < endOffset) {
-        insertAndPreserveOrder(new OpeningHtmlTag(startOffset, "issue-" + issue.id()), openingTagsEntries);
-        insertAndPreserveOrder(endOffset, closingTagsOffsets);
+        openingOffsets[count] = startOffset;
+        cssClasses[count] = "issue-" + issue.id();
+        closingOffsets[count] = endOffset;
+        count++;
       }
     }
+
+    sortOpeningTags(openingOffsets, cssClasses, count);
+    openingTagsOffsets = Arrays.copyOf(openingOffsets, count);
+    openingTagsCssClasses = Arrays.copyOf(cssClasses, count);
+    closingTagsOffsets = Arrays.copyOf(closingOffsets, count);
+    Arrays.sort(closingTagsOffsets);
+  }
+
+  /**
+   * Sorts the tags by offset, tags at the same offset keeping their loading order so that the first loaded is the outermost.
+   * Offset and loading index are packed in a long to sort primitives.
+   */
+  private static void sortOpeningTags(int[] offsets, String[] cssClasses, int count) {
+    long[] keys = new long[count];
+    for (int i = 0; i < count; i++) {
+      keys[i] = ((long) offsets[i] << 32) | i;
+    }
+    Arrays.sort(keys);
+    String[] loadedCssClasses = Arrays.copyOf(cssClasses, count);
+    for (int i = 0; i < count; i++) {
+      offsets[i] = (int) (keys[i] >> 32);
+      cssClasses[i] = loadedCssClasses[(int) keys[i]];
+    }
   }
 
-  OpeningHtmlTag getCurrentOpeningTagEntry() {
-    return openingTagsIndex < openingTagsEntries.size() ? openingTagsEntries.get(openingTagsIndex) : null;
+  /**
+   * @return offset of the next tag to open, -1 if there is none
+   */
+  int getCurrentOpeningTagOffset() {
+    return openingTagsIndex < openingTagsOffsets.length ? openingTagsOffsets[openingTagsIndex] : -1;
+  }
+
+  @CheckForNull
+  String getCurrentOpeningTagCssClass() {
+    return openingTagsIndex < openingTagsCssClasses.length ? openingTagsCssClasses[openingTagsIndex] : null;
   }
 
   void nextOpeningTagEntry() {
@@ -56,28 +89,10 @@ class DecorationDataHolder {
   }
 
   int getCurrentClosingTagOffset() {
-    return closingTagsIndex < closingTagsOffsets.size() ? closingTagsOffsets.get(closingTagsIndex) : -1;
+    return closingTagsIndex < closingTagsOffsets.length ? closingTagsOffsets[closingTagsIndex] : -1;
   }
 
   void nextClosingTagOffset() {
     closingTagsIndex++;
   }
-
-  private static void insertAndPreserveOrder(OpeningHtmlTag newEntry, List<OpeningHtmlTag> openingHtmlTags) {
-    int insertionIndex = 0;
-    Iterator<OpeningHtmlTag> tagIterator = openingHtmlTags.iterator();
-    while (tagIterator.hasNext() && tagIterator.next().getStartOffset() <= newEntry.getStartOffset()) {
-      insertionIndex++;
-    }
-    openingHtmlTags.add(insertionIndex, newEntry);
-  }
-
-  private static void insertAndPreserveOrder(int newOffset, List<Integer> orderedOffsets) {
-    int insertionIndex = 0;
-    Iterator<Integer> entriesIterator = orderedOffsets.iterator();
-    while (entriesIterator.hasNext() && entriesIterator.next() <= newOffset) {
-      insertionIndex++;
-    }
-    orderedOffsets.add(insertionIndex, newOffset);
-  }
 }
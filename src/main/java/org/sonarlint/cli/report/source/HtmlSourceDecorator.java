@@ -26,6 +26,9 @@ import org.sonarlint.cli.report.RichIssue;
 
 public class HtmlSourceDecorator {
 
+  // reuses the buffer of the decorator for all the lines of a report
+  private static final ThreadLocal<HtmlTextDecorator> TEXT_DECORATOR = ThreadLocal.withInitial(HtmlTextDecorator::new);
+
   private HtmlSourceDecorator() {
     // utility class, forbidden constructor
   }
@@ -37,8 +40,7 @@ public class HtmlSourceDecorator {
     }
     DecorationDataHolder decorationDataHolder = new DecorationDataHolder();
     decorationDataHolder.loadIssues(issues, currentLineIdx, sourceLine.length());
-    HtmlTextDecorator textDecorator = new HtmlTextDecorator();
-    return textDecorator.decorateLineWithHtml(sourceLine, decorationDataHolder);
+    return TEXT_DECORATOR.get().decorateLineWithHtml(sourceLine, decorationDataHolder);
   }
 
 }
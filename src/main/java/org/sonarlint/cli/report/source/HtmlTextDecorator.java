@@ -19,13 +19,10 @@
  */
 package org.sonarlint.cli.report.source;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.StringReader;
-import java.util.Collection;
-
-import static com.google.common.collect.Lists.newArrayList;
-
+/**
+ * Escapes a line of source code and wraps the ranges of its issues in HTML tags.
+ * Not thread-safe: the same buffer is reused from one line to the next.
+ */
 class HtmlTextDecorator {
 
   static final char HTML_OPENING = '<';
@@ -35,91 +32,45 @@ class HtmlTextDecorator {
   static final String ENCODED_HTML_CLOSING = "&gt;";
   static final String ENCODED_AMPERSAND = "&amp;";
 
-  String decorateLineWithHtml(String line, DecorationDataHolder decorationDataHolder) {
-
-    StringBuilder currentHtmlLine = new StringBuilder();
-
-    BufferedReader stringBuffer = new BufferedReader(new StringReader(line));
+  private final StringBuilder currentHtmlLine = new StringBuilder();
 
-    CharactersReader charsReader = new CharactersReader(stringBuffer);
+  String decorateLineWithHtml(String line, DecorationDataHolder decorationDataHolder) {
+    currentHtmlLine.setLength(0);
+    int openTags = 0;
+    int length = line.length();
+    for (int currentIndex = 0; currentIndex < length; currentIndex++) {
+      while (currentIndex == decorationDataHolder.getCurrentClosingTagOffset()) {
+        injectClosingHtml(currentHtmlLine);
+        openTags--;
+        decorationDataHolder.nextClosingTagOffset();
+      }
 
-    try {
-      while (charsReader.readNextChar()) {
-        addCharToCurrentLine(charsReader, currentHtmlLine, decorationDataHolder);
+      while (currentIndex == decorationDataHolder.getCurrentOpeningTagOffset()) {
+        injectOpeningHtmlForRule(decorationDataHolder.getCurrentOpeningTagCssClass(), currentHtmlLine);
+        openTags++;
+        decorationDataHolder.nextOpeningTagEntry();
       }
-    } catch (IOException e) {
-      throw new IllegalStateException("Error when decorating source", e);
+
+      appendNormalized(line.charAt(currentIndex), currentHtmlLine);
     }
 
-    closeCurrentSyntaxTags(charsReader, currentHtmlLine);
+    // tags ending at the end of the line, or beyond
+    for (int i = 0; i < openTags; i++) {
+      injectClosingHtml(currentHtmlLine);
+    }
 
     return currentHtmlLine.toString();
-
-  }
-
-  private static void addCharToCurrentLine(CharactersReader charsReader, StringBuilder currentHtmlLine, DecorationDataHolder decorationDataHolder) {
-    int numberOfTagsToClose = getNumberOfTagsToClose(charsReader.getCurrentIndex(), decorationDataHolder);
-    closeCompletedTags(charsReader, numberOfTagsToClose, currentHtmlLine);
-
-    Collection<String> tagsToOpen = getTagsToOpen(charsReader.getCurrentIndex(), decorationDataHolder);
-    openNewTags(charsReader, tagsToOpen, currentHtmlLine);
-
-    char currentChar = (char) charsReader.getCurrentValue();
-    currentHtmlLine.append(normalize(currentChar));
   }
 
-  private static char[] normalize(char currentChar) {
-    char[] normalizedChars;
+  private static void appendNormalized(char currentChar, StringBuilder decoratedText) {
     if (currentChar == HTML_OPENING) {
-      normalizedChars = ENCODED_HTML_OPENING.toCharArray();
+      decoratedText.append(ENCODED_HTML_OPENING);
     } else if (currentChar == HTML_CLOSING) {
-      normalizedChars = ENCODED_HTML_CLOSING.toCharArray();
+      decoratedText.append(ENCODED_HTML_CLOSING);
     } else if (currentChar == AMPERSAND) {
-      normalizedChars = ENCODED_AMPERSAND.toCharArray();
+      decoratedText.append(ENCODED_AMPERSAND);
     } else {
-      normalizedChars = new char[] {currentChar};
-    }
-    return normalizedChars;
-  }
-
-  private static int getNumberOfTagsToClose(int currentIndex, DecorationDataHolder dataHolder) {
-    int numberOfTagsToClose = 0;
-
-    while (currentIndex == dataHolder.getCurrentClosingTagOffset()) {
-      numberOfTagsToClose++;
-      dataHolder.nextClosingTagOffset();
-    }
-    return numberOfTagsToClose;
-  }
-
-  private static Collection<String> getTagsToOpen(int currentIndex, DecorationDataHolder dataHolder) {
-    Collection<String> tagsToOpen = newArrayList();
-    while (dataHolder.getCurrentOpeningTagEntry() != null && currentIndex == dataHolder.getCurrentOpeningTagEntry().getStartOffset()) {
-      tagsToOpen.add(dataHolder.getCurrentOpeningTagEntry().getCssClass());
-      dataHolder.nextOpeningTagEntry();
-    }
-    return tagsToOpen;
-  }
-
-  private static void closeCompletedTags(CharactersReader charactersReader, int numberOfTagsToClose,
-    StringBuilder decoratedText) {
-    for (int i = 0; i < numberOfTagsToClose; i++) {
-      injectClosingHtml(decoratedText);
-      charactersReader.removeLastOpenTag();
-    }
-  }
-
-  private static void openNewTags(CharactersReader charactersReader, Collection<String> tagsToOpen,
-    StringBuilder decoratedText) {
-    for (String tagToOpen : tagsToOpen) {
-      injectOpeningHtmlForRule(tagToOpen, decoratedText);
-      charactersReader.registerOpenTag(tagToOpen);
-    }
-  }
-
-  private static void closeCurrentSyntaxTags(CharactersReader charactersReader, StringBuilder decoratedText) {
-    for (int i = 0; i < charactersReader.getOpenTags().size(); i++) {
-      injectClosingHtml(decoratedText);
+      decoratedText.append(currentChar);
     }
   }
 
@@ -0,0 +1,209 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Content of the source files of one run, shared by the analyzers and the reports so that each file is read only once.
+ * <p>
+ * Files are memory-mapped the first time they are accessed, and each access gets its own read-only view of the mapping:
+ * no copy of the bytes is made on the heap, and text is only decoded when requested. On Windows, where a mapped file
+ * can't be modified, files are read instead.
+ * <p>
+ * The total size of the cached files is bounded: the least recently used files are evicted first, and their mapping is
+ * released once the views handed out are no longer referenced. Entries are validated against the modification time of
+ * the file, so that a file modified during the run is read again.
+ * <p>
+ * A mapped file truncated after it was accessed, as when an editor saves it, faults when the missing bytes are read,
+ * which the JVM reports as an {@link InternalError}. The content is therefore only given through {@link #read(Path, Function)},
+ * {@link #inputStream(Path)} and {@link #contents(Path, Charset)}, which report such faults as an {@link IOException}.
+ */
+public class SourceFileCache {
+  public static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+  private static final boolean MAP_FILES = File.separatorChar == '/';
+
+  private final long maxBytes;
+  private final Map<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedBytes = 0;
+
+  public SourceFileCache() {
+    this(DEFAULT_MAX_BYTES);
+  }
+
+  public SourceFileCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Applies the function to a read-only view of the content of the file, positioned at its beginning. The view must not
+   * be used once the function returned.
+   */
+  public <T> T read(Path file, Function<ByteBuffer, T> reader) throws IOException {
+    ByteBuffer content = bytes(file);
+    try {
+      return reader.apply(content);
+    } catch (InternalError e) {
+      throw accessFault(file, e);
+    }
+  }
+
+  /**
+   * Read-only view of the content of the file, positioned at its beginning. Reading it may throw an {@link InternalError}
+   * if the file is truncated, see {@link #read(Path, Function)}.
+   */
+  ByteBuffer bytes(Path file) throws IOException {
+    long mtime = Files.getLastModifiedTime(file).toMillis();
+    synchronized (this) {
+      Entry entry = entries.get(file);
+      if (entry != null && entry.mtime == mtime) {
+        return entry.buffer.asReadOnlyBuffer();
+      }
+    }
+    // loaded without holding the lock, a file accessed concurrently for the first time may be loaded twice
+    ByteBuffer buffer = load(file);
+    if (buffer.capacity() <= maxBytes) {
+      put(file, new Entry(mtime, buffer));
+    }
+    return buffer.asReadOnlyBuffer();
+  }
+
+  private synchronized void put(Path file, Entry entry) {
+    Entry previous = entries.put(file, entry);
+    if (previous != null) {
+      cachedBytes -= previous.buffer.capacity();
+    }
+    cachedBytes += entry.buffer.capacity();
+    Iterator<Entry> eldestFirst = entries.values().iterator();
+    while (cachedBytes > maxBytes && eldestFirst.hasNext()) {
+      Entry eldest = eldestFirst.next();
+      cachedBytes -= eldest.buffer.capacity();
+      eldestFirst.remove();
+    }
+  }
+
+  synchronized long cachedBytes() {
+    return cachedBytes;
+  }
+
+  synchronized boolean contains(Path file) {
+    return entries.containsKey(file);
+  }
+
+  public InputStream inputStream(Path file) throws IOException {
+    return new ByteBufferInputStream(file, bytes(file));
+  }
+
+  public String contents(Path file, Charset charset) throws IOException {
+    return read(file, content -> charset.decode(content).toString());
+  }
+
+  private static IOException accessFault(Path file, InternalError e) {
+    return new IOException("File modified while being read: " + file, e);
+  }
+
+  private static ByteBuffer load(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("File too large: " + file);
+      }
+      if (MAP_FILES && size > 0) {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) size);
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        // read until the buffer is full
+      }
+      buffer.flip();
+      return buffer;
+    }
+  }
+
+  private static class Entry {
+    private final long mtime;
+    private final ByteBuffer buffer;
+
+    private Entry(long mtime, ByteBuffer buffer) {
+      this.mtime = mtime;
+      this.buffer = buffer;
+    }
+  }
+
+  private static class ByteBufferInputStream extends InputStream {
+    private final Path file;
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(Path file, ByteBuffer buffer) {
+      this.file = file;
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+      } catch (InternalError e) {
+        throw accessFault(file, e);
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(len, buffer.remaining());
+      try {
+        buffer.get(b, off, count);
+      } catch (InternalError e) {
+        throw accessFault(file, e);
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(long n) {
+      int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
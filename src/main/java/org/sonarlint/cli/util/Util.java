@@ -19,6 +19,8 @@
  */
 package org.sonarlint.cli.util;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -46,4 +48,20 @@ public class Util {
   public static String escapeFileName(String fileName) {
     return fileName.replaceAll("[^a-zA-Z0-9.-]", "_");
   }
+
+  public static MessageDigest sha1() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 is not supported", e);
+    }
+  }
+
+  public static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
 }
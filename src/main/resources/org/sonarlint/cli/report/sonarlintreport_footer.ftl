@@ -0,0 +1,11 @@
+<#if !report.noIssues()>
+  </div>
+</div>
+<script type="text/javascript">
+  $(function() {
+    refreshFilters(true);
+  });
+</script>
+</#if>
+</body>
+</html>
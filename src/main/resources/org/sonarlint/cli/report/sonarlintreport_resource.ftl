@@ -0,0 +1,118 @@
+<#assign component_id_prefix = 'comp'>
+  <script type="text/javascript">
+    issuesPerComponent[${resourceIndex?c}] = [
+      <#list resourceReport.getIssues() as issue>
+        {'id': '${issue.id()?html}', 'r': '${issue.getRuleKey()}', 'startLine': ${(issue.getStartLine()!0)?c}, 'startLineOffset': ${(issue.getStartLineOffset()!0)?c}, 'endLine': ${(issue.getEndLine()!0)?c}, 'endLineOffset': ${(issue.getEndLineOffset()!0)?c}, 's': '${issue.getSeverity()?lower_case}'}<#if issue_has_next>,</#if>
+      </#list>
+    ];
+  </script>
+  <table width="100%" class="data" id="${component_id_prefix}-table-${resourceIndex?c}">
+    <thead>
+    <tr class="total">
+      <th align="left" colspan="2" nowrap>
+        <div class="file_title">
+          <img src="sonarlintreport_files/${resourceReport.getType()}.png" title="Resource icon"/>
+          <a href="#" onclick="$('.${component_id_prefix}-details-${resourceIndex?c}').toggleClass('masked'); return false;" style="color: black">${resourceReport.getName()}</a>
+        </div>
+      </th>
+      <th align="right" width="1%" nowrap class="${component_id_prefix}-details-${resourceIndex?c}">
+        <#if resourceReport.getTotal().getCountInCurrentAnalysis() gt 0>
+          <span class="worst" id="total">${resourceReport.getTotal().getCountInCurrentAnalysis()?c}</span>
+        <#else>
+          <span id="current-total">0</span>
+        </#if>
+        <br/>Issues
+      </th>
+    </tr>
+    </thead>
+    <tbody class="${component_id_prefix}-details-${resourceIndex?c}">
+    <#list resourceReport.getCategoryReports() as categoryReport>
+      <tr class="hoverable">
+        <td width="20">
+          <i class="icon-severity-${categoryReport.getSeverity()?lower_case}"></i>
+        </td>
+        <td align="left">
+          ${categoryReport.getName()?html}
+        </td>
+        <td align="right">
+          ${categoryReport.getTotal().getCountInCurrentAnalysis()?c}
+        </td>
+      </tr>
+    </#list>
+    <#assign colspan = '3'>
+    <#assign issues=resourceReport.getIssuesAtLine(0)>
+      <#if issues?has_content>
+      <tr class="globalIssues">
+        <td colspan="${colspan}">
+          <#list issues as issue>
+            <div class="issue" id="${issue.id()?html}">
+              <div class="vtitle">
+                <i class="icon-severity-${issue.getSeverity()?lower_case}"></i>
+                <#if issue.getMessage()?has_content>
+                  <span class="rulename">${issue.getMessage()?html}</span>
+                <#else>
+                  <span class="rulename">${issue.getRuleName()}</span>
+                </#if>
+                &nbsp;
+                <img src="sonarlintreport_files/sep12.png">&nbsp;
+                <span class="rule_key"><a href="sonarlintreport_rules/${issue.getRuleKey()}.html" target="sonarlint_rule">${issue.getRuleKey()}</a></span>
+              </div>
+              <div class="discussionComment">
+                ${issue.getRuleName()}
+              </div>
+            </div>
+          </#list>
+        </td>
+      </tr>
+      </#if>
+      <tr>
+        <td colspan="${colspan}">
+          <table class="sources" border="0" cellpadding="0" cellspacing="0">
+            <#list report.getDisplayableSource(resourceReport.getPath()) as line>
+              <#assign lineIndex=line.number()>
+              <tr id="${resourceIndex?c}L${lineIndex?c}" class="row">
+                <td class="lid ">${lineIndex?c}</td>
+                <td class="line ">
+                  <pre>${line.html()}</pre>
+                </td>
+              </tr>
+              <tr id="${resourceIndex}S${lineIndex?c}" class="blockSep">
+                <td colspan="2"></td>
+              </tr>
+              <#assign issues=resourceReport.getIssuesAtLine(lineIndex)>
+              <#if issues?has_content>
+                <tr id="${resourceIndex?c}LV${lineIndex?c}" class="row">
+                  <td class="lid"></td>
+                  <td class="issues">
+                    <#list issues as issue>
+                      <div class="issue" id="${issue.id()?html}">
+                        <div class="vtitle">
+                          <i class="icon-severity-${issue.getSeverity()?lower_case}"></i>
+                          <#if issue.getMessage()?has_content>
+                          <span class="rulename">${issue.getMessage()?html}</span>
+                          <#else>
+                          <span class="rulename">${issue.getRuleName()}</span>
+                          </#if>
+                          &nbsp;
+                          <img src="sonarlintreport_files/sep12.png">&nbsp;
+                          <span class="rule_key"><a href="sonarlintreport_rules/${issue.ruleDescriptionFileName()}" target="sonarlint_rule">${issue.getRuleKey()}</a></span>
+                          <#if issue.creationDate()?has_content>
+                            &nbsp;
+                            <img src="sonarlintreport_files/sep12.png">&nbsp;
+                            <span class="issue_date">${issue.creationDate()}</span>
+                          </#if>
+                        </div>
+                        <div class="discussionComment">
+                          ${issue.getRuleName()}
+                        </div>
+                      </div>
+                    </#list>
+                  </td>
+                </tr>
+              </#if>
+            </#list>
+          </table>
+        </td>
+      </tr>
+    </tbody>
+  </table>
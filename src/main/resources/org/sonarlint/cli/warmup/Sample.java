@@ -0,0 +1,25 @@
+import java.util.ArrayList;
+import java.util.List;
+
+public class Sample {
+  private List<String> names = new ArrayList<>();
+
+  public String join(String separator) {
+    String result = "";
+    for (int i = 0; i < names.size(); i++) {
+      if (i > 0) {
+        result = result + separator;
+      }
+      result = result + names.get(i);
+    }
+    return result;
+  }
+
+  public boolean isEmpty() {
+    if (names.size() == 0) {
+      return true;
+    } else {
+      return false;
+    }
+  }
+}
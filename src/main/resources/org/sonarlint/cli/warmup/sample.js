@@ -0,0 +1,18 @@
+function join(names, separator) {
+  var result = "";
+  for (var i = 0; i < names.length; i++) {
+    if (i > 0) {
+      result = result + separator;
+    }
+    result = result + names[i];
+  }
+  return result;
+}
+
+function isEmpty(names) {
+  if (names.length == 0) {
+    return true;
+  } else {
+    return false;
+  }
+}
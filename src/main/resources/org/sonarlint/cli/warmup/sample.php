@@ -0,0 +1,27 @@
+<?php
+
+class Sample
+{
+    private $names = array();
+
+    public function join($separator)
+    {
+        $result = "";
+        for ($i = 0; $i < count($this->names); $i++) {
+            if ($i > 0) {
+                $result = $result . $separator;
+            }
+            $result = $result . $this->names[$i];
+        }
+        return $result;
+    }
+
+    public function isEmpty()
+    {
+        if (count($this->names) == 0) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+class Sample:
+    def __init__(self):
+        self.names = []
+
+    def join(self, separator):
+        result = ""
+        for i in range(len(self.names)):
+            if i > 0:
+                result = result + separator
+            result = result + self.names[i]
+        return result
+
+    def is_empty(self):
+        if len(self.names) == 0:
+            return True
+        else:
+            return False
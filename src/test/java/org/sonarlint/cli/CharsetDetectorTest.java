@@ -0,0 +1,103 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarlint.cli.util.SourceFileCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CharsetDetectorTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private Path cacheFile;
+  private CharsetDetector detector;
+
+  @Before
+  public void setUp() {
+    cacheFile = temp.getRoot().toPath().resolve(".sonarlint").resolve("charsets");
+    detector = CharsetDetector.load(cacheFile, StandardCharsets.ISO_8859_1);
+  }
+
+  @Test
+  public void should_detect_bom() {
+    assertThat(detector.detect(bytes(0xef, 0xbb, 0xbf, 'a'))).isEqualTo(StandardCharsets.UTF_8);
+    assertThat(detector.detect(bytes(0xfe, 0xff, 0, 'a'))).isEqualTo(StandardCharsets.UTF_16BE);
+    assertThat(detector.detect(bytes(0xff, 0xfe, 'a', 0))).isEqualTo(StandardCharsets.UTF_16LE);
+  }
+
+  @Test
+  public void should_detect_utf8_or_fallback() {
+    assertThat(detector.detect(ByteBuffer.wrap("caf\u00e9".getBytes(StandardCharsets.UTF_8)))).isEqualTo(StandardCharsets.UTF_8);
+    assertThat(detector.detect(ByteBuffer.wrap("caf\u00e9".getBytes(StandardCharsets.ISO_8859_1)))).isEqualTo(StandardCharsets.ISO_8859_1);
+    assertThat(detector.detect(ByteBuffer.wrap("ascii only".getBytes(StandardCharsets.US_ASCII)))).isEqualTo(StandardCharsets.ISO_8859_1);
+    assertThat(detector.detect(bytes())).isEqualTo(StandardCharsets.ISO_8859_1);
+  }
+
+  @Test
+  public void should_cache_detected_charsets() throws IOException {
+    Path file = temp.newFile("Utf8.java").toPath();
+    Files.write(file, "// caf\u00e9".getBytes(StandardCharsets.UTF_8));
+    FileTime mtime = Files.getLastModifiedTime(file);
+    assertThat(detector.detect(file, new SourceFileCache())).isEqualTo(StandardCharsets.UTF_8);
+    detector.save();
+
+    // same size and modification time: not read again
+    Files.write(file, "// cafe\u00e9".getBytes(StandardCharsets.ISO_8859_1));
+    Files.setLastModifiedTime(file, mtime);
+    assertThat(CharsetDetector.load(cacheFile, StandardCharsets.ISO_8859_1).detect(file, null)).isEqualTo(StandardCharsets.UTF_8);
+
+    Files.setLastModifiedTime(file, FileTime.fromMillis(mtime.toMillis() + 10_000));
+    assertThat(CharsetDetector.load(cacheFile, StandardCharsets.ISO_8859_1).detect(file, null)).isEqualTo(StandardCharsets.ISO_8859_1);
+  }
+
+  @Test
+  public void should_discard_cache_of_other_fallback() throws IOException {
+    Path file = temp.newFile("Ascii.java").toPath();
+    Files.write(file, "class A {}".getBytes(StandardCharsets.US_ASCII));
+    detector.detect(file, null);
+    detector.save();
+
+    assertThat(CharsetDetector.load(cacheFile, StandardCharsets.US_ASCII).detect(file, null)).isEqualTo(StandardCharsets.US_ASCII);
+  }
+
+  @Test
+  public void should_fallback_on_unreadable_file() {
+    assertThat(detector.detect(temp.getRoot().toPath().resolve("missing"), null)).isEqualTo(StandardCharsets.ISO_8859_1);
+  }
+
+  private static ByteBuffer bytes(int... values) {
+    byte[] bytes = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      bytes[i] = (byte) values[i];
+    }
+    return ByteBuffer.wrap(bytes);
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Properties;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarlint.cli.analysis.SharedSonarLintFactory;
+import org.sonarlint.cli.analysis.SonarLint;
+import org.sonarlint.cli.config.ConfigurationReader;
+import org.sonarlint.cli.util.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DaemonTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private Path stateFile;
+  private Daemon daemon;
+  private Thread daemonThread;
+  private ByteArrayOutputStream out = new ByteArrayOutputStream();
+  private ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+  @Before
+  public void setUp() throws Exception {
+    stateFile = temp.getRoot().toPath().resolve("daemon.properties");
+    daemon = new Daemon(new SharedSonarLintFactory(new ConfigurationReader()), stateFile);
+    daemonThread = new Thread(daemon::run);
+    daemonThread.start();
+    while (!Files.exists(stateFile) || Files.size(stateFile) == 0) {
+      Thread.sleep(10);
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    daemon.stop();
+    daemonThread.join();
+    Logger.set(System.out, System.err);
+  }
+
+  @Test
+  public void should_forward_execution_to_daemon() {
+    Integer exitCode = DaemonClient.forward(stateFile, temp.getRoot().toPath(), new String[] {"--use-daemon", "-v"}, new PrintStream(out), new PrintStream(err));
+
+    assertThat(exitCode).isEqualTo(Main.SUCCESS);
+    assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).startsWith("INFO: ");
+  }
+
+  @Test
+  public void should_reject_interactive_mode() {
+    Integer exitCode = DaemonClient.forward(stateFile, temp.getRoot().toPath(), new String[] {"-i"}, new PrintStream(out), new PrintStream(err));
+
+    assertThat(exitCode).isEqualTo(Main.ERROR);
+    assertThat(new String(err.toByteArray(), StandardCharsets.UTF_8)).contains("Not supported by the SonarLint daemon");
+  }
+
+  @Test
+  public void should_keep_serving_after_an_error() throws Exception {
+    Path failingStateFile = temp.getRoot().toPath().resolve("failing.properties");
+    Daemon failingDaemon = new Daemon(new SharedSonarLintFactory(new ConfigurationReader()) {
+      @Override
+      public synchronized SonarLint createSonarLint(Path globalConfigPath, Path projectConfigPath, boolean mustBeConnected, boolean verbose) {
+        throw new InternalError("a fault occurred in an unsafe memory access operation");
+      }
+    }, failingStateFile);
+    Thread failingThread = new Thread(failingDaemon::run);
+    failingThread.start();
+    try {
+      while (!Files.exists(failingStateFile) || Files.size(failingStateFile) == 0) {
+        Thread.sleep(10);
+      }
+
+      for (int i = 0; i < 2; i++) {
+        Integer exitCode = DaemonClient.forward(failingStateFile, temp.getRoot().toPath(), new String[0], new PrintStream(out), new PrintStream(err));
+        assertThat(exitCode).isEqualTo(Main.ERROR);
+      }
+      assertThat(new String(err.toByteArray(), StandardCharsets.UTF_8)).contains("Error executing SonarLint");
+      assertThat(failingThread.isAlive()).isTrue();
+    } finally {
+      failingDaemon.stop();
+      failingThread.join();
+    }
+  }
+
+  @Test
+  public void should_reject_invalid_token() throws IOException {
+    Properties props = new Properties();
+    try (Reader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+      props.load(reader);
+    }
+    props.setProperty(Daemon.TOKEN_PROPERTY, props.getProperty(Daemon.TOKEN_PROPERTY) + "0");
+    Path invalidStateFile = temp.getRoot().toPath().resolve("invalid.properties");
+    try (Writer writer = Files.newBufferedWriter(invalidStateFile, StandardCharsets.UTF_8)) {
+      props.store(writer, null);
+    }
+
+    assertThat(DaemonClient.forward(invalidStateFile, temp.getRoot().toPath(), new String[0], new PrintStream(out), new PrintStream(err))).isNull();
+    assertThat(out.toByteArray()).isEmpty();
+  }
+
+  @Test
+  public void should_create_state_file_readable_by_owner_only() throws IOException {
+    Assume.assumeTrue(Files.getFileAttributeView(stateFile, PosixFileAttributeView.class) != null);
+
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(stateFile))).isEqualTo("rw-------");
+  }
+
+  @Test
+  public void should_remove_state_file_when_stopped() throws IOException, InterruptedException {
+    daemon.stop();
+    daemonThread.join();
+
+    assertThat(stateFile).doesNotExist();
+    assertThat(DaemonClient.forward(stateFile, temp.getRoot().toPath(), new String[0], new PrintStream(out), new PrintStream(err))).isNull();
+  }
+
+  @Test
+  public void should_fail_if_daemon_closes_connection_after_some_output() throws Exception {
+    try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      Path brokenStateFile = temp.getRoot().toPath().resolve("broken.properties");
+      Properties props = new Properties();
+      props.setProperty(Daemon.PORT_PROPERTY, Integer.toString(server.getLocalPort()));
+      props.setProperty(Daemon.TOKEN_PROPERTY, "token");
+      try (Writer writer = Files.newBufferedWriter(brokenStateFile, StandardCharsets.UTF_8)) {
+        props.store(writer, null);
+      }
+      Thread brokenDaemon = new Thread(() -> {
+        try (Socket socket = server.accept()) {
+          DataInputStream in = new DataInputStream(socket.getInputStream());
+          in.readUTF();
+          in.readUTF();
+          for (int i = in.readInt(); i > 0; i--) {
+            in.readUTF();
+          }
+          DataOutputStream daemonOut = new DataOutputStream(socket.getOutputStream());
+          byte[] output = "partial".getBytes(StandardCharsets.UTF_8);
+          daemonOut.writeByte(Daemon.STDOUT);
+          daemonOut.writeInt(output.length);
+          daemonOut.write(output);
+          daemonOut.flush();
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      brokenDaemon.start();
+
+      Integer exitCode = DaemonClient.forward(brokenStateFile, temp.getRoot().toPath(), new String[0], new PrintStream(out), new PrintStream(err));
+      brokenDaemon.join();
+
+      assertThat(exitCode).isEqualTo(Main.ERROR);
+      assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("partial");
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileIndexTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private Path root;
+  private Path src;
+  private Path srcFile;
+  private Path indexFile;
+  private InputFileFinder fileFinder;
+  private FileTime oldTime;
+
+  @Before
+  public void setUp() throws IOException {
+    root = temp.newFolder().toPath();
+    src = root.resolve("src");
+    Files.createDirectories(src);
+    srcFile = src.resolve("Src.java");
+    Files.write(srcFile, "class Src {}".getBytes(StandardCharsets.UTF_8));
+    indexFile = root.resolve(".sonarlint").resolve("file-index");
+    fileFinder = new InputFileFinder(null, null, null, StandardCharsets.UTF_8);
+
+    // entries modified just before a scan are never trusted
+    oldTime = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+    Files.setLastModifiedTime(srcFile, oldTime);
+    Files.setLastModifiedTime(src, oldTime);
+    Files.setLastModifiedTime(root, oldTime);
+  }
+
+  @Test
+  public void missing_index_is_empty() throws IOException {
+    FileIndex index = FileIndex.load(indexFile);
+    fileFinder.setFileIndex(index);
+
+    List<ClientInputFile> files = fileFinder.collect(root);
+    assertThat(files).extracting("path").containsOnly(srcFile.toString());
+    assertThat(indexFile).doesNotExist();
+    fileFinder.saveFileIndex();
+    assertThat(indexFile).exists();
+  }
+
+  @Test
+  public void corrupted_index_is_ignored() throws IOException {
+    Files.createDirectories(indexFile.getParent());
+    Files.write(indexFile, "garbage".getBytes(StandardCharsets.UTF_8));
+    fileFinder.setFileIndex(FileIndex.load(indexFile));
+
+    assertThat(fileFinder.collect(root)).extracting("path").containsOnly(srcFile.toString());
+  }
+
+  @Test
+  public void unchanged_directory_is_not_listed_again() throws IOException {
+    fileFinder.setFileIndex(FileIndex.load(indexFile));
+    fileFinder.collect(root);
+    fileFinder.saveFileIndex();
+
+    // a file appears without the directory's modification time changing: only possible if the listing comes from the index
+    Path newFile = src.resolve("New.java");
+    Files.createFile(newFile);
+    Files.setLastModifiedTime(src, oldTime);
+
+    fileFinder.setFileIndex(FileIndex.load(indexFile));
+    assertThat(fileFinder.collect(root)).extracting("path").containsOnly(srcFile.toString());
+
+    Files.setLastModifiedTime(src, FileTime.fromMillis(System.currentTimeMillis()));
+    assertThat(fileFinder.collect(root)).extracting("path").containsOnly(srcFile.toString(), newFile.toString());
+  }
+
+  @Test
+  public void content_hash_is_recomputed_when_file_changes() throws IOException {
+    FileIndex index = FileIndex.load(indexFile);
+    fileFinder.setFileIndex(index);
+    fileFinder.collect(root);
+    String hash = index.contentHash(srcFile);
+    assertThat(hash).isEqualTo(FileIndex.computeHash(srcFile));
+    fileFinder.saveFileIndex();
+
+    index = FileIndex.load(indexFile);
+    fileFinder.setFileIndex(index);
+    fileFinder.collect(root);
+    assertThat(index.contentHash(srcFile)).isEqualTo(hash);
+
+    Files.write(srcFile, "class Src { int i; }".getBytes(StandardCharsets.UTF_8));
+    fileFinder.collect(root);
+    assertThat(index.contentHash(srcFile)).isNotEqualTo(hash).isEqualTo(FileIndex.computeHash(srcFile));
+  }
+
+  @Test
+  public void content_hash_is_the_same_with_or_without_source_cache() throws IOException {
+    FileIndex index = FileIndex.load(indexFile);
+    fileFinder.setFileIndex(index);
+    fileFinder.collect(root);
+    String hash = index.contentHash(srcFile);
+
+    index = FileIndex.load(indexFile);
+    fileFinder.setFileIndex(index);
+    fileFinder.setSourceCacheSize(0);
+    fileFinder.collect(root);
+    assertThat(index.contentHash(srcFile)).isEqualTo(hash).isEqualTo(FileIndex.computeHash(srcFile));
+  }
+
+  @Test
+  public void content_hash_of_unchanged_file_is_not_computed_again() throws IOException {
+    FileIndex index = FileIndex.load(indexFile);
+    fileFinder.setFileIndex(index);
+    fileFinder.collect(root);
+    String hash = index.contentHash(srcFile);
+    fileFinder.saveFileIndex();
+
+    // same size and modification time: the old hash can only come from the index
+    Files.write(srcFile, "class Abc {}".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(srcFile, oldTime);
+
+    index = FileIndex.load(indexFile);
+    fileFinder.setFileIndex(index);
+    fileFinder.collect(root);
+    assertThat(index.contentHash(srcFile)).isEqualTo(hash).isNotEqualTo(FileIndex.computeHash(srcFile));
+  }
+
+  @Test
+  public void changed_paths_are_hashed_again_whatever_their_timestamps() throws IOException {
+    FileIndex index = FileIndex.load(indexFile);
+    fileFinder.setFileIndex(index);
+    fileFinder.collect(root);
+    index.contentHash(srcFile);
+    fileFinder.saveFileIndex();
+
+    Files.write(srcFile, "class Abc {}".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(srcFile, oldTime);
+
+    index = FileIndex.load(indexFile);
+    fileFinder.setFileIndex(index);
+    fileFinder.setChangedPaths(Collections.singleton(srcFile));
+    fileFinder.collect(root);
+    assertThat(index.contentHash(srcFile)).isEqualTo(FileIndex.computeHash(srcFile));
+  }
+
+  @Test
+  public void deleted_files_are_dropped() throws IOException {
+    FileIndex index = FileIndex.load(indexFile);
+    fileFinder.setFileIndex(index);
+    fileFinder.collect(root);
+
+    Files.delete(srcFile);
+    assertThat(fileFinder.collect(root)).isEmpty();
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.regex.PatternSyntaxException;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GlobMatcherTest {
+  private static final Path BASE_DIR = Paths.get("/base").toAbsolutePath();
+
+  private static final String[] GLOBS = {"**/*.java", "**.java", "**/*.min.js", "**.min.js", "**/*", "**/*.", "**abc**", "**/node_modules/**",
+    "**/src/main/**", "target/**", "src/main/**", "src/Foo.java", "*Test.*", "src/**", "**/test/**", "**/*Test.java", "{src,test}/**",
+    "**/*.{java,js}"};
+
+  private static final String[] FILES = {"src/Foo.java", "Foo.java", "Foo", "Foo.", "a/.java", "src/main/java/A.java", "lib/x.min.js",
+    "node_modules/a/b.js", "x/node_modules/y.js", "target/classes/A.class", "target", "src/test/FooTest.java", "tests/abc.txt", "abc/x",
+    "main/java", "java", ".java", "x/src/main/Y.java"};
+
+  @Test
+  public void should_match_like_jdk_glob() {
+    for (String glob : GLOBS) {
+      GlobMatcher matcher = GlobMatcher.compile(glob);
+      PathMatcher jdk = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+      for (String file : FILES) {
+        Path absolute = BASE_DIR.resolve(file);
+        Path relative = BASE_DIR.relativize(absolute);
+        assertThat(matcher.matches(candidate(file)))
+          .as(glob + " on " + file)
+          .isEqualTo(jdk.matches(absolute) || jdk.matches(relative));
+      }
+    }
+  }
+
+  @Test
+  public void should_match_any_of_the_globs() {
+    GlobMatcher matcher = GlobMatcher.compile("**/node_modules/**, target/**,**/*.min.js,*Test.*");
+
+    assertThat(matcher.matches(candidate("web/node_modules/lib/index.js"))).isTrue();
+    assertThat(matcher.matches(candidate("target/generated/A.java"))).isTrue();
+    assertThat(matcher.matches(candidate("web/app.min.js"))).isTrue();
+    assertThat(matcher.matches(candidate("FooTest.java"))).isTrue();
+    assertThat(matcher.matches(candidate("web/app.js"))).isFalse();
+    assertThat(matcher.matches(candidate("src/target/A.java"))).isFalse();
+  }
+
+  @Test
+  public void should_split_outside_groups() {
+    assertThat(GlobMatcher.split("a/**, {b,c}/*.java ,[,]x,,d\\,e")).containsExactly("a/**", "{b,c}/*.java", "[,]x", "d\\,e");
+    assertThat(GlobMatcher.split(" ")).isEmpty();
+  }
+
+  @Test(expected = PatternSyntaxException.class)
+  public void should_fail_on_invalid_glob() {
+    GlobMatcher.compile("**/*.java,\\");
+  }
+
+  private static GlobMatcher.Candidate candidate(String relativePath) {
+    Path absolute = BASE_DIR.resolve(relativePath);
+    return new GlobMatcher.Candidate(absolute, BASE_DIR.relativize(absolute));
+  }
+}
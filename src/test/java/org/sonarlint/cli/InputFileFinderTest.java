@@ -27,7 +27,9 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -37,6 +39,7 @@ import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
+import static org.assertj.core.api.Assertions.tuple;
 
 public class InputFileFinderTest {
   private Path root;
@@ -97,6 +100,28 @@ public class InputFileFinderTest {
     assertThat(files).extracting("test").contains(true, false);
   }
 
+  @Test
+  public void onlyGivenFiles() throws IOException {
+    Path hidden = Files.createDirectories(root.resolve(".hidden")).resolve("Hidden.java");
+    Files.createFile(hidden);
+    fileFinder = new InputFileFinder(null, "**tests**", null, Charset.defaultCharset());
+    fileFinder.setOnlyFiles(Arrays.asList(test1, hidden, root.resolve("src").resolve("Deleted.java"), root.resolveSibling("Outside.java")));
+
+    List<ClientInputFile> files = fileFinder.collect(root);
+    assertThat(files).extracting("path").containsOnly(test1.toString());
+    assertThat(files).extracting("test").containsOnly(true);
+  }
+
+  @Test
+  public void configurationFingerprintDependsOnCharsetAndTests() {
+    String fingerprint = new InputFileFinder("src/**", "tests**", null, StandardCharsets.UTF_8).configurationFingerprint();
+
+    assertThat(new InputFileFinder("other/**", "tests**", "**.xml", StandardCharsets.UTF_8).configurationFingerprint()).isEqualTo(fingerprint);
+    assertThat(new InputFileFinder("src/**", "tests**", null, StandardCharsets.ISO_8859_1).configurationFingerprint()).isNotEqualTo(fingerprint);
+    assertThat(new InputFileFinder("src/**", "**Test.java", null, StandardCharsets.UTF_8).configurationFingerprint()).isNotEqualTo(fingerprint);
+    assertThat(new InputFileFinder("src/**", null, null, StandardCharsets.UTF_8).configurationFingerprint()).isNotEqualTo(fingerprint);
+  }
+
   @Test
   public void invalidSourcePattern() throws IOException {
     try {
@@ -197,6 +222,61 @@ public class InputFileFinderTest {
     assertThat(files).extracting("charset").containsOnly(StandardCharsets.US_ASCII);
   }
 
+  @Test
+  public void testCharsetDetection() throws IOException {
+    Files.write(src1, "// caf\u00e9".getBytes(StandardCharsets.UTF_8));
+    Files.write(test1, "// caf\u00e9".getBytes(StandardCharsets.ISO_8859_1));
+    fileFinder = new InputFileFinder(null, "**tests**", null, StandardCharsets.UTF_8);
+    fileFinder.setCharsetDetector(CharsetDetector.load(root.resolve("charsets"), StandardCharsets.ISO_8859_1));
+
+    List<ClientInputFile> files = fileFinder.collect(root);
+
+    assertThat(files).extracting("path", "charset").containsOnly(
+      tuple(src1.toString(), StandardCharsets.UTF_8),
+      tuple(test1.toString(), StandardCharsets.ISO_8859_1));
+    assertThat(files.get(0).contents()).isEqualTo("// caf\u00e9");
+    assertThat(files.get(1).contents()).isEqualTo("// caf\u00e9");
+  }
+
+  @Test
+  public void testSkipLargeAndBinaryFiles() throws IOException {
+    Path large = root.resolve("src").resolve("bundle.min.js");
+    Files.write(large, new byte[2048]);
+    Path binary = root.resolve("src").resolve("image.png");
+    Files.write(binary, new byte[] {(byte) 0x89, 'P', 'N', 'G', 0, 1});
+    Path utf16 = root.resolve("src").resolve("Utf16.java");
+    Files.write(utf16, "class A {}".getBytes(StandardCharsets.UTF_16));
+    fileFinder = new InputFileFinder(null, null, null, Charset.defaultCharset());
+    fileFinder.setMaxFileSize(1024);
+
+    assertThat(fileFinder.collect(root)).extracting("path").containsOnly(src1.toString(), test1.toString(), utf16.toString());
+    out.flush();
+    assertThat(getLogs(out)).contains("2 file(s) skipped: 1 binary, 1 larger than 1 KB");
+
+    fileFinder.setDiscoveryThreads(4);
+    assertThat(fileFinder.collect(root)).extracting("path").containsOnly(src1.toString(), test1.toString(), utf16.toString());
+  }
+
+  @Test
+  public void testSkipBinaryFilesWithoutSourceCache() throws IOException {
+    Path binary = root.resolve("src").resolve("image.png");
+    Files.write(binary, new byte[] {(byte) 0x89, 'P', 'N', 'G', 0, 1});
+    fileFinder = new InputFileFinder(null, null, null, Charset.defaultCharset());
+    fileFinder.setSourceCacheSize(0);
+
+    assertThat(fileFinder.collect(root)).extracting("path").containsOnly(src1.toString(), test1.toString());
+  }
+
+  @Test
+  public void testKeepBinaryFiles() throws IOException {
+    Path binary = root.resolve("src").resolve("image.png");
+    Files.write(binary, new byte[] {(byte) 0x89, 'P', 'N', 'G', 0, 1});
+    fileFinder = new InputFileFinder(null, null, null, Charset.defaultCharset());
+    fileFinder.setSkipBinaryFiles(false);
+
+    assertThat(fileFinder.collect(root)).extracting("path").containsOnly(src1.toString(), test1.toString(), binary.toString());
+  }
+
   @Test
   public void testPatternAppliedToSourceFilesOnly() throws Exception {
     Path src = root.resolve("src");
@@ -225,4 +305,65 @@ public class InputFileFinderTest {
     assertThat(files).extracting("path").containsOnly(src1.toString());
   }
 
+  @Test
+  public void testSeveralPatterns() throws IOException {
+    Path generated = root.resolve("src").resolve("generated");
+    Files.createDirectories(generated);
+    Files.createFile(generated.resolve("Gen.java"));
+    Files.createFile(root.resolve("src").resolve("Src.js"));
+    fileFinder = new InputFileFinder("**/*.java, **/*.js", "tests/**,**/*Test.java", "src/generated/**,**/*.js", Charset.defaultCharset());
+
+    assertThat(fileFinder.collect(root)).extracting("path").containsOnly(src1.toString(), test1.toString());
+    assertThat(fileFinder.collect(root)).extracting("test").containsOnly(false, true);
+  }
+
+  @Test
+  public void testParallelDiscovery() throws IOException {
+    Path deep = root.resolve("src").resolve("a").resolve("b");
+    Files.createDirectories(deep);
+    Path src2 = deep.resolve("Deep.java");
+    Path src3 = root.resolve("src").resolve("Another.java");
+    Files.createFile(src2);
+    Files.createFile(src3);
+    temp.newFolder(".hidden");
+    Files.createFile(root.resolve(".hidden").resolve("Hidden.java"));
+
+    fileFinder = new InputFileFinder(null, "**tests**", null, Charset.defaultCharset());
+    List<ClientInputFile> sequential = fileFinder.collect(root);
+
+    fileFinder.setDiscoveryThreads(4);
+    List<ClientInputFile> parallel = fileFinder.collect(root);
+
+    assertThat(parallel).extracting("path").containsExactlyElementsOf(sequential.stream().map(ClientInputFile::getPath).collect(Collectors.toList()));
+    assertThat(parallel).extracting("path").containsExactly(src3.toString(), src1.toString(), src2.toString(), test1.toString());
+    assertThat(parallel).extracting("test").containsExactly(false, false, false, true);
+    assertThat(fileFinder.collect(root)).extracting("path").containsExactly(src3.toString(), src1.toString(), src2.toString(), test1.toString());
+  }
+
+  @Test
+  public void testGitIgnore() throws IOException {
+    Path nodeModules = root.resolve("src").resolve("node_modules");
+    Files.createDirectories(nodeModules);
+    Files.createFile(nodeModules.resolve("Lib.java"));
+    Path generated = root.resolve("src").resolve("Generated.java");
+    Files.createFile(generated);
+    Path kept = root.resolve("src").resolve("Kept.java");
+    Files.createFile(kept);
+    Files.write(root.resolve(".gitignore"), Arrays.asList("node_modules/", "Gen*.java"), StandardCharsets.UTF_8);
+    Files.write(root.resolve("src").resolve(".gitignore"), Arrays.asList("!Generated.java"), StandardCharsets.UTF_8);
+
+    fileFinder = new InputFileFinder(null, null, null, Charset.defaultCharset());
+    assertThat(fileFinder.collect(root)).extracting("path").contains(nodeModules.resolve("Lib.java").toString());
+
+    fileFinder = new InputFileFinder("**/*.java", null, null, Charset.defaultCharset());
+    fileFinder.setUseGitIgnore(true);
+    assertThat(fileFinder.collect(root)).extracting("path").containsOnly(src1.toString(), generated.toString(), kept.toString(), test1.toString());
+
+    fileFinder.setDiscoveryThreads(4);
+    assertThat(fileFinder.collect(root)).extracting("path").containsExactly(generated.toString(), kept.toString(), src1.toString(), test1.toString());
+
+    fileFinder.setOnlyFiles(Arrays.asList(nodeModules.resolve("Lib.java"), kept));
+    assertThat(fileFinder.collect(root)).extracting("path").containsExactly(kept.toString());
+  }
+
 }
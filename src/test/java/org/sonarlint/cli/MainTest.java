@@ -202,6 +202,8 @@ public class MainTest {
     assertThat(main.run()).isEqualTo(Main.ERROR);
     assertThat(getLogs(out)).contains("EXECUTION FAILURE");
     assertThat(getLogs(err)).contains("invalid operation");
+    // a shared instance must not keep the settings of the failed execution
+    verify(sonarLint).stop();
   }
 
   @Test
@@ -23,6 +23,7 @@ import java.text.ParseException;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonarlint.cli.report.Severity;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -109,6 +110,183 @@ public class OptionsTest {
     assertThat(opt.task()).isEqualTo("mytask");
   }
 
+  @Test
+  public void testDiscoveryThreads() throws ParseException {
+    assertThat(Options.parse(args()).discoveryThreads()).isEqualTo(1);
+
+    Options opt = Options.parse(args("--discovery-threads", "8"));
+    assertThat(opt.discoveryThreads()).isEqualTo(8);
+  }
+
+  @Test
+  public void testFileIndex() throws ParseException {
+    assertThat(Options.parse(args()).useFileIndex()).isFalse();
+    assertThat(Options.parse(args("--file-index")).useFileIndex()).isTrue();
+  }
+
+  @Test
+  public void testIncremental() throws ParseException {
+    assertThat(Options.parse(args()).isIncremental()).isFalse();
+    assertThat(Options.parse(args("--incremental")).isIncremental()).isTrue();
+  }
+
+  @Test
+  public void testJobs() throws ParseException {
+    assertThat(Options.parse(args()).jobs()).isEqualTo(1);
+    assertThat(Options.parse(args("--jobs", "8")).jobs()).isEqualTo(8);
+  }
+
+  @Test
+  public void testShard() throws ParseException {
+    Options opts = Options.parse(args("--shard", "2/4"));
+    assertThat(opts.shardIndex()).isEqualTo(2);
+    assertThat(opts.shardCount()).isEqualTo(4);
+    assertThat(Options.parse(args()).shardCount()).isZero();
+  }
+
+  @Test
+  public void testInvalidShard() throws ParseException {
+    exception.expect(ParseException.class);
+    exception.expectMessage("Invalid value for option --shard: 5/4");
+    Options.parse(args("--shard", "5/4"));
+  }
+
+  @Test
+  public void testMerge() throws ParseException {
+    Options opts = Options.parse(args("merge", "--partials", "a,b"));
+    assertThat(opts.task()).isEqualTo("merge");
+    assertThat(opts.partials()).isEqualTo("a,b");
+  }
+
+  @Test
+  public void testChangedSince() throws ParseException {
+    assertThat(Options.parse(args()).changedSince()).isNull();
+    assertThat(Options.parse(args("--changed-since", "origin/master")).changedSince()).isEqualTo("origin/master");
+  }
+
+  @Test
+  public void testWatch() throws ParseException {
+    assertThat(Options.parse(args()).isWatch()).isFalse();
+    assertThat(Options.parse(args("--watch")).isWatch()).isTrue();
+  }
+
+  @Test
+  public void testWarmup() throws ParseException {
+    assertThat(Options.parse(args()).isWarmup()).isFalse();
+    assertThat(Options.parse(args("--warmup")).isWarmup()).isTrue();
+  }
+
+  @Test
+  public void testFailOn() throws ParseException {
+    Options options = Options.parse(args());
+    assertThat(options.failOn()).isNull();
+    assertThat(options.isFailFast()).isFalse();
+
+    options = Options.parse(args("--fail-on", "critical", "--fail-fast"));
+    assertThat(options.failOn()).isEqualTo(Severity.CRITICAL);
+    assertThat(options.isFailFast()).isTrue();
+  }
+
+  @Test
+  public void testInvalidFailOn() throws ParseException {
+    exception.expect(ParseException.class);
+    exception.expectMessage("Invalid value for option --fail-on: SEVERE");
+    Options.parse(args("--fail-on", "SEVERE"));
+  }
+
+  @Test
+  public void testFailFastRequiresFailOn() throws ParseException {
+    exception.expect(ParseException.class);
+    exception.expectMessage("Option --fail-fast requires --fail-on");
+    Options.parse(args("--fail-fast"));
+  }
+
+  @Test
+  public void testQualityGate() throws ParseException {
+    Options options = Options.parse(args());
+    assertThat(options.maxIssues()).isEmpty();
+    assertThat(options.maxNewIssues()).isEqualTo(-1);
+    assertThat(options.isNoHtmlReport()).isFalse();
+
+    options = Options.parse(args("--max-issues", "blocker=0, CRITICAL=10", "--max-new-issues", "0", "--no-html-report"));
+    assertThat(options.maxIssues()).containsOnlyKeys(Severity.BLOCKER, Severity.CRITICAL);
+    assertThat(options.maxIssues().get(Severity.BLOCKER)).isZero();
+    assertThat(options.maxIssues().get(Severity.CRITICAL)).isEqualTo(10);
+    assertThat(options.maxNewIssues()).isZero();
+    assertThat(options.isNoHtmlReport()).isTrue();
+  }
+
+  @Test
+  public void testStreamingHtmlReport() throws ParseException {
+    assertThat(Options.parse(args()).isStreamingHtmlReport()).isFalse();
+    assertThat(Options.parse(args("--streaming-html-report")).isStreamingHtmlReport()).isTrue();
+  }
+
+  @Test
+  public void testInvalidMaxIssues() throws ParseException {
+    exception.expect(ParseException.class);
+    exception.expectMessage("Invalid value for option --max-issues: BLOCKER");
+    Options.parse(args("--max-issues", "BLOCKER"));
+  }
+
+  @Test
+  public void testUseGitIgnore() throws ParseException {
+    assertThat(Options.parse(args()).useGitIgnore()).isFalse();
+    assertThat(Options.parse(args("--use-gitignore")).useGitIgnore()).isTrue();
+  }
+
+  @Test
+  public void testLazyPlugins() throws ParseException {
+    assertThat(Options.parse(args()).useLazyPlugins()).isFalse();
+    assertThat(Options.parse(args("--lazy-plugins")).useLazyPlugins()).isTrue();
+  }
+
+  @Test
+  public void testBatchSize() throws ParseException {
+    assertThat(Options.parse(args()).batchSize()).isEqualTo(0);
+    assertThat(Options.parse(args("--batch-size", "50")).batchSize()).isEqualTo(50);
+  }
+
+  @Test
+  public void testMaxFileSize() throws ParseException {
+    assertThat(Options.parse(args()).maxFileSize()).isZero();
+    assertThat(Options.parse(args("--max-file-size", "512")).maxFileSize()).isEqualTo(512);
+  }
+
+  @Test
+  public void testNoBinaryDetection() throws ParseException {
+    assertThat(Options.parse(args()).isNoBinaryDetection()).isFalse();
+    assertThat(Options.parse(args("--no-binary-detection")).isNoBinaryDetection()).isTrue();
+  }
+
+  @Test
+  public void testSourceCacheSize() throws ParseException {
+    assertThat(Options.parse(args()).sourceCacheSize()).isEqualTo(-1);
+    assertThat(Options.parse(args("--source-cache-size", "0")).sourceCacheSize()).isZero();
+    assertThat(Options.parse(args("--source-cache-size", "64")).sourceCacheSize()).isEqualTo(64);
+  }
+
+  @Test
+  public void testInvalidSourceCacheSize() throws ParseException {
+    exception.expect(ParseException.class);
+    exception.expectMessage("Invalid value for option --source-cache-size: -1");
+    Options.parse(args("--source-cache-size", "-1"));
+  }
+
+  @Test
+  public void testUseDaemon() throws ParseException {
+    assertThat(Options.parse(args()).useDaemon()).isFalse();
+    assertThat(Options.parse(args("--use-daemon")).useDaemon()).isTrue();
+    assertThat(Options.parse(args("daemon")).task()).isEqualTo("daemon");
+  }
+
+  @Test
+  public void testInvalidDiscoveryThreads() throws ParseException {
+    exception.expect(ParseException.class);
+    exception.expectMessage("Invalid value for option --discovery-threads: zero");
+    Options.parse(args("--discovery-threads", "zero"));
+  }
+
   @Test
   public void testInvalidArg() throws ParseException {
     exception.expect(ParseException.class);
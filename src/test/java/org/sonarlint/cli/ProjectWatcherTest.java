@@ -0,0 +1,92 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectWatcherTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_report_changed_files_and_ignore_own_output() throws Exception {
+    Path projectHome = temp.getRoot().toPath();
+    Path src = Files.createDirectories(projectHome.resolve("src"));
+    Path workDir = Files.createDirectories(projectHome.resolve(".sonarlint"));
+    Path report = projectHome.resolve("report.html");
+    Path file = src.resolve("Foo.java");
+
+    try (ProjectWatcher watcher = new ProjectWatcher(projectHome, 200, Collections.singleton(report))) {
+      Thread writer = new Thread(() -> {
+        try {
+          Files.write(workDir.resolve("file-index"), new byte[] {1});
+          Files.write(report, new byte[] {1});
+          Files.write(file, new byte[] {1});
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      writer.start();
+      Set<Path> changes = watcher.awaitChanges();
+      writer.join();
+
+      assertThat(changes).contains(file);
+      assertThat(changes).doesNotContain(report, workDir, workDir.resolve("file-index"));
+    }
+  }
+
+  @Test
+  public void should_ignore_content_of_ignored_directories() throws Exception {
+    Path projectHome = temp.getRoot().toPath();
+    Path src = Files.createDirectories(projectHome.resolve("src"));
+    Path reportDir = Files.createDirectories(projectHome.resolve("reports"));
+    Path resources = Files.createDirectories(reportDir.resolve("sonarlintreport_files"));
+    Path report = reportDir.resolve("report.html");
+    Path file = src.resolve("Foo.java");
+
+    try (ProjectWatcher watcher = new ProjectWatcher(projectHome, 200, Arrays.asList(report, resources))) {
+      Thread writer = new Thread(() -> {
+        try {
+          Files.write(resources.resolve("sonarlint.js"), new byte[] {1});
+          Files.write(report, new byte[] {1});
+          Files.write(file, new byte[] {1});
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      writer.start();
+      Set<Path> changes = watcher.awaitChanges();
+      writer.join();
+
+      assertThat(changes).contains(file);
+      assertThat(changes).doesNotContain(report, resources, resources.resolve("sonarlint.js"));
+    }
+  }
+}
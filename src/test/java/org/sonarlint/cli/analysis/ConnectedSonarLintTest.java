@@ -286,6 +286,21 @@ public class ConnectedSonarLintTest {
     assertThat(trackables2).extracting("issue").isEqualTo(Collections.singletonList(unresolved));
   }
 
+  @Test
+  public void should_tell_issues_that_tracking_may_drop() {
+    Path moduleRoot = Paths.get("").toAbsolutePath();
+    Issue issue = mockIssue();
+    when(issue.getInputFile().getPath()).thenReturn(moduleRoot.resolve("dummy").toString());
+    ServerIssue serverIssue = mockServerIssue(issue);
+    when(engine.getServerIssues("project1", "dummy")).thenReturn(Collections.singletonList(serverIssue));
+
+    assertThat(sonarLint.mayBeDroppedByTracking(moduleRoot, issue)).isFalse();
+    assertThat(sonarLint.mayBeDroppedByTracking(moduleRoot, mock(Issue.class))).isTrue();
+
+    when(serverIssue.resolution()).thenReturn("FALSE-POSITIVE");
+    assertThat(sonarLint.mayBeDroppedByTracking(moduleRoot, issue)).isTrue();
+  }
+
   @Test
   public void should_get_creation_date_from_matched_server_issue() {
     Path moduleRoot = Paths.get("").toAbsolutePath();
@@ -0,0 +1,170 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarlint.cli.InputFileFinder;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueLocation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IssueCacheTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private Path cacheFile;
+  private Path file;
+  private ClientInputFile inputFile;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheFile = temp.getRoot().toPath().resolve(".sonarlint").resolve("issue-cache");
+    file = temp.newFile("Foo.java").toPath();
+    Files.write(file, "class Foo {}".getBytes(StandardCharsets.UTF_8));
+    inputFile = new InputFileFinder.DefaultClientInputFile(file, false, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void should_not_reuse_without_cache() {
+    IssueCache cache = IssueCache.load(cacheFile, null);
+    cache.startAnalysis("fingerprint");
+    IssueCollector collector = new IssueCollector();
+    assertThat(cache.reuse(inputFile, collector)).isFalse();
+    assertThat(collector.get()).isEmpty();
+  }
+
+  @Test
+  public void should_reuse_issues_of_unchanged_file() {
+    storeIssue("fingerprint");
+
+    IssueCache cache = IssueCache.load(cacheFile, null);
+    cache.startAnalysis("fingerprint");
+    IssueCollector collector = new IssueCollector();
+    assertThat(cache.reuse(inputFile, collector)).isTrue();
+
+    assertThat(collector.get()).hasSize(1);
+    Issue issue = collector.get().get(0);
+    assertThat(issue.getRuleKey()).isEqualTo("squid:S1234");
+    assertThat(issue.getRuleName()).isEqualTo("name");
+    assertThat(issue.getSeverity()).isEqualTo("MAJOR");
+    assertThat(issue.getMessage()).isNull();
+    assertThat(issue.getStartLine()).isEqualTo(1);
+    assertThat(issue.getEndLine()).isNull();
+    assertThat(issue.getInputFile()).isSameAs(inputFile);
+  }
+
+  @Test
+  public void should_reuse_secondary_locations() {
+    IssueLocation first = mock(IssueLocation.class);
+    when(first.getMessage()).thenReturn("first");
+    when(first.getStartLine()).thenReturn(2);
+    when(first.getEndLine()).thenReturn(3);
+    IssueLocation second = mock(IssueLocation.class);
+    when(second.getStartLineOffset()).thenReturn(4);
+    when(second.getEndLineOffset()).thenReturn(5);
+    Issue.Flow flow = mock(Issue.Flow.class);
+    when(flow.locations()).thenReturn(Arrays.asList(first, second));
+    Issue issue = mock(Issue.class);
+    when(issue.getRuleKey()).thenReturn("squid:S1234");
+    when(issue.getRuleName()).thenReturn("name");
+    when(issue.getSeverity()).thenReturn("MAJOR");
+    when(issue.flows()).thenReturn(Collections.singletonList(flow));
+
+    IssueCache cache = IssueCache.load(cacheFile, null);
+    cache.startAnalysis("fingerprint");
+    cache.reuse(inputFile, new IssueCollector());
+    cache.store(inputFile, Collections.singletonList(issue));
+    cache.save();
+
+    cache = IssueCache.load(cacheFile, null);
+    cache.startAnalysis("fingerprint");
+    IssueCollector collector = new IssueCollector();
+    assertThat(cache.reuse(inputFile, collector)).isTrue();
+
+    assertThat(collector.get()).hasSize(1);
+    assertThat(collector.get().get(0).flows()).hasSize(1);
+    List<IssueLocation> locations = collector.get().get(0).flows().get(0).locations();
+    assertThat(locations).hasSize(2);
+    assertThat(locations.get(0).getMessage()).isEqualTo("first");
+    assertThat(locations.get(0).getStartLine()).isEqualTo(2);
+    assertThat(locations.get(0).getStartLineOffset()).isNull();
+    assertThat(locations.get(0).getEndLine()).isEqualTo(3);
+    assertThat(locations.get(1).getMessage()).isNull();
+    assertThat(locations.get(1).getStartLineOffset()).isEqualTo(4);
+    assertThat(locations.get(1).getEndLineOffset()).isEqualTo(5);
+  }
+
+  @Test
+  public void should_not_reuse_issues_of_modified_file() throws IOException {
+    storeIssue("fingerprint");
+    Files.write(file, "class Foo { }".getBytes(StandardCharsets.UTF_8));
+
+    IssueCache cache = IssueCache.load(cacheFile, null);
+    cache.startAnalysis("fingerprint");
+    assertThat(cache.reuse(inputFile, new IssueCollector())).isFalse();
+  }
+
+  @Test
+  public void should_discard_issues_when_configuration_changes() {
+    storeIssue("fingerprint");
+
+    IssueCache cache = IssueCache.load(cacheFile, null);
+    cache.startAnalysis("other");
+    assertThat(cache.reuse(inputFile, new IssueCollector())).isFalse();
+  }
+
+  @Test
+  public void should_ignore_corrupted_cache() throws IOException {
+    Files.createDirectories(cacheFile.getParent());
+    Files.write(cacheFile, new byte[] {0, 0, 0, 2, 42});
+
+    IssueCache cache = IssueCache.load(cacheFile, null);
+    cache.startAnalysis("fingerprint");
+    assertThat(cache.reuse(inputFile, new IssueCollector())).isFalse();
+  }
+
+  private void storeIssue(String fingerprint) {
+    Issue issue = mock(Issue.class);
+    when(issue.getRuleKey()).thenReturn("squid:S1234");
+    when(issue.getRuleName()).thenReturn("name");
+    when(issue.getSeverity()).thenReturn("MAJOR");
+    when(issue.getStartLine()).thenReturn(1);
+
+    IssueCache cache = IssueCache.load(cacheFile, null);
+    cache.startAnalysis(fingerprint);
+    assertThat(cache.reuse(inputFile, new IssueCollector())).isFalse();
+    cache.store(inputFile, Collections.singletonList(issue));
+    cache.save();
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarlint.cli.analysis.PluginMetadataCache.PluginMetadata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PluginMetadataCacheTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private Path cacheFile;
+
+  @Before
+  public void setUp() {
+    cacheFile = temp.getRoot().toPath().resolve("cache").resolve("plugins");
+  }
+
+  @Test
+  public void readMetadata() throws IOException {
+    PluginMetadataCache cache = PluginMetadataCache.load(cacheFile);
+    PluginMetadata metadata = cache.get(createPlugin("plugin.jar", "java"));
+    assertThat(metadata.key()).isEqualTo("java");
+
+    metadata = cache.get(createPlugin("other.jar", null));
+    assertThat(metadata.key()).isNull();
+  }
+
+  @Test
+  public void unreadablePlugin() throws IOException {
+    PluginMetadataCache cache = PluginMetadataCache.load(cacheFile);
+    Path notAJar = temp.newFile("plugin.jar").toPath();
+    Files.write(notAJar, "not a jar".getBytes(StandardCharsets.UTF_8));
+    assertThat(cache.get(notAJar.toUri().toURL())).isNull();
+    assertThat(cache.get(temp.getRoot().toPath().resolve("missing.jar").toUri().toURL())).isNull();
+  }
+
+  @Test
+  public void reuseUnchangedPlugins() throws IOException {
+    URL plugin = createPlugin("plugin.jar", "java");
+    PluginMetadataCache cache = PluginMetadataCache.load(cacheFile);
+    cache.get(plugin);
+    cache.save();
+    assertThat(cacheFile).exists();
+
+    // the cached metadata is used as long as size and modification time don't change
+    Path jar = temp.getRoot().toPath().resolve("plugin.jar");
+    FileTime mtime = Files.getLastModifiedTime(jar);
+    createPlugin("plugin.jar", "jav2");
+    Files.setLastModifiedTime(jar, mtime);
+    PluginMetadata metadata = PluginMetadataCache.load(cacheFile).get(plugin);
+    assertThat(metadata.key()).isEqualTo("java");
+
+    Files.setLastModifiedTime(jar, FileTime.fromMillis(mtime.toMillis() + 2000));
+    metadata = PluginMetadataCache.load(cacheFile).get(plugin);
+    assertThat(metadata.key()).isEqualTo("jav2");
+  }
+
+  @Test
+  public void ignoreCorruptedCache() throws IOException {
+    Files.createDirectories(cacheFile.getParent());
+    Files.write(cacheFile, new byte[] {0, 0, 0, 2, 0, 0});
+    PluginMetadataCache cache = PluginMetadataCache.load(cacheFile);
+    assertThat(cache.get(createPlugin("plugin.jar", "java")).key()).isEqualTo("java");
+  }
+
+  @Test
+  public void ignoreSaveFailure() throws IOException {
+    Path readOnly = temp.newFile("readonly").toPath();
+    PluginMetadataCache cache = PluginMetadataCache.load(readOnly.resolve("plugins"));
+    cache.get(createPlugin("plugin.jar", "java"));
+    cache.save();
+    assertThat(readOnly.resolve("plugins")).doesNotExist();
+  }
+
+  private URL createPlugin(String fileName, @Nullable String key) throws IOException {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (key != null) {
+      manifest.getMainAttributes().putValue(PluginMetadataCache.PLUGIN_KEY_ATTRIBUTE, key);
+    }
+    Path jar = temp.getRoot().toPath().resolve(fileName);
+    try (OutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest)) {
+      // manifest only
+    }
+    return jar.toUri().toURL();
+  }
+}
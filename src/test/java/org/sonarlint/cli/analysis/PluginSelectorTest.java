@@ -0,0 +1,87 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import javax.annotation.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarlint.cli.InputFileFinder;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PluginSelectorTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void selectByExtension() throws IOException {
+    URL java = createPlugin("java");
+    URL javascript = createPlugin("javascript");
+    URL python = createPlugin("python");
+    URL custom = createPlugin("custom");
+    URL noKey = createPlugin(null);
+    PluginSelector selector = PluginSelector.create(new URL[] {java, javascript, python, custom, noKey}, metadataCache());
+
+    assertThat(selector.select(Arrays.asList(inputFile("app.js"), inputFile("lib/Util.JS"), inputFile("README")))).containsExactly(javascript, custom, noKey);
+    assertThat(selector.select(Arrays.asList(inputFile("setup.py"), inputFile("Main.java")))).containsExactly(java, python, custom, noKey);
+    assertThat(selector.select(Collections.emptyList())).containsExactly(custom, noKey);
+  }
+
+  @Test
+  public void selectUnreadablePlugin() throws IOException {
+    URL missing = temp.getRoot().toPath().resolve("missing.jar").toUri().toURL();
+    PluginSelector selector = PluginSelector.create(new URL[] {missing}, metadataCache());
+    assertThat(selector.select(Collections.emptyList())).containsExactly(missing);
+  }
+
+  private PluginMetadataCache metadataCache() {
+    return new PluginMetadataCache(temp.getRoot().toPath().resolve("cache"), Collections.emptyMap());
+  }
+
+  private ClientInputFile inputFile(String path) {
+    return new InputFileFinder.DefaultClientInputFile(temp.getRoot().toPath().resolve(path), false, StandardCharsets.UTF_8);
+  }
+
+  private URL createPlugin(@Nullable String key) throws IOException {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (key != null) {
+      manifest.getMainAttributes().putValue(PluginMetadataCache.PLUGIN_KEY_ATTRIBUTE, key);
+    }
+    Path jar = temp.newFile().toPath();
+    try (OutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest)) {
+      // manifest only
+    }
+    return jar.toUri().toURL();
+  }
+}
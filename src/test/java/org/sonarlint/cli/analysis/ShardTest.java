@@ -0,0 +1,106 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarlint.cli.InputFileFinder;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ShardTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_partition_files_independently_of_base_dir() throws IOException {
+    Path baseDir1 = temp.newFolder().toPath();
+    Path baseDir2 = temp.newFolder().toPath();
+    List<ClientInputFile> files1 = createInputFiles(baseDir1);
+    List<ClientInputFile> files2 = createInputFiles(baseDir2);
+
+    int total = 0;
+    for (int i = 1; i <= 3; i++) {
+      Shard shard = new Shard(i, 3);
+      List<ClientInputFile> selected1 = shard.select(files1, baseDir1);
+      List<ClientInputFile> selected2 = shard.select(files2, baseDir2);
+      assertThat(selected1).isNotEmpty();
+      assertThat(selected1.stream().map(f -> Shard.relativePath(baseDir1, f)).collect(Collectors.toList()))
+        .isEqualTo(selected2.stream().map(f -> Shard.relativePath(baseDir2, f)).collect(Collectors.toList()));
+      total += selected1.size();
+    }
+    assertThat(total).isEqualTo(files1.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_on_invalid_shard() {
+    new Shard(3, 2);
+  }
+
+  @Test
+  public void should_write_and_read_partial_results() throws IOException {
+    Path baseDir = temp.newFolder().toPath();
+    Shard shard = new Shard(2, 3);
+    ClientInputFile inputFile = new InputFileFinder.DefaultClientInputFile(baseDir.resolve("src").resolve("Foo.java"), true, StandardCharsets.ISO_8859_1);
+    Issue issue = mock(Issue.class);
+    when(issue.getRuleKey()).thenReturn("squid:S1234");
+    when(issue.getRuleName()).thenReturn("name");
+    when(issue.getSeverity()).thenReturn("MAJOR");
+    when(issue.getMessage()).thenReturn("message");
+    when(issue.getInputFile()).thenReturn(inputFile);
+
+    Path file = shard.outputFile(baseDir);
+    PartialResults.write(file, shard, baseDir, new DefaultAnalysisResults(5), Collections.singletonList(issue));
+    assertThat(Shard.findOutputFiles(baseDir)).containsExactly(file);
+
+    Path otherBaseDir = temp.newFolder().toPath();
+    PartialResults partialResults = PartialResults.read(file, otherBaseDir);
+    assertThat(partialResults.shard().index()).isEqualTo(2);
+    assertThat(partialResults.shard().count()).isEqualTo(3);
+    assertThat(partialResults.analysisResults().fileCount()).isEqualTo(5);
+    assertThat(partialResults.issues()).hasSize(1);
+    Issue readIssue = partialResults.issues().get(0);
+    assertThat(readIssue.getRuleKey()).isEqualTo("squid:S1234");
+    assertThat(readIssue.getMessage()).isEqualTo("message");
+    assertThat(readIssue.getInputFile().getPath()).isEqualTo(otherBaseDir.resolve("src").resolve("Foo.java").toString());
+    assertThat(readIssue.getInputFile().isTest()).isTrue();
+    assertThat(readIssue.getInputFile().getCharset()).isEqualTo(StandardCharsets.ISO_8859_1);
+  }
+
+  private static List<ClientInputFile> createInputFiles(Path baseDir) {
+    List<ClientInputFile> files = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      files.add(new InputFileFinder.DefaultClientInputFile(baseDir.resolve("dir" + (i % 7)).resolve("File" + i + ".java"), false, StandardCharsets.UTF_8));
+    }
+    return files;
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarlint.cli.SonarProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SharedSonarLintFactoryTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private Path pluginDir;
+
+  @Before
+  public void setUp() throws IOException {
+    System.setProperty(SonarProperties.SONARLINT_HOME, temp.getRoot().getAbsolutePath());
+    pluginDir = temp.newFolder("plugins").toPath();
+  }
+
+  @Test
+  public void pluginsStampChangesWithPlugins() throws IOException {
+    Path plugin = pluginDir.resolve("sonar-java-plugin.jar");
+    Files.write(plugin, new byte[] {1});
+    String stamp = SharedSonarLintFactory.pluginsStamp();
+    assertThat(SharedSonarLintFactory.pluginsStamp()).isEqualTo(stamp);
+
+    Files.write(pluginDir.resolve("sonar-php-plugin.jar"), new byte[] {1});
+    String added = SharedSonarLintFactory.pluginsStamp();
+    assertThat(added).isNotEqualTo(stamp);
+
+    Files.write(plugin, new byte[] {1, 2});
+    String resized = SharedSonarLintFactory.pluginsStamp();
+    assertThat(resized).isNotEqualTo(added);
+
+    Files.setLastModifiedTime(plugin, FileTime.fromMillis(Files.getLastModifiedTime(plugin).toMillis() - 60_000));
+    assertThat(SharedSonarLintFactory.pluginsStamp()).isNotEqualTo(resized);
+  }
+
+  @Test
+  public void pluginsStampWithoutPluginDir() throws IOException {
+    Files.delete(pluginDir);
+
+    assertThat(SharedSonarLintFactory.pluginsStamp()).isEmpty();
+  }
+}
@@ -0,0 +1,381 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.analysis;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonarlint.cli.FileIndex;
+import org.sonarlint.cli.InputFileFinder;
+import org.sonarlint.cli.report.ReportFactory;
+import org.sonarlint.cli.report.Severity;
+import org.sonarsource.sonarlint.core.client.api.common.RuleDetails;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.AnalysisResults;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.IssueListener;
+import org.sonarsource.sonarlint.core.tracking.Trackable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SonarLintTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  @Test
+  public void should_partition_files_by_size() throws IOException {
+    List<ClientInputFile> files = new ArrayList<>();
+    int[] sizes = {10, 100, 30, 90, 5, 50, 20, 40};
+    for (int i = 0; i < sizes.length; i++) {
+      Path file = temp.getRoot().toPath().resolve("file" + i);
+      Files.write(file, new byte[sizes[i]]);
+      files.add(new InputFileFinder.DefaultClientInputFile(file, false, StandardCharsets.UTF_8));
+    }
+
+    List<List<ClientInputFile>> partitions = SonarLint.partitionBySize(files, 3);
+
+    assertThat(partitions).hasSize(3);
+    assertThat(partitions.stream().mapToInt(List::size).sum()).isEqualTo(files.size());
+    for (List<ClientInputFile> partition : partitions) {
+      long total = 0;
+      for (ClientInputFile file : partition) {
+        total += Files.size(Paths.get(file.getPath()));
+      }
+      assertThat(total).isBetween(110L, 120L);
+    }
+  }
+
+  @Test
+  public void should_analyze_batches_while_discovering() throws IOException {
+    Path projectHome = temp.newFolder().toPath();
+    for (int i = 0; i < 5; i++) {
+      Files.write(projectHome.resolve("file" + i), new byte[] {'x'});
+    }
+    RecordingSonarLint sonarLint = new RecordingSonarLint();
+    sonarLint.setBatchSize(2);
+    ReportFactory reportFactory = mock(ReportFactory.class);
+
+    sonarLint.runAnalysis(new HashMap<>(), reportFactory, new InputFileFinder(null, null, null, StandardCharsets.UTF_8), projectHome);
+
+    assertThat(sonarLint.batches.stream().map(List::size).collect(Collectors.toList())).containsExactly(2, 2, 1);
+    verify(reportFactory).createReporters(projectHome);
+  }
+
+  @Test
+  public void should_prepare_analysis_with_all_files_of_the_run() throws IOException {
+    Path projectHome = temp.newFolder().toPath();
+    for (int i = 0; i < 3; i++) {
+      Files.write(projectHome.resolve("file" + i), new byte[] {'x'});
+    }
+    RecordingSonarLint sonarLint = new RecordingSonarLint();
+
+    sonarLint.runAnalysis(new HashMap<>(), mock(ReportFactory.class), new InputFileFinder(null, null, null, StandardCharsets.UTF_8), projectHome);
+    assertThat(sonarLint.prepared).hasSize(1);
+    assertThat(sonarLint.prepared.get(0)).hasSize(3);
+
+    // files discovered while analyzing are not known in advance
+    sonarLint = new RecordingSonarLint();
+    sonarLint.setBatchSize(1);
+    sonarLint.runAnalysis(new HashMap<>(), mock(ReportFactory.class), new InputFileFinder(null, null, null, StandardCharsets.UTF_8), projectHome);
+    assertThat(sonarLint.prepared).containsExactly((Collection<ClientInputFile>) null);
+  }
+
+  @Test
+  public void should_save_content_hashes_computed_by_the_analysis() throws IOException {
+    Path projectHome = temp.newFolder().toPath();
+    Path file = projectHome.resolve("Foo.java");
+    Files.write(file, "class Foo {}".getBytes(StandardCharsets.UTF_8));
+    FileTime oldTime = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+    Files.setLastModifiedTime(file, oldTime);
+
+    assertThat(analyzeWithIssueCache(projectHome).batches).hasSize(1);
+
+    // same size and modification time: the file is only reused if its hash comes from the saved index
+    Files.write(file, "class Bar {}".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file, oldTime);
+    assertThat(analyzeWithIssueCache(projectHome).batches).isEmpty();
+  }
+
+  private RecordingSonarLint analyzeWithIssueCache(Path projectHome) {
+    Path sonarLintDir = projectHome.resolve(".sonarlint");
+    InputFileFinder finder = new InputFileFinder(null, null, null, StandardCharsets.UTF_8);
+    finder.setFileIndex(FileIndex.load(sonarLintDir.resolve("file-index")));
+    RecordingSonarLint sonarLint = new RecordingSonarLint();
+    sonarLint.setIssueCache(IssueCache.load(sonarLintDir.resolve("issue-cache"), finder.getFileIndex()));
+    sonarLint.setBatchSize(1);
+    sonarLint.runAnalysis(new HashMap<>(), mock(ReportFactory.class), finder, projectHome);
+    return sonarLint;
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void should_fail_if_discovery_fails() throws IOException {
+    Path projectHome = temp.newFolder().toPath();
+    InputFileFinder finder = mock(InputFileFinder.class);
+    doThrow(new IOException("disk error")).when(finder).collect(any(Path.class), any(Consumer.class));
+    RecordingSonarLint sonarLint = new RecordingSonarLint();
+    sonarLint.setBatchSize(2);
+
+    exception.expect(IllegalStateException.class);
+    exception.expectMessage("Error preparing list of files to analyze");
+    sonarLint.runAnalysis(new HashMap<>(), mock(ReportFactory.class), finder, projectHome);
+  }
+
+  @Test
+  public void should_stop_discovery_if_analysis_fails() throws Exception {
+    Path projectHome = temp.newFolder().toPath();
+    for (int i = 0; i < 50; i++) {
+      Files.write(projectHome.resolve("file" + i), new byte[] {'x'});
+    }
+    InputFileFinder finder = new InputFileFinder(null, null, null, StandardCharsets.UTF_8);
+    finder.setDiscoveryThreads(4);
+    RecordingSonarLint sonarLint = new RecordingSonarLint();
+    sonarLint.failure = new IllegalStateException("analysis failed");
+    sonarLint.setBatchSize(1);
+
+    try {
+      sonarLint.runAnalysis(new HashMap<>(), mock(ReportFactory.class), finder, projectHome);
+      fail("Expected the analysis to fail");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("analysis failed");
+    }
+
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (isDiscoveryRunning() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(isDiscoveryRunning()).isFalse();
+  }
+
+  private static boolean isDiscoveryRunning() {
+    for (StackTraceElement[] stack : Thread.getAllStackTraces().values()) {
+      for (StackTraceElement element : stack) {
+        if (element.getClassName().startsWith(InputFileFinder.class.getName())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void should_count_issues_above_severity() throws IOException {
+    Path projectHome = temp.newFolder().toPath();
+    for (int i = 0; i < 3; i++) {
+      Files.write(projectHome.resolve("file" + i), new byte[] {'x'});
+    }
+    RecordingSonarLint sonarLint = new RecordingSonarLint();
+    sonarLint.issueSeverity = "CRITICAL";
+    SeverityGate gate = new SeverityGate(Severity.CRITICAL, false);
+    sonarLint.setSeverityGate(gate);
+    sonarLint.setBatchSize(1);
+
+    sonarLint.runAnalysis(new HashMap<>(), mock(ReportFactory.class), new InputFileFinder(null, null, null, StandardCharsets.UTF_8), projectHome);
+
+    assertThat(sonarLint.batches).hasSize(3);
+    assertThat(gate.matchingIssues()).isEqualTo(3);
+    assertThat(gate.isFailed()).isTrue();
+  }
+
+  @Test
+  public void should_abort_on_first_issue_above_severity() throws IOException {
+    Path projectHome = temp.newFolder().toPath();
+    for (int i = 0; i < 3; i++) {
+      Files.write(projectHome.resolve("file" + i), new byte[] {'x'});
+    }
+    RecordingSonarLint sonarLint = new RecordingSonarLint();
+    sonarLint.issueSeverity = "BLOCKER";
+    SeverityGate gate = new SeverityGate(Severity.CRITICAL, true);
+    sonarLint.setSeverityGate(gate);
+    sonarLint.setBatchSize(1);
+
+    try {
+      sonarLint.runAnalysis(new HashMap<>(), mock(ReportFactory.class), new InputFileFinder(null, null, null, StandardCharsets.UTF_8), projectHome);
+      fail("Expected the analysis to be aborted");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageContaining("Analysis aborted, BLOCKER issue found");
+    }
+    assertThat(sonarLint.batches).hasSize(1);
+    assertThat(gate.matchingIssues()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_count_reported_issues_only() throws IOException {
+    Path projectHome = temp.newFolder().toPath();
+    for (int i = 0; i < 3; i++) {
+      Files.write(projectHome.resolve("file" + i), new byte[] {'x'});
+    }
+    RecordingSonarLint sonarLint = new RecordingSonarLint();
+    sonarLint.issueSeverity = "CRITICAL";
+    sonarLint.dropped = issue -> issue.getInputFile().getPath().endsWith("file0");
+    SeverityGate gate = new SeverityGate(Severity.CRITICAL, false);
+    sonarLint.setSeverityGate(gate);
+
+    sonarLint.runAnalysis(new HashMap<>(), mock(ReportFactory.class), new InputFileFinder(null, null, null, StandardCharsets.UTF_8), projectHome);
+
+    assertThat(gate.matchingIssues()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_not_abort_on_issues_that_tracking_may_drop() throws IOException {
+    Path projectHome = temp.newFolder().toPath();
+    for (int i = 0; i < 3; i++) {
+      Files.write(projectHome.resolve("file" + i), new byte[] {'x'});
+    }
+    RecordingSonarLint sonarLint = new RecordingSonarLint();
+    sonarLint.issueSeverity = "BLOCKER";
+    sonarLint.dropped = issue -> true;
+    SeverityGate gate = new SeverityGate(Severity.CRITICAL, true);
+    sonarLint.setSeverityGate(gate);
+    sonarLint.setBatchSize(1);
+
+    sonarLint.runAnalysis(new HashMap<>(), mock(ReportFactory.class), new InputFileFinder(null, null, null, StandardCharsets.UTF_8), projectHome);
+
+    assertThat(sonarLint.batches).hasSize(3);
+    assertThat(gate.isFailed()).isFalse();
+  }
+
+  @Test
+  public void should_check_severity_gate_when_merging_results() throws IOException {
+    Path projectHome = temp.newFolder().toPath();
+    Shard shard = new Shard(1, 1);
+    ClientInputFile inputFile = new InputFileFinder.DefaultClientInputFile(projectHome.resolve("Foo.java"), false, StandardCharsets.UTF_8);
+    List<Issue> issues = new ArrayList<>();
+    for (String severity : new String[] {"MAJOR", "CRITICAL", "BLOCKER"}) {
+      Issue issue = mock(Issue.class);
+      when(issue.getRuleKey()).thenReturn("squid:S1234");
+      when(issue.getRuleName()).thenReturn("name");
+      when(issue.getSeverity()).thenReturn(severity);
+      when(issue.getMessage()).thenReturn("message");
+      when(issue.getInputFile()).thenReturn(inputFile);
+      issues.add(issue);
+    }
+    PartialResults.write(shard.outputFile(projectHome), shard, projectHome, new DefaultAnalysisResults(1), issues);
+    RecordingSonarLint sonarLint = new RecordingSonarLint();
+    SeverityGate gate = new SeverityGate(Severity.CRITICAL, false);
+    sonarLint.setSeverityGate(gate);
+
+    sonarLint.mergeResults(Shard.findOutputFiles(projectHome), mock(ReportFactory.class), projectHome);
+
+    assertThat(gate.matchingIssues()).isEqualTo(2);
+  }
+
+  private static class RecordingSonarLint extends SonarLint {
+    private final List<List<ClientInputFile>> batches = new ArrayList<>();
+    private final List<Collection<ClientInputFile>> prepared = new ArrayList<>();
+    // severity of the issue raised on each file, if any
+    private String issueSeverity = null;
+    // thrown when analyzing, if any
+    private RuntimeException failure = null;
+    // issues left out of the reports by the tracking
+    private Predicate<Issue> dropped = issue -> false;
+
+    @Override
+    protected RuleDetails getRuleDetails(String ruleKey) {
+      return null;
+    }
+
+    @Override
+    protected Collection<Trackable> trackIssues(Path baseDirPath, Collection<Issue> issues) {
+      List<Trackable> trackables = new ArrayList<>();
+      for (Issue issue : issues) {
+        if (!dropped.test(issue)) {
+          Trackable trackable = mock(Trackable.class);
+          when(trackable.getIssue()).thenReturn(issue);
+          trackables.add(trackable);
+        }
+      }
+      return trackables;
+    }
+
+    @Override
+    protected boolean mayBeDroppedByTracking(Path baseDirPath, Issue issue) {
+      return dropped.test(issue);
+    }
+
+    @Override
+    protected void doAnalysis(Map<String, String> properties, ReportFactory reportFactory, List<ClientInputFile> inputFiles, Path baseDirPath) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void prepareAnalysis(Map<String, String> properties, @Nullable Collection<ClientInputFile> inputFiles) {
+      prepared.add(inputFiles);
+    }
+
+    @Override
+    protected AnalysisResults analyze(Map<String, String> properties, List<ClientInputFile> inputFiles, Path baseDirPath, IssueListener listener) {
+      batches.add(new ArrayList<>(inputFiles));
+      if (failure != null) {
+        throw failure;
+      }
+      if (issueSeverity != null) {
+        for (ClientInputFile inputFile : inputFiles) {
+          Issue issue = mock(Issue.class);
+          when(issue.getSeverity()).thenReturn(issueSeverity);
+          when(issue.getInputFile()).thenReturn(inputFile);
+          listener.handle(issue);
+        }
+      }
+      return new DefaultAnalysisResults(inputFiles.size());
+    }
+
+    @Override
+    protected SonarLint createWorker() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected String analyzerFingerprint() {
+      return "";
+    }
+
+    @Override
+    public void stop() {
+      // nothing to stop
+    }
+  }
+}
@@ -32,10 +32,16 @@ import org.sonarsource.sonarlint.core.client.api.standalone.StandaloneGlobalConf
 import org.sonarsource.sonarlint.core.client.api.standalone.StandaloneSonarLintEngine;
 
 import java.io.IOException;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -92,6 +98,99 @@ public class StandaloneSonarLintTest {
     assertThat(htmlReport).doesNotExist();
   }
 
+  @Test
+  public void loadPluginsOnDemand() throws IOException {
+    URL javaPlugin = new URL("file:/plugins/java.jar");
+    URL pythonPlugin = new URL("file:/plugins/python.jar");
+    Map<URL, String> pluginKeys = new LinkedHashMap<>();
+    pluginKeys.put(javaPlugin, "java");
+    pluginKeys.put(pythonPlugin, "python");
+    List<List<URL>> createdEngines = new ArrayList<>();
+    List<StandaloneSonarLintEngine> engines = new ArrayList<>();
+    sonarLint = new StandaloneSonarLint(new URL[] {javaPlugin, pythonPlugin}, new PluginSelector(pluginKeys), plugins -> {
+      createdEngines.add(Arrays.asList(plugins));
+      StandaloneSonarLintEngine pluginsEngine = mock(StandaloneSonarLintEngine.class);
+      engines.add(pluginsEngine);
+      return pluginsEngine;
+    });
+    Path projectHome = temp.newFolder().toPath();
+
+    sonarLint.analyze(new HashMap<>(), Collections.singletonList(createInputFile(projectHome.resolve("Main.java"), false)), projectHome, i -> {
+    });
+    sonarLint.analyze(new HashMap<>(), Collections.singletonList(createInputFile(projectHome.resolve("Other.java"), false)), projectHome, i -> {
+    });
+    assertThat(createdEngines).containsExactly(Collections.singletonList(javaPlugin));
+
+    sonarLint.analyze(new HashMap<>(), Collections.singletonList(createInputFile(projectHome.resolve("setup.py"), false)), projectHome, i -> {
+    });
+    assertThat(createdEngines).containsExactly(Collections.singletonList(javaPlugin), Arrays.asList(javaPlugin, pythonPlugin));
+    verify(engines.get(0)).stop();
+
+    sonarLint.stop();
+    verify(engines.get(1)).stop();
+  }
+
+  @Test
+  public void loadPluginsOfWholeRunOnce() throws IOException {
+    URL javaPlugin = new URL("file:/plugins/java.jar");
+    URL pythonPlugin = new URL("file:/plugins/python.jar");
+    Map<URL, String> pluginKeys = new LinkedHashMap<>();
+    pluginKeys.put(javaPlugin, "java");
+    pluginKeys.put(pythonPlugin, "python");
+    List<List<URL>> createdEngines = new ArrayList<>();
+    sonarLint = new StandaloneSonarLint(new URL[] {javaPlugin, pythonPlugin}, new PluginSelector(pluginKeys), plugins -> {
+      createdEngines.add(Arrays.asList(plugins));
+      return mock(StandaloneSonarLintEngine.class);
+    });
+    Path projectHome = temp.newFolder().toPath();
+    ClientInputFile javaFile = createInputFile(projectHome.resolve("Main.java"), false);
+    ClientInputFile pythonFile = createInputFile(projectHome.resolve("setup.py"), false);
+
+    sonarLint.prepareAnalysis(new HashMap<>(), Arrays.asList(javaFile, pythonFile));
+    sonarLint.analyze(new HashMap<>(), Collections.singletonList(javaFile), projectHome, i -> {
+    });
+    sonarLint.analyze(new HashMap<>(), Collections.singletonList(pythonFile), projectHome, i -> {
+    });
+    sonarLint.getRuleDetails("squid:S1234");
+
+    assertThat(createdEngines).containsExactly(Arrays.asList(javaPlugin, pythonPlugin));
+  }
+
+  @Test
+  public void loadAllPluginsForRuleDetailsWithoutAnalysis() throws IOException {
+    URL javaPlugin = new URL("file:/plugins/java.jar");
+    URL pythonPlugin = new URL("file:/plugins/python.jar");
+    Map<URL, String> pluginKeys = new LinkedHashMap<>();
+    pluginKeys.put(javaPlugin, "java");
+    pluginKeys.put(pythonPlugin, "python");
+    List<List<URL>> createdEngines = new ArrayList<>();
+    sonarLint = new StandaloneSonarLint(new URL[] {javaPlugin, pythonPlugin}, new PluginSelector(pluginKeys), plugins -> {
+      createdEngines.add(Arrays.asList(plugins));
+      return mock(StandaloneSonarLintEngine.class);
+    });
+
+    sonarLint.getRuleDetails("squid:S1234");
+    sonarLint.getRuleDetails("python:S1234");
+
+    assertThat(createdEngines).containsExactly(Arrays.asList(javaPlugin, pythonPlugin));
+  }
+
+  @Test
+  public void loadAllPluginsWithCustomSuffixes() throws IOException {
+    URL javaPlugin = new URL("file:/plugins/java.jar");
+    List<List<URL>> createdEngines = new ArrayList<>();
+    sonarLint = new StandaloneSonarLint(new URL[] {javaPlugin}, new PluginSelector(Collections.singletonMap(javaPlugin, "java")), plugins -> {
+      createdEngines.add(Arrays.asList(plugins));
+      return mock(StandaloneSonarLintEngine.class);
+    });
+    Path projectHome = temp.newFolder().toPath();
+
+    sonarLint.analyze(Collections.singletonMap("sonar.java.file.suffixes", ".jv"), Collections.singletonList(createInputFile(projectHome.resolve("Main.jv"), false)),
+      projectHome, i -> {
+      });
+    assertThat(createdEngines).containsExactly(Collections.singletonList(javaPlugin));
+  }
+
   private static ClientInputFile createInputFile(final Path filePath, final boolean test) {
     return new InputFileFinder.DefaultClientInputFile(filePath, test, StandardCharsets.UTF_8);
   }
@@ -0,0 +1,121 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.git;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GitIgnoreTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private Path root;
+
+  @Before
+  public void setUp() throws IOException {
+    root = temp.newFolder().toPath().toRealPath();
+    Files.createDirectories(root.resolve(".git").resolve("info"));
+  }
+
+  @Test
+  public void should_match_basename_at_any_depth() throws IOException {
+    write(".gitignore", "# comment", "", "target", "*.min.js", "build/");
+    GitIgnore gitIgnore = GitIgnore.load(root);
+
+    assertThat(gitIgnore.isIgnored(root.resolve("target"), true)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("a/b/target"), true)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("a/lib.min.js"), false)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("a/lib.js"), false)).isFalse();
+    assertThat(gitIgnore.isIgnored(root.resolve("build"), true)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("build"), false)).isFalse();
+    assertThat(gitIgnore.isIgnored(root.resolve("# comment"), false)).isFalse();
+  }
+
+  @Test
+  public void should_anchor_patterns_with_slash() throws IOException {
+    write(".gitignore", "/out", "docs/*.html", "**/gen/**", "a/**/z");
+    GitIgnore gitIgnore = GitIgnore.load(root);
+
+    assertThat(gitIgnore.isIgnored(root.resolve("out"), true)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("src/out"), true)).isFalse();
+    assertThat(gitIgnore.isIgnored(root.resolve("docs/index.html"), false)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("docs/api/index.html"), false)).isFalse();
+    assertThat(gitIgnore.isIgnored(root.resolve("x/gen/File.java"), false)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("gen/File.java"), false)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("a/z"), true)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("a/b/c/z"), true)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("b/z"), true)).isFalse();
+  }
+
+  @Test
+  public void should_give_precedence_to_deeper_and_later_rules() throws IOException {
+    write(".git/info/exclude", "*.log");
+    write(".gitignore", "*.txt", "!keep.txt");
+    write("sub/.gitignore", "!*.log", "keep.txt", "/local.java");
+    GitIgnore gitIgnore = GitIgnore.load(root.resolve("sub"));
+
+    assertThat(gitIgnore.isIgnored(root.resolve("a.log"), false)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("sub/a.log"), false)).isFalse();
+    assertThat(gitIgnore.isIgnored(root.resolve("a.txt"), false)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("keep.txt"), false)).isFalse();
+    assertThat(gitIgnore.isIgnored(root.resolve("sub/keep.txt"), false)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("sub/local.java"), false)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("sub/deeper/local.java"), false)).isFalse();
+  }
+
+  @Test
+  public void should_support_character_classes_and_escapes() throws IOException {
+    write(".gitignore", "file[0-9].txt", "[!a]b", "\\#hash", "trailing\\ ", "brace{1}");
+    GitIgnore gitIgnore = GitIgnore.load(root);
+
+    assertThat(gitIgnore.isIgnored(root.resolve("file1.txt"), false)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("filex.txt"), false)).isFalse();
+    assertThat(gitIgnore.isIgnored(root.resolve("cb"), false)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("ab"), false)).isFalse();
+    assertThat(gitIgnore.isIgnored(root.resolve("#hash"), false)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("trailing "), false)).isTrue();
+    assertThat(gitIgnore.isIgnored(root.resolve("brace{1}"), false)).isTrue();
+  }
+
+  @Test
+  public void should_not_ignore_paths_outside_work_tree() throws IOException {
+    write(".gitignore", "*");
+    GitIgnore gitIgnore = GitIgnore.load(root);
+
+    assertThat(gitIgnore.isIgnored(root, true)).isFalse();
+    assertThat(gitIgnore.isIgnored(root.getParent().resolve("other"), true)).isFalse();
+    assertThat(gitIgnore.isIgnored(root.resolve("any"), true)).isTrue();
+  }
+
+  private void write(String path, String... lines) throws IOException {
+    Path file = root.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.git;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Uses the git command line to create repositories, tests are skipped if it's not available.
+ */
+public class GitRepositoryTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  private Path root;
+
+  @Before
+  public void setUp() throws Exception {
+    root = temp.newFolder().toPath().toRealPath();
+    assumeTrue(git("init", "-q", "."));
+    git("config", "user.email", "test@sonarlint.org");
+    git("config", "user.name", "test");
+    git("config", "commit.gpgsign", "false");
+    git("config", "tag.gpgsign", "false");
+    for (int i = 0; i < 20; i++) {
+      write("src/File" + i + ".java", "class File" + i + " {\n" + String.join("\n", Collections.nCopies(i * 10, "  int a;")) + "\n}\n");
+    }
+    git("add", ".");
+    git("commit", "-q", "-m", "first");
+    git("tag", "-a", "v1", "-m", "v1");
+  }
+
+  @Test
+  public void should_find_changes_in_loose_objects() throws Exception {
+    makeChanges();
+    assertChanges();
+  }
+
+  @Test
+  public void should_find_changes_in_packs() throws Exception {
+    makeChanges();
+    git("gc", "-q", "--aggressive");
+    git("update-index", "--index-version", "4");
+    assertChanges();
+  }
+
+  @Test
+  public void should_find_repository_from_sub_directory() throws IOException {
+    try (GitRepository repository = GitRepository.find(root.resolve("src"))) {
+      assertThat(repository.workTree()).isEqualTo(root);
+    }
+    assertThat(GitRepository.find(temp.newFolder().toPath().getRoot().resolve("nonexistent"))).isNull();
+  }
+
+  @Test
+  public void should_fail_on_unknown_revision() throws IOException {
+    exception.expect(IllegalStateException.class);
+    exception.expectMessage("Unknown revision: unknown");
+    try (GitRepository repository = GitRepository.find(root)) {
+      repository.changedFiles("unknown");
+    }
+  }
+
+  private void makeChanges() throws Exception {
+    write("src/File1.java", "class File1 { int committed; }\n");
+    write("src/sub/Added.java", "class Added {}\n");
+    git("add", ".");
+    git("commit", "-q", "-m", "second");
+    write("src/File2.java", "class File2 { int staged; }\n");
+    write("src/Staged.java", "class Staged {}\n");
+    git("add", ".");
+    write("src/File3.java", "class File3 { int modified; }\n");
+    write("src/Untracked.java", "class Untracked {}\n");
+    Files.delete(root.resolve("src/File4.java"));
+  }
+
+  private void assertChanges() throws IOException {
+    try (GitRepository repository = GitRepository.find(root)) {
+      assertThat(repository.changedFiles("HEAD")).containsOnly(root.resolve("src/File2.java"), root.resolve("src/Staged.java"), root.resolve("src/File3.java"));
+      assertThat(repository.changedFiles("v1")).containsOnly(root.resolve("src/File1.java"), root.resolve("src/sub/Added.java"),
+        root.resolve("src/File2.java"), root.resolve("src/Staged.java"), root.resolve("src/File3.java"));
+      assertThat(repository.changedFiles("HEAD~1")).isEqualTo(repository.changedFiles("v1"));
+    }
+  }
+
+  private void write(String relativePath, String content) throws IOException {
+    Path file = root.resolve(relativePath);
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private boolean git(String... args) throws InterruptedException {
+    String[] command = new String[args.length + 1];
+    command[0] = "git";
+    System.arraycopy(args, 0, command, 1, args.length);
+    try {
+      Process process = new ProcessBuilder(Arrays.asList(command)).directory(root.toFile()).redirectErrorStream(true).start();
+      try (InputStream output = process.getInputStream()) {
+        while (output.read() != -1) {
+          // discard
+        }
+      }
+      return process.waitFor() == 0;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+}
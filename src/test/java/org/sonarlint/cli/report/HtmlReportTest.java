@@ -24,6 +24,7 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.LinkedList;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -83,6 +84,42 @@ public class HtmlReportTest {
       "<!doctype html><html><head><link href=\"rule.css\" rel=\"stylesheet\" type=\"text/css\" /></head><body><h1><big>Foo</big> (squid:1234)</h1><div class=\"rule-desc\">foo bar\n<div>bar baz</div></div></body></html>");
   }
 
+  @Test
+  public void testStreaming() throws Exception {
+    Path file1 = temp.newFile("File1.java").toPath();
+    FileUtils.write(file1.toFile(), "class File1 {\n  int a;\n}\n", StandardCharsets.UTF_8);
+    Path file2 = temp.newFile("File2.java").toPath();
+    FileUtils.write(file2.toFile(), "class File2 {\n}\n", StandardCharsets.UTF_8);
+
+    html.setStreaming(true);
+    html.execute("project", new Date(), Arrays.asList(
+      createTestIssue(file1.toString(), "squid:1", "rule1", "MAJOR", 1),
+      createTestIssue(file2.toString(), "squid:2", "rule2", "MINOR", 2),
+      createTestIssue(file1.toString(), "squid:2", "rule2", "MINOR", 2)), result, k -> mockRuleDetails());
+
+    String report = FileUtils.readFileToString(reportFile.toFile(), StandardCharsets.UTF_8);
+    assertThat(report).contains("var nbComponents = 2;", "issuesPerComponent[0] = [", "issuesPerComponent[1] = [", "File1.java", "File2.java",
+      "<pre><span class=\"issue-0\">class File1 {</span></pre>", "<pre><span class=\"issue-1\">  int a;</span></pre>",
+      "<pre><span class=\"issue-2\">}</span></pre>");
+    assertThat(report).contains("</html>");
+    assertThat(reportFile.getParent().resolve("sonarlintreport_rules/squid_2.html").toFile()).exists();
+  }
+
+  @Test
+  public void testSameContentAsStreaming() throws Exception {
+    Path file = temp.newFile("File.java").toPath();
+    FileUtils.write(file.toFile(), "class File {\n}\n", StandardCharsets.UTF_8);
+    Date date = new Date();
+
+    html.execute("project", date, Arrays.asList(createTestIssue(file.toString(), "squid:1", "rule1", "MAJOR", 1)), result, k -> mockRuleDetails());
+    String report = FileUtils.readFileToString(reportFile.toFile(), StandardCharsets.UTF_8);
+
+    html.setStreaming(true);
+    html.execute("project", date, Arrays.asList(createTestIssue(file.toString(), "squid:1", "rule1", "MAJOR", 1)), result, k -> mockRuleDetails());
+    String streamedReport = FileUtils.readFileToString(reportFile.toFile(), StandardCharsets.UTF_8);
+    assertThat(streamedReport.replaceAll("\\s+", "")).isEqualTo(report.replaceAll("\\s+", ""));
+  }
+
   private RuleDetails mockRuleDetails() {
     RuleDetails ruleDetails = mock(RuleDetails.class);
     when(ruleDetails.getName()).thenReturn("Foo");
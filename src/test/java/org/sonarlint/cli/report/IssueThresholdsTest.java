@@ -0,0 +1,85 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.report;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.AnalysisResults;
+import org.sonarsource.sonarlint.core.tracking.Trackable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonarlint.cli.TestUtils.createTestIssue;
+
+public class IssueThresholdsTest {
+  @Test
+  public void maxIssuesBySeverity() {
+    Map<Severity, Integer> maxIssues = new EnumMap<>(Severity.class);
+    maxIssues.put(Severity.BLOCKER, 0);
+    maxIssues.put(Severity.MAJOR, 1);
+    IssueThresholds thresholds = new IssueThresholds(maxIssues, -1);
+
+    execute(thresholds, trackable("MAJOR", null), trackable("MINOR", null), trackable("MINOR", null));
+    assertThat(thresholds.isMaxIssuesExceeded()).isFalse();
+    assertThat(thresholds.isMaxNewIssuesExceeded()).isFalse();
+
+    execute(thresholds, trackable("MAJOR", null), trackable("MAJOR", null));
+    assertThat(thresholds.isMaxIssuesExceeded()).isTrue();
+
+    execute(thresholds, trackable("BLOCKER", null));
+    assertThat(thresholds.isMaxIssuesExceeded()).isTrue();
+
+    execute(thresholds);
+    assertThat(thresholds.isMaxIssuesExceeded()).isFalse();
+  }
+
+  @Test
+  public void maxNewIssues() {
+    IssueThresholds thresholds = new IssueThresholds(Collections.emptyMap(), 1);
+
+    execute(thresholds, trackable("MAJOR", null), trackable("MAJOR", "server-key"));
+    assertThat(thresholds.isMaxNewIssuesExceeded()).isFalse();
+
+    execute(thresholds, trackable("MAJOR", null), trackable("INFO", null));
+    assertThat(thresholds.isMaxNewIssuesExceeded()).isTrue();
+    assertThat(thresholds.isMaxIssuesExceeded()).isFalse();
+  }
+
+  private static void execute(IssueThresholds thresholds, Trackable... trackables) {
+    List<Trackable> list = new ArrayList<>();
+    Collections.addAll(list, trackables);
+    thresholds.execute("project", new Date(), list, mock(AnalysisResults.class), k -> null);
+  }
+
+  private static Trackable trackable(String severity, @Nullable String serverIssueKey) {
+    Trackable trackable = mock(Trackable.class);
+    RichIssue issue = createTestIssue("comp", "rule", severity, 1);
+    when(trackable.getIssue()).thenReturn(issue);
+    when(trackable.getServerIssueKey()).thenReturn(serverIssueKey);
+    return trackable;
+  }
+}
@@ -24,6 +24,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Date;
+import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
@@ -92,8 +93,8 @@ public class IssuesReportTest {
     FileUtils.write(file.toFile(), "if (a && b)\nif (a < b)\nif (a > b)", StandardCharsets.UTF_8);
     report.addIssue(createTestIssue(file.toString(), "rule1", "name1", "MAJOR", 1));
     report.addIssue(createTestIssue(file.toString(), "rule2", "name2", "MAJOR", 2));
-    assertThat(report.getEscapedSource(file)).containsExactly("<span class=\"issue-0\">if (a &amp;&amp; b)</span>", "<span class=\"issue-1\">if (a &lt; b)</span>",
-      "if (a &gt; b)");
+    assertThat(report.getDisplayableSource(file)).extracting("html").containsExactly("<span class=\"issue-0\">if (a &amp;&amp; b)</span>",
+      "<span class=\"issue-1\">if (a &lt; b)</span>", "if (a &gt; b)");
   }
 
   @Test
@@ -108,36 +109,62 @@ public class IssuesReportTest {
     when(issue2.getIssue().getEndLineOffset()).thenReturn(8);
     report.addIssue(issue1);
     report.addIssue(issue2);
-    assertThat(report.getEscapedSource(file)).containsExactly(" <span class=\"issue-0\">foo <span class=\"issue-1\">bar</span></span> ");
+    assertThat(report.getDisplayableSource(file)).extracting("html").containsExactly(" <span class=\"issue-0\">foo <span class=\"issue-1\">bar</span></span> ");
   }
 
   @Test
-  public void should_be_able_to_create_issue_without_file() {
-    Trackable issueWithoutFile = createTestIssue(null, "rule1", "name1", "MAJOR", 1);
-    report.addIssue(issueWithoutFile);
-    assertThat(report.getSummary().getTotal().getCountInCurrentAnalysis()).isEqualTo(1);
+  public void should_decorate_only_displayable_lines() throws Exception {
+    Path file = temp.newFile().toPath();
+    StringBuilder contents = new StringBuilder();
+    for (int i = 1; i <= 20; i++) {
+      contents.append("line").append(i).append(i % 2 == 0 ? "\r\n" : "\n");
+    }
+    FileUtils.write(file.toFile(), contents.toString(), StandardCharsets.UTF_8);
+    report.addIssue(createTestIssue(file.toString(), "rule1", "name1", "MAJOR", 1));
+    report.addIssue(createTestIssue(file.toString(), "rule2", "name2", "MAJOR", 9));
+    report.addIssue(createTestIssue(file.toString(), "rule3", "name3", "MAJOR", 12));
+    report.addIssue(createTestIssue(file.toString(), "rule4", "name4", "MAJOR", 20));
+
+    List<IssuesReport.SourceLine> lines = report.getDisplayableSource(file);
+    assertThat(lines).extracting("number").containsExactly(1, 2, 3, 7, 8, 9, 10, 11, 12, 13, 14, 18, 19, 20);
+    ResourceReport resourceReport = report.getResourceReportsByResource().get(file);
+    for (IssuesReport.SourceLine line : lines) {
+      assertThat(resourceReport.isDisplayableLine(line.number())).isTrue();
+    }
+    assertThat(lines.get(0).html()).isEqualTo("<span class=\"issue-0\">line1</span>");
+    assertThat(lines.get(1).html()).isEqualTo("line2");
+    assertThat(lines.get(13).html()).isEqualTo("<span class=\"issue-3\">line20</span>");
   }
 
   @Test
-  public void should_return_empty_escaped_source_for_null_path() {
-    assertThat(report.getEscapedSource(null)).isEmpty();
+  public void should_return_empty_displayable_source_for_null_path() {
+    assertThat(report.getDisplayableSource(null)).isEmpty();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void getDisplayableSource_should_throw_if_file_has_no_associated_report() throws IOException {
+    Path file = temp.newFile().toPath();
+    FileUtils.write(file.toFile(), "blah\nblah\n", StandardCharsets.UTF_8);
+    report.getDisplayableSource(file);
   }
 
   @Test
-  public void should_return_empty_escaped_source_for_nonexistent_file() {
-    assertThat(report.getEscapedSource(Paths.get("nonexistent"))).isEmpty();
+  public void should_be_able_to_create_issue_without_file() {
+    Trackable issueWithoutFile = createTestIssue(null, "rule1", "name1", "MAJOR", 1);
+    report.addIssue(issueWithoutFile);
+    assertThat(report.getSummary().getTotal().getCountInCurrentAnalysis()).isEqualTo(1);
   }
 
-  @Test(expected = IllegalStateException.class)
-  public void getEscapedSource_should_throw_on_unreadable_file() throws IOException {
-    report.getEscapedSource(temp.newFolder().toPath());
+  @Test
+  public void should_return_empty_displayable_source_for_nonexistent_file() {
+    assertThat(report.getDisplayableSource(Paths.get("nonexistent"))).isEmpty();
   }
 
   @Test(expected = IllegalStateException.class)
-  public void getEscapedSource_should_throw_if_file_has_no_associated_report() throws IOException {
-    Path file = temp.newFile().toPath();
-    FileUtils.write(file.toFile(), "blah\nblah\n", StandardCharsets.UTF_8);
-    report.getEscapedSource(file);
+  public void getDisplayableSource_should_throw_on_unreadable_file() throws IOException {
+    Path dir = temp.newFolder().toPath();
+    report.addIssue(createTestIssue(dir.toString(), "rule1", "name1", "MAJOR", 1));
+    report.getDisplayableSource(dir);
   }
 
   private static Trackable createTestIssue(@Nullable String filePath, String ruleKey, String name, String severity, int line) {
@@ -0,0 +1,76 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.report;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LineOffsetsTest {
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  @Test
+  public void should_index_lines_like_buffered_reader() {
+    String[] contents = {"a\nb\r\nc\rd\n", "\n\nlast", "", "\r\n\r", "no terminator"};
+    for (String content : contents) {
+      LineOffsets lineOffsets = new LineOffsets(content);
+      assertThat(lines(lineOffsets)).containsExactlyElementsOf(new BufferedReader(new StringReader(content)).lines().collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void should_split_lines_like_files_read_all_lines() {
+    assertThat(lines(new LineOffsets("a\nb\r\nc\rd\n"))).containsExactly("a", "b", "c", "d");
+    assertThat(lines(new LineOffsets("\n\nlast"))).containsExactly("", "", "last");
+    assertThat(new LineOffsets("").lineCount()).isZero();
+  }
+
+  @Test
+  public void should_index_many_lines() {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      content.append(i).append('\n');
+    }
+    LineOffsets lineOffsets = new LineOffsets(content.toString());
+    assertThat(lineOffsets.lineCount()).isEqualTo(1000);
+    assertThat(lineOffsets.line(1)).isEqualTo("0");
+    assertThat(lineOffsets.line(1000)).isEqualTo("999");
+  }
+
+  @Test
+  public void should_fail_on_line_out_of_range() {
+    exception.expect(IndexOutOfBoundsException.class);
+    new LineOffsets("a\nb").line(3);
+  }
+
+  private static String[] lines(LineOffsets lineOffsets) {
+    String[] lines = new String[lineOffsets.lineCount()];
+    for (int i = 0; i < lines.length; i++) {
+      lines[i] = lineOffsets.line(i + 1);
+    }
+    return lines;
+  }
+}
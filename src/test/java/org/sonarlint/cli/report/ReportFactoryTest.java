@@ -27,6 +27,7 @@ import org.junit.rules.TemporaryFolder;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -48,6 +49,17 @@ public class ReportFactoryTest {
     assertThat(reporters).hasSize(2);
   }
 
+  @Test
+  public void withoutHtmlReportAndWithThresholds() {
+    factory.setHtmlReportEnabled(false);
+    IssueThresholds thresholds = new IssueThresholds(Collections.emptyMap(), 0);
+    factory.setIssueThresholds(thresholds);
+    List<Reporter> reporters = factory.createReporters(Paths.get("test"));
+    assertThat(reporters).hasSize(2);
+    assertThat(reporters.get(0)).isInstanceOf(ConsoleReport.class);
+    assertThat(reporters.get(1)).isSameAs(thresholds);
+  }
+
   @Test
   public void defaultReportFile() {
     Path report = factory.getReportFile(temp.getRoot().toPath());
@@ -60,4 +72,12 @@ public class ReportFactoryTest {
     Path report = factory.getReportFile(temp.getRoot().toPath());
     assertThat(report).isEqualTo(temp.getRoot().toPath().resolve("myreport").resolve("myfile.html"));
   }
+
+  @Test
+  public void reportPaths() {
+    factory.setHtmlPath(Paths.get("myreport", "myfile.html").toString());
+    Path reportDir = temp.getRoot().toPath().resolve("myreport");
+    assertThat(factory.getReportPaths(temp.getRoot().toPath())).containsExactly(reportDir.resolve("myfile.html"),
+      reportDir.resolve("sonarlintreport_files"), reportDir.resolve("sonarlintreport_rules"));
+  }
 }
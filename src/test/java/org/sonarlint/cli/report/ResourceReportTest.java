@@ -22,20 +22,27 @@ package org.sonarlint.cli.report;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.when;
 import static org.sonarlint.cli.TestUtils.createTestIssue;
 
 public class ResourceReportTest {
   private final static Path RESOURCE = Paths.get("resource");
   private ResourceReport resourceReport;
 
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
   @Before
   public void setUp() {
     resourceReport = new ResourceReport(Paths.get(""), RESOURCE);
@@ -124,4 +131,41 @@ public class ResourceReportTest {
     assertThat(resourceReport.isDisplayableLine(14)).isFalse();
 
   }
+
+  @Test
+  public void lineSweep() {
+    RichIssue i1 = createMultiLineIssue(3, 5);
+    RichIssue i2 = createMultiLineIssue(1, 10);
+    RichIssue i3 = createMultiLineIssue(4, 4);
+    RichIssue i4 = createMultiLineIssue(8, 9);
+    RichIssue noLine = createTestIssue("file1", "rule1", "MAJOR", 1);
+    when(noLine.getStartLine()).thenReturn(null);
+    for (RichIssue issue : Arrays.asList(i1, i2, i3, i4, noLine)) {
+      resourceReport.addIssue(issue);
+    }
+
+    IssueLineSweep sweep = resourceReport.lineSweep();
+    assertThat(sweep.issuesAt(1)).containsExactly(i2);
+    assertThat(sweep.issuesAt(3)).containsExactly(i1, i2);
+    assertThat(sweep.issuesAt(4)).containsExactly(i1, i2, i3);
+    assertThat(sweep.issuesAt(5)).containsExactly(i1, i2);
+    assertThat(sweep.issuesAt(6)).containsExactly(i2);
+    assertThat(sweep.issuesAt(9)).containsExactly(i2, i4);
+    assertThat(sweep.issuesAt(11)).isEmpty();
+  }
+
+  @Test
+  public void lineSweepInIncreasingOrder() {
+    IssueLineSweep sweep = resourceReport.lineSweep();
+    sweep.issuesAt(2);
+
+    exception.expect(IllegalArgumentException.class);
+    sweep.issuesAt(1);
+  }
+
+  private static RichIssue createMultiLineIssue(int startLine, int endLine) {
+    RichIssue issue = createTestIssue("file1", "rule1", "MAJOR", startLine);
+    when(issue.getEndLine()).thenReturn(endLine);
+    return issue;
+  }
 }
@@ -0,0 +1,106 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.report.source;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.sonarlint.cli.report.RichIssue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DecorationDataHolderTest {
+
+  private static final int LINE = 5;
+
+  @Test
+  public void should_order_tags_by_offset_and_loading_order() {
+    DecorationDataHolder holder = new DecorationDataHolder();
+    holder.loadIssues(Arrays.asList(
+      issue(0, LINE, 4, LINE, 6),
+      issue(1, LINE, 2, LINE, 9),
+      issue(2, LINE, 4, LINE, 5),
+      issue(3, LINE - 1, 7, LINE, 3),
+      issue(4, LINE, 2, LINE + 1, 1)), LINE, 10);
+
+    assertThat(openingTags(holder)).containsExactly("0:issue-3", "2:issue-1", "2:issue-4", "4:issue-0", "4:issue-2");
+    assertThat(closingOffsets(holder)).containsExactly(3, 5, 6, 9, 10);
+  }
+
+  @Test
+  public void should_ignore_empty_ranges() {
+    DecorationDataHolder holder = new DecorationDataHolder();
+    holder.loadIssues(Arrays.asList(issue(0, LINE, 3, LINE, 3), issue(1, LINE, null, LINE, null)), LINE, 0);
+
+    assertThat(openingTags(holder)).isEmpty();
+    assertThat(closingOffsets(holder)).isEmpty();
+    assertThat(holder.getCurrentOpeningTagOffset()).isEqualTo(-1);
+    assertThat(holder.getCurrentOpeningTagCssClass()).isNull();
+  }
+
+  @Test
+  public void should_keep_order_of_many_tags() {
+    List<RichIssue> issues = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      issues.add(issue(i, LINE, i % 10, LINE, 100 - i % 7));
+    }
+    DecorationDataHolder holder = new DecorationDataHolder();
+    holder.loadIssues(issues, LINE, 100);
+
+    List<String> openingTags = openingTags(holder);
+    assertThat(openingTags).hasSize(1000);
+    assertThat(openingTags.get(0)).isEqualTo("0:issue-0");
+    assertThat(openingTags.get(1)).isEqualTo("0:issue-10");
+    assertThat(openingTags.get(999)).isEqualTo("9:issue-999");
+    assertThat(closingOffsets(holder)).isSorted();
+  }
+
+  private static List<String> openingTags(DecorationDataHolder holder) {
+    List<String> tags = new ArrayList<>();
+    while (holder.getCurrentOpeningTagCssClass() != null) {
+      tags.add(holder.getCurrentOpeningTagOffset() + ":" + holder.getCurrentOpeningTagCssClass());
+      holder.nextOpeningTagEntry();
+    }
+    return tags;
+  }
+
+  private static List<Integer> closingOffsets(DecorationDataHolder holder) {
+    List<Integer> offsets = new ArrayList<>();
+    while (holder.getCurrentClosingTagOffset() != -1) {
+      offsets.add(holder.getCurrentClosingTagOffset());
+      holder.nextClosingTagOffset();
+    }
+    return offsets;
+  }
+
+  private static RichIssue issue(int id, int startLine, @Nullable Integer startOffset, int endLine, @Nullable Integer endOffset) {
+    RichIssue issue = mock(RichIssue.class);
+    when(issue.id()).thenReturn(id);
+    when(issue.getStartLine()).thenReturn(startLine);
+    when(issue.getStartLineOffset()).thenReturn(startOffset);
+    when(issue.getEndLine()).thenReturn(endLine);
+    when(issue.getEndLineOffset()).thenReturn(endOffset);
+    return issue;
+  }
+}
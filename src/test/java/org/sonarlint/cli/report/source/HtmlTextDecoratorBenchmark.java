@@ -0,0 +1,109 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.report.source;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonarlint.cli.report.RichIssue;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares {@link HtmlTextDecorator} with the former {@link ReaderHtmlTextDecorator} on long lines.
+ * Not run by the build, launch {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class HtmlTextDecoratorBenchmark {
+
+  private static final int LINE = 1;
+
+  @Param({"1000", "20000"})
+  public int lineLength;
+
+  @Param({"0", "20"})
+  public int issueCount;
+
+  private String line;
+  private List<RichIssue> issues;
+  private HtmlTextDecorator decorator;
+
+  @Setup
+  public void setUp() {
+    String alphabet = "foo(a < b && c > d);\t";
+    StringBuilder builder = new StringBuilder(lineLength);
+    for (int i = 0; i < lineLength; i++) {
+      builder.append(alphabet.charAt(i % alphabet.length()));
+    }
+    line = builder.toString();
+
+    issues = new ArrayList<>();
+    for (int i = 0; i < issueCount; i++) {
+      RichIssue issue = mock(RichIssue.class);
+      when(issue.id()).thenReturn(i);
+      when(issue.getStartLine()).thenReturn(LINE);
+      when(issue.getStartLineOffset()).thenReturn(i * lineLength / (issueCount * 2));
+      when(issue.getEndLine()).thenReturn(LINE);
+      when(issue.getEndLineOffset()).thenReturn(lineLength / 2 + i * lineLength / (issueCount * 2));
+      issues.add(issue);
+    }
+    decorator = new HtmlTextDecorator();
+  }
+
+  @Benchmark
+  public String readerDecorator() {
+    return new ReaderHtmlTextDecorator().decorateLineWithHtml(line, holder());
+  }
+
+  @Benchmark
+  public String decorator() {
+    return decorator.decorateLineWithHtml(line, holder());
+  }
+
+  private DecorationDataHolder holder() {
+    DecorationDataHolder holder = new DecorationDataHolder();
+    holder.loadIssues(issues, LINE, line.length());
+    return holder;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(HtmlTextDecoratorBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.report.source;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.sonarlint.cli.report.RichIssue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HtmlTextDecoratorTest {
+
+  private static final int LINE = 3;
+
+  private final HtmlTextDecorator decorator = new HtmlTextDecorator();
+  private int nextId = 0;
+
+  @Test
+  public void should_escape_html() {
+    assertThat(decorate("if (a < b && c > d)")).isEqualTo("if (a &lt; b &amp;&amp; c &gt; d)");
+    assertThat(decorate("")).isEmpty();
+  }
+
+  @Test
+  public void should_wrap_issues() {
+    String line = "foo(bar, baz);";
+    assertThat(decorate(line, issue(0, 14))).isEqualTo("<span class=\"issue-0\">foo(bar, baz);</span>");
+    assertThat(decorate(line, issue(4, 7), issue(4, 12))).isEqualTo("foo(<span class=\"issue-0\"><span class=\"issue-1\">bar</span>, baz</span>);");
+    assertThat(decorate(line, issue(null, 3), issue(9, null))).isEqualTo("<span class=\"issue-0\">foo</span>(bar, <span class=\"issue-1\">baz);</span>");
+  }
+
+  @Test
+  public void should_close_tags_beyond_end_of_line() {
+    assertThat(decorate("a<b", issue(1, 10))).isEqualTo("a<span class=\"issue-0\">&lt;b</span>");
+  }
+
+  @Test
+  public void should_reuse_buffer_between_lines() {
+    assertThat(decorate("first", issue(0, 2))).isEqualTo("<span class=\"issue-0\">fi</span>rst");
+    assertThat(decorate("second")).isEqualTo("second");
+  }
+
+  @Test
+  public void should_decorate_like_reader_based_implementation() {
+    Random random = new Random(42);
+    String alphabet = "ab <>&\t";
+    for (int i = 0; i < 500; i++) {
+      StringBuilder line = new StringBuilder();
+      int length = random.nextInt(40);
+      for (int j = 0; j < length; j++) {
+        line.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      List<RichIssue> issues = new ArrayList<>();
+      int issueCount = random.nextInt(6);
+      for (int j = 0; j < issueCount; j++) {
+        Integer start = random.nextInt(4) == 0 ? null : random.nextInt(length + 3);
+        Integer end = random.nextInt(4) == 0 ? null : random.nextInt(length + 3);
+        issues.add(issue(j, start, end));
+      }
+
+      String expected = new ReaderHtmlTextDecorator().decorateLineWithHtml(line.toString(), holder(line.toString(), issues));
+      assertThat(decorator.decorateLineWithHtml(line.toString(), holder(line.toString(), issues))).as(line.toString()).isEqualTo(expected);
+    }
+  }
+
+  private String decorate(String line, RichIssue... issues) {
+    List<RichIssue> issueList = new ArrayList<>();
+    Collections.addAll(issueList, issues);
+    return decorator.decorateLineWithHtml(line, holder(line, issueList));
+  }
+
+  private static DecorationDataHolder holder(String line, List<RichIssue> issues) {
+    DecorationDataHolder holder = new DecorationDataHolder();
+    holder.loadIssues(issues, LINE, line.length());
+    return holder;
+  }
+
+  private RichIssue issue(@Nullable Integer startOffset, @Nullable Integer endOffset) {
+    return issue(nextId++, startOffset, endOffset);
+  }
+
+  private static RichIssue issue(int id, @Nullable Integer startOffset, @Nullable Integer endOffset) {
+    RichIssue issue = mock(RichIssue.class);
+    when(issue.id()).thenReturn(id);
+    when(issue.getStartLine()).thenReturn(LINE);
+    when(issue.getStartLineOffset()).thenReturn(startOffset);
+    when(issue.getEndLine()).thenReturn(LINE);
+    when(issue.getEndLineOffset()).thenReturn(endOffset);
+    return issue;
+  }
+}
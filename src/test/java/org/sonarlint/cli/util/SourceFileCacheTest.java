@@ -0,0 +1,155 @@
+/*
+ * SonarLint CLI
+ * Copyright (C) 2016-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarlint.cli.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class SourceFileCacheTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private final SourceFileCache cache = new SourceFileCache();
+
+  @Test
+  public void should_give_independent_views_of_content() throws IOException {
+    Path file = temp.newFile().toPath();
+    Files.write(file, "h\u00e9llo\nworld".getBytes(StandardCharsets.UTF_8));
+
+    ByteBuffer first = cache.bytes(file);
+    first.get();
+    ByteBuffer second = cache.bytes(file);
+
+    assertThat(first.isReadOnly()).isTrue();
+    assertThat(second.position()).isZero();
+    assertThat(second.remaining()).isEqualTo(12);
+    assertThat(cache.contents(file, StandardCharsets.UTF_8)).isEqualTo("h\u00e9llo\nworld");
+    try (InputStream in = cache.inputStream(file)) {
+      assertThat(in.available()).isEqualTo(12);
+      assertThat(in.skip(1)).isEqualTo(1);
+      assertThat(IOUtils.toString(in, StandardCharsets.UTF_8)).isEqualTo("\u00e9llo\nworld");
+      assertThat(in.read()).isEqualTo(-1);
+    }
+  }
+
+  @Test
+  public void should_read_modified_file_again() throws IOException {
+    Path file = temp.newFile().toPath();
+    Files.write(file, "content".getBytes(StandardCharsets.UTF_8));
+    assertThat(cache.contents(file, StandardCharsets.UTF_8)).isEqualTo("content");
+
+    Files.write(file, "modified content".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10_000));
+
+    assertThat(cache.contents(file, StandardCharsets.UTF_8)).isEqualTo("modified content");
+    assertThat(cache.cachedBytes()).isEqualTo(16);
+  }
+
+  @Test
+  public void should_evict_least_recently_used_files() throws IOException {
+    SourceFileCache smallCache = new SourceFileCache(10);
+    Path file1 = newFile("1111");
+    Path file2 = newFile("2222");
+    Path file3 = newFile("3333");
+    Path tooBig = newFile("more than 10 bytes");
+
+    smallCache.bytes(file1);
+    smallCache.bytes(file2);
+    smallCache.bytes(file1);
+    smallCache.bytes(file3);
+
+    assertThat(smallCache.contains(file1)).isTrue();
+    assertThat(smallCache.contains(file2)).isFalse();
+    assertThat(smallCache.contains(file3)).isTrue();
+    assertThat(smallCache.cachedBytes()).isEqualTo(8);
+
+    assertThat(smallCache.contents(tooBig, StandardCharsets.UTF_8)).isEqualTo("more than 10 bytes");
+    assertThat(smallCache.contains(tooBig)).isFalse();
+    assertThat(smallCache.cachedBytes()).isEqualTo(8);
+  }
+
+  @Test
+  public void should_support_empty_files() throws IOException {
+    Path file = temp.newFile().toPath();
+
+    assertThat(cache.contents(file, StandardCharsets.UTF_8)).isEmpty();
+    assertThat(cache.inputStream(file).read()).isEqualTo(-1);
+  }
+
+  @Test(expected = IOException.class)
+  public void should_fail_on_missing_file() throws IOException {
+    cache.bytes(temp.getRoot().toPath().resolve("missing"));
+  }
+
+  @Test
+  public void should_report_truncated_file_as_io_error() throws IOException {
+    // files are only mapped where they can be truncated while mapped
+    Assume.assumeTrue(File.separatorChar == '/');
+    Path file = temp.newFile().toPath();
+    byte[] content = new byte[1024 * 1024];
+    Arrays.fill(content, (byte) 'a');
+    Files.write(file, content);
+    FileTime mtime = Files.getLastModifiedTime(file);
+    assertThat(cache.read(file, ByteBuffer::remaining)).isEqualTo(content.length);
+    InputStream in = cache.inputStream(file);
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(0);
+    }
+    // still the cached mapping
+    Files.setLastModifiedTime(file, mtime);
+
+    try {
+      cache.contents(file, StandardCharsets.UTF_8);
+      fail("Expected an IOException");
+    } catch (IOException e) {
+      assertThat(e).hasMessageContaining("File modified while being read");
+    }
+    try {
+      IOUtils.toByteArray(in);
+      fail("Expected an IOException");
+    } catch (IOException e) {
+      assertThat(e).hasMessageContaining("File modified while being read");
+    }
+  }
+
+  private Path newFile(String content) throws IOException {
+    Path file = temp.newFile().toPath();
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+}